@@ -0,0 +1,25 @@
+package com.fathzer.bench;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/** Runs the benchmarks with the GC profiler, so that results contain the allocation rate (B/op) of each benchmark.
+ * <br>Arguments are the usual JMH command line arguments (for instance a regular expression to select the benchmarks to run).
+ */
+public class Main {
+    private Main() {
+    }
+
+    public static void main(String[] args) throws RunnerException, CommandLineOptionException {
+        final Options options = new OptionsBuilder()
+                .parent(new CommandLineOptions(args))
+                .addProfiler(GCProfiler.class)
+                .build();
+        new Runner(options).run();
+    }
+}
@@ -0,0 +1,66 @@
+package com.fathzer.chess;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/** Benchmarks the copy-make board against the make/unmake boards.
+ * <br>Before the measures, <i>playedMoves</i> moves are played on the board, in order to show how the board copy cost
+ * depends on the game length.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CopyMakeBenchmark {
+    @Param({"MAILBOX", "BITBOARD", "COPY_MAKE"})
+    private ChessBoard.Type boardType;
+    @Param({"0", "200"})
+    private int playedMoves;
+
+    private ChessBoard board;
+    private MoveList moves;
+
+    @Setup
+    public void setup() {
+        board = boardType.create(Positions.MIDDLE_GAME);
+        // Knights go back and forth, so the position is the same whatever the number of played moves is
+        final int[] shuffle = {new Move("c3", "b1").toInt(), new Move("f6", "g8").toInt(), new Move("b1", "c3").toInt(), new Move("g8", "f6").toInt()};
+        for (int i = 0; i < playedMoves; i++) {
+            board.makeMove(shuffle[i % shuffle.length]);
+        }
+        moves = new MoveList();
+        board.getMoves(moves);
+    }
+
+    /** Creates a snapshot of the board. */
+    @Benchmark
+    public ChessBoard fork() {
+        return board.fork();
+    }
+
+    /** Makes and unmakes all the moves of the position.
+     * <br>The copy-make board pushes a copy of its position on each move, and restores it on unmake.
+     */
+    @Benchmark
+    public void makeUnmake(Blackhole blackhole) {
+        for (int i = 0; i < moves.size(); i++) {
+            board.makeMove(moves.get(i));
+            board.unmakeMove();
+        }
+        blackhole.consume(board);
+    }
+}
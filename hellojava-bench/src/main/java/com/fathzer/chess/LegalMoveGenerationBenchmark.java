@@ -0,0 +1,61 @@
+package com.fathzer.chess;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/** Benchmarks the legal move generator against a naive generator that filters the pseudo legal moves
+ * by playing them and testing whether the king is in check.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class LegalMoveGenerationBenchmark {
+    @Param({"INITIAL", "MIDDLE_GAME"})
+    private String position;
+
+    private Board board;
+    private MoveList moves;
+    private MoveList pseudoLegalMoves;
+
+    @Setup
+    public void setup() {
+        board = new Board(Positions.get(position), true);
+        moves = new MoveList();
+        pseudoLegalMoves = new MoveList();
+    }
+
+    @Benchmark
+    public MoveList legal() {
+        board.getMoves(moves, true);
+        return moves;
+    }
+
+    @Benchmark
+    public MoveList filtered() {
+        board.getPseudoLegalMoves(pseudoLegalMoves, true);
+        moves.clear();
+        for (int i = 0; i < pseudoLegalMoves.size(); i++) {
+            final int move = pseudoLegalMoves.get(i);
+            board.makeMove(move);
+            if (!board.isCheck(true)) {
+                moves.add(move);
+            }
+            board.unmakeMove();
+        }
+        return moves;
+    }
+}
@@ -0,0 +1,89 @@
+package com.fathzer.chess;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/** Benchmarks the move generation and the make/unmake of moves. */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MoveGenerationBenchmark {
+    @Param({"MAILBOX", "BITBOARD", "LEGAL", "LOOKUP", "COPY_MAKE"})
+    private ChessBoard.Type boardType;
+    @Param({"INITIAL", "MIDDLE_GAME"})
+    private String position;
+
+    private ChessBoard board;
+    private MoveList moves;
+    private MoveList[] replies;
+
+    @Setup
+    public void setup() {
+        board = boardType.create(Positions.get(position));
+        moves = new MoveList();
+        board.getMoves(moves, true);
+        replies = new MoveList[moves.size()];
+        for (int i = 0; i < moves.size(); i++) {
+            board.makeMove(moves.get(i));
+            replies[i] = new MoveList();
+            board.getMoves(replies[i], false);
+            board.unmakeMove();
+        }
+    }
+
+    @Benchmark
+    public MoveList getMoves() {
+        board.getMoves(moves, true);
+        return moves;
+    }
+
+    @Benchmark
+    public List<Move> getMovesAsList() {
+        return board.getMoves(true);
+    }
+
+    /** Makes and unmakes all the moves of the position.
+     * <br>The moves list is generated once in setup, so only the make/unmake pairs are measured.
+     */
+    @Benchmark
+    public void makeUnmake(Blackhole blackhole) {
+        for (int i = 0; i < moves.size(); i++) {
+            board.makeMove(moves.get(i));
+            board.unmakeMove();
+        }
+        blackhole.consume(board);
+    }
+
+    /** Makes and unmakes all the moves of the position and all the replies to these moves.
+     * <br>Moves and replies are generated once in setup, so only the make/unmake pairs of a two plies deep history are measured.
+     */
+    @Benchmark
+    public void makeUnmakeTwoPlies(Blackhole blackhole) {
+        for (int i = 0; i < moves.size(); i++) {
+            board.makeMove(moves.get(i));
+            final MoveList next = replies[i];
+            for (int j = 0; j < next.size(); j++) {
+                board.makeMove(next.get(j));
+                board.unmakeMove();
+            }
+            board.unmakeMove();
+        }
+        blackhole.consume(board);
+    }
+}
@@ -0,0 +1,45 @@
+package com.fathzer.chess;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/** Benchmarks Perft at several depths and positions. */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PerftBenchmark {
+    @Param({"MAILBOX", "BITBOARD", "LEGAL", "LOOKUP", "COPY_MAKE"})
+    private ChessBoard.Type boardType;
+    @Param({"INITIAL", "SECOND", "MIDDLE_GAME"})
+    private String position;
+    @Param({"3", "4", "5"})
+    private int depth;
+
+    private ChessBoard board;
+    private Perft perft;
+
+    @Setup
+    public void setup() {
+        board = boardType.create(Positions.get(position));
+        perft = new Perft();
+    }
+
+    @Benchmark
+    public long perft() {
+        return perft.perft(board, depth).leafNodesCount();
+    }
+}
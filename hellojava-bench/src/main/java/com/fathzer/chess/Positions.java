@@ -0,0 +1,29 @@
+package com.fathzer.chess;
+
+/** The positions used by the benchmarks.
+ * <br>Castling rights are only used by the legal move generator.
+ */
+final class Positions {
+    /** The initial position. */
+    static final String INITIAL = "rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w KQkq - 0 1";
+    /** The second position of hellojava's Perft test (black to play). */
+    static final String SECOND = "rnbqkbnr/pp1ppppp/2p5/8/6P1/2P5/PP1PPP1P/RNBQKBNR b KQkq - 0 2";
+    /** A middle game position (known as Kiwipete). */
+    static final String MIDDLE_GAME = "r3k2r/p1ppqpb1/bn2pnp1/3PN3/1p2P3/2N2Q1p/PPPBBPPP/R3K2R w KQkq - 0 1";
+
+    private Positions() {
+    }
+
+    /** Gets a position by its name.
+     * @param name The name of one of the constants of this class
+     * @return a FEN string
+     */
+    static String get(String name) {
+        switch (name) {
+            case "INITIAL": return INITIAL;
+            case "SECOND": return SECOND;
+            case "MIDDLE_GAME": return MIDDLE_GAME;
+            default: throw new IllegalArgumentException("Unknown position " + name);
+        }
+    }
+}
@@ -0,0 +1,61 @@
+package com.fathzer.pi;
+
+import java.math.BigInteger;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/** Benchmarks the multiplication and division of large integers by {@link NttArithmetic} against {@link BigInteger}. */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class NttArithmeticBenchmark {
+    @Param({"65536", "262144", "1048576", "4194304"})
+    private int bits;
+
+    private BigInteger x;
+    private BigInteger y;
+    private BigInteger product;
+
+    @Setup
+    public void setUp() {
+        final Random random = new Random(0);
+        x = new BigInteger(bits, random);
+        y = new BigInteger(bits, random);
+        product = x.multiply(y).add(x);
+    }
+
+    @Benchmark
+    public BigInteger nttMultiply() {
+        return NttArithmetic.multiply(x, y);
+    }
+
+    @Benchmark
+    public BigInteger bigIntegerMultiply() {
+        return x.multiply(y);
+    }
+
+    @Benchmark
+    public BigInteger nttDivide() {
+        return NttArithmetic.divide(product, y);
+    }
+
+    @Benchmark
+    public BigInteger bigIntegerDivide() {
+        return product.divide(y);
+    }
+}
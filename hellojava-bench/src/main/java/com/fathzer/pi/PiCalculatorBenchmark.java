@@ -0,0 +1,34 @@
+package com.fathzer.pi;
+
+import java.math.BigDecimal;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/** Benchmarks the computation of Pi at several digit counts. */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PiCalculatorBenchmark {
+    @Param({"1000", "3000", "10000"})
+    private int digits;
+    @Param({"SERIES", "BINARY_SPLITTING", "FIXED_POINT"})
+    private PiCalculator.Algorithm algorithm;
+
+    @Benchmark
+    public BigDecimal computePi() {
+        return PiCalculator.computePi(digits, algorithm);
+    }
+}
@@ -0,0 +1,345 @@
+package com.fathzer.chess;
+
+import static com.fathzer.chess.Bitboards.*;
+import static com.fathzer.chess.Piece.*;
+
+import java.util.Arrays;
+
+/** A tiny chess board based on bitboards.
+ * <br>It has one 64 bits bitboard per piece type and color, and uses precomputed attack tables for kings, knights and pawns,
+ * and magic bitboards for sliders.
+ * <br>It implements the same (simplified) rules as the basic generator of {@link Board} and generates exactly the same moves.
+ * WARNING: Like this generator, it lacks important features like king safety, en passant, castling, promotion.
+ * It only tracks the castling rights and the en passant square, in order to compute the same hash keys and FEN as {@link Board}.
+ */
+public class BitboardBoard implements ChessBoard {
+	private final long[] bitboards;
+	private final Piece[] squares;
+	private long whitePieces;
+	private long blackPieces;
+	private int[] playedMoves;
+	private Piece[] captures;
+	/** The castling rights, en passant square and half move clock before each played move. */
+	private int[] playedStates;
+	private int playedMovesCount;
+	private long hashKey;
+	private int castlingRights;
+	private int enPassant;
+	private boolean whiteToMove;
+	private int halfMoveClock;
+	private int fullMoveNumber;
+
+	public BitboardBoard(BitboardBoard copy) {
+		this.hashKey = copy.hashKey;
+		this.bitboards = copy.bitboards.clone();
+		this.squares = copy.squares.clone();
+		this.whitePieces = copy.whitePieces;
+		this.blackPieces = copy.blackPieces;
+		this.playedMoves = copy.playedMoves.clone();
+		this.captures = copy.captures.clone();
+		this.playedStates = copy.playedStates.clone();
+		this.playedMovesCount = copy.playedMovesCount;
+		this.castlingRights = copy.castlingRights;
+		this.enPassant = copy.enPassant;
+		this.whiteToMove = copy.whiteToMove;
+		this.halfMoveClock = copy.halfMoveClock;
+		this.fullMoveNumber = copy.fullMoveNumber;
+	}
+
+	public BitboardBoard(String fen) {
+		this(new Board(fen));
+	}
+
+	/** Creates a bitboard with the same pieces as a mailbox board.
+	 * <br>The moves played on the mailbox board are not copied, so they can't be unmade on the created board.
+	 * @param board The mailbox board
+	 */
+	public BitboardBoard(Board board) {
+		this.bitboards = new long[Piece.values().length];
+		this.squares = new Piece[64];
+		this.playedMoves = new int[16];
+		this.captures = new Piece[16];
+		this.playedStates = new int[16];
+		for (int square = 0; square < 64; square++) {
+			final Piece piece = board.getPiece(TO_MAILBOX[square]);
+			if (piece != null) {
+				set(piece, square);
+			}
+		}
+		setState(board.getCastlingRights(), board.getEnPassant());
+		setWhiteToMove(board.isWhiteToMove());
+		this.halfMoveClock = board.getHalfMoveClock();
+		this.fullMoveNumber = board.getFullMoveNumber();
+	}
+
+	private void set(Piece piece, int square) {
+		final long bit = 1L << square;
+		squares[square] = piece;
+		hashKey ^= Zobrist.get(piece, TO_MAILBOX[square]);
+		bitboards[piece.ordinal()] |= bit;
+		if (piece.isWhite()) {
+			whitePieces |= bit;
+		} else {
+			blackPieces |= bit;
+		}
+	}
+
+	private void clear(Piece piece, int square) {
+		final long mask = ~(1L << square);
+		squares[square] = null;
+		hashKey ^= Zobrist.get(piece, TO_MAILBOX[square]);
+		bitboards[piece.ordinal()] &= mask;
+		if (piece.isWhite()) {
+			whitePieces &= mask;
+		} else {
+			blackPieces &= mask;
+		}
+	}
+
+	@Override
+	public Piece getPiece(String uciSquare) {
+		return squares[FROM_MAILBOX[Board.getSquare(uciSquare)]];
+	}
+
+	@Override
+	public long getHashKey() {
+		return hashKey;
+	}
+
+	@Override
+	public boolean isWhiteToMove() {
+		return whiteToMove;
+	}
+
+	@Override
+	public int getCastlingRights() {
+		return castlingRights;
+	}
+
+	@Override
+	public int getEnPassant() {
+		return enPassant;
+	}
+
+	@Override
+	public int getHalfMoveClock() {
+		return halfMoveClock;
+	}
+
+	@Override
+	public int getFullMoveNumber() {
+		return fullMoveNumber;
+	}
+
+	@Override
+	public void getMoves(MoveList moves, boolean white) {
+		moves.clear();
+		final long own = white ? whitePieces : blackPieces;
+		final long enemy = white ? blackPieces : whitePieces;
+		final long occupied = own | enemy;
+		final long targets = ~own;
+		if (white) {
+			final long pawns = bitboards[WHITE_PAWN.ordinal()];
+			final long push = (pawns << 8) & ~occupied;
+			addPawnMoves(moves, push, -8);
+			addPawnMoves(moves, ((push & RANK_3) << 8) & ~occupied, -16);
+			addPawnMoves(moves, ((pawns & ~FILE_A) << 7) & enemy, -7);
+			addPawnMoves(moves, ((pawns & ~FILE_H) << 9) & enemy, -9);
+		} else {
+			final long pawns = bitboards[BLACK_PAWN.ordinal()];
+			final long push = (pawns >>> 8) & ~occupied;
+			addPawnMoves(moves, push, 8);
+			addPawnMoves(moves, ((push & RANK_6) >>> 8) & ~occupied, 16);
+			addPawnMoves(moves, ((pawns & ~FILE_A) >>> 9) & enemy, 9);
+			addPawnMoves(moves, ((pawns & ~FILE_H) >>> 7) & enemy, 7);
+		}
+		for (long pieces = bitboards[(white ? WHITE_KNIGHT : BLACK_KNIGHT).ordinal()]; pieces != 0; pieces &= pieces - 1) {
+			final int from = Long.numberOfTrailingZeros(pieces);
+			addMoves(moves, from, KNIGHT_ATTACKS[from] & targets);
+		}
+		for (long pieces = bitboards[(white ? WHITE_KING : BLACK_KING).ordinal()]; pieces != 0; pieces &= pieces - 1) {
+			final int from = Long.numberOfTrailingZeros(pieces);
+			addMoves(moves, from, KING_ATTACKS[from] & targets);
+		}
+		final long queens = bitboards[(white ? WHITE_QUEEN : BLACK_QUEEN).ordinal()];
+		for (long pieces = bitboards[(white ? WHITE_ROOK : BLACK_ROOK).ordinal()] | queens; pieces != 0; pieces &= pieces - 1) {
+			final int from = Long.numberOfTrailingZeros(pieces);
+			long attacks = rookAttacks(from, occupied);
+			if ((queens & (1L << from)) != 0) {
+				attacks |= bishopAttacks(from, occupied);
+			}
+			addMoves(moves, from, attacks & targets);
+		}
+		for (long pieces = bitboards[(white ? WHITE_BISHOP : BLACK_BISHOP).ordinal()]; pieces != 0; pieces &= pieces - 1) {
+			final int from = Long.numberOfTrailingZeros(pieces);
+			addMoves(moves, from, bishopAttacks(from, occupied) & targets);
+		}
+	}
+
+	@Override
+	public int countMoves(boolean white) {
+		final long own = white ? whitePieces : blackPieces;
+		final long enemy = white ? blackPieces : whitePieces;
+		final long occupied = own | enemy;
+		final long targets = ~own;
+		int count;
+		if (white) {
+			final long pawns = bitboards[WHITE_PAWN.ordinal()];
+			final long push = (pawns << 8) & ~occupied;
+			count = Long.bitCount(push) + Long.bitCount(((push & RANK_3) << 8) & ~occupied)
+					+ Long.bitCount(((pawns & ~FILE_A) << 7) & enemy) + Long.bitCount(((pawns & ~FILE_H) << 9) & enemy);
+		} else {
+			final long pawns = bitboards[BLACK_PAWN.ordinal()];
+			final long push = (pawns >>> 8) & ~occupied;
+			count = Long.bitCount(push) + Long.bitCount(((push & RANK_6) >>> 8) & ~occupied)
+					+ Long.bitCount(((pawns & ~FILE_A) >>> 9) & enemy) + Long.bitCount(((pawns & ~FILE_H) >>> 7) & enemy);
+		}
+		for (long pieces = bitboards[(white ? WHITE_KNIGHT : BLACK_KNIGHT).ordinal()]; pieces != 0; pieces &= pieces - 1) {
+			count += Long.bitCount(KNIGHT_ATTACKS[Long.numberOfTrailingZeros(pieces)] & targets);
+		}
+		for (long pieces = bitboards[(white ? WHITE_KING : BLACK_KING).ordinal()]; pieces != 0; pieces &= pieces - 1) {
+			count += Long.bitCount(KING_ATTACKS[Long.numberOfTrailingZeros(pieces)] & targets);
+		}
+		final long queens = bitboards[(white ? WHITE_QUEEN : BLACK_QUEEN).ordinal()];
+		for (long pieces = bitboards[(white ? WHITE_ROOK : BLACK_ROOK).ordinal()] | queens; pieces != 0; pieces &= pieces - 1) {
+			count += Long.bitCount(rookAttacks(Long.numberOfTrailingZeros(pieces), occupied) & targets);
+		}
+		for (long pieces = bitboards[(white ? WHITE_BISHOP : BLACK_BISHOP).ordinal()] | queens; pieces != 0; pieces &= pieces - 1) {
+			count += Long.bitCount(bishopAttacks(Long.numberOfTrailingZeros(pieces), occupied) & targets);
+		}
+		return count;
+	}
+
+	private static void addMoves(MoveList moves, int from, long destinations) {
+		final int mailboxFrom = TO_MAILBOX[from];
+		for (; destinations != 0; destinations &= destinations - 1) {
+			moves.add(mailboxFrom, TO_MAILBOX[Long.numberOfTrailingZeros(destinations)]);
+		}
+	}
+
+	/** Adds pawn moves.
+	 * @param moves The list to fill
+	 * @param destinations The destination squares
+	 * @param delta The difference between the origin square and the destination square
+	 */
+	private static void addPawnMoves(MoveList moves, long destinations, int delta) {
+		for (; destinations != 0; destinations &= destinations - 1) {
+			final int to = Long.numberOfTrailingZeros(destinations);
+			moves.add(TO_MAILBOX[to + delta], TO_MAILBOX[to]);
+		}
+	}
+
+	@Override
+	public void makeMove(int move) {
+		final int from = toSquare(Move.getFrom(move));
+		final int to = toSquare(Move.getTo(move));
+		if (from < 0 || to < 0) {
+			throw new IllegalArgumentException("Illegal move");
+		}
+		final Piece movingPiece = squares[from];
+		final Piece capturedPiece = squares[to];
+		if (movingPiece == null || (capturedPiece != null && !capturedPiece.canBeCapturedBy(movingPiece.isWhite())) || Move.getPromotion(move) != 0) {
+			throw new IllegalArgumentException("Illegal move");
+		}
+		if (MoveCounters.ENABLED) {
+			MoveCounters.made();
+		}
+		if (capturedPiece != null) {
+			clear(capturedPiece, to);
+		}
+		clear(movingPiece, from);
+		set(movingPiece, to);
+
+		if (playedMovesCount == playedMoves.length) {
+			playedMoves = Arrays.copyOf(playedMoves, playedMovesCount * 2);
+			captures = Arrays.copyOf(captures, playedMovesCount * 2);
+			playedStates = Arrays.copyOf(playedStates, playedMovesCount * 2);
+		}
+		captures[playedMovesCount] = capturedPiece;
+		playedStates[playedMovesCount] = castlingRights | (enPassant << 4) | (halfMoveClock << 11);
+		playedMoves[playedMovesCount++] = move;
+		final boolean pawn = movingPiece == WHITE_PAWN || movingPiece == BLACK_PAWN;
+		setState(castlingRights & Board.getCastlingMask(Move.getFrom(move)) & Board.getCastlingMask(Move.getTo(move)),
+				pawn && (to - from == 16 || from - to == 16) ? TO_MAILBOX[(from + to) / 2] : 0);
+		halfMoveClock = capturedPiece == null && !pawn ? halfMoveClock + 1 : 0;
+		if (!movingPiece.isWhite()) {
+			fullMoveNumber++;
+		}
+		setWhiteToMove(!movingPiece.isWhite());
+	}
+
+	private void setWhiteToMove(boolean white) {
+		if (white != whiteToMove) {
+			whiteToMove = white;
+			hashKey ^= Zobrist.WHITE_TO_MOVE;
+		}
+	}
+
+	private void setState(int castlingRights, int enPassant) {
+		hashKey ^= Zobrist.getCastling(this.castlingRights) ^ Zobrist.getCastling(castlingRights) ^ Zobrist.getEnPassant(this.enPassant) ^ Zobrist.getEnPassant(enPassant);
+		this.castlingRights = castlingRights;
+		this.enPassant = enPassant;
+	}
+
+	private static int toSquare(int mailboxSquare) {
+		return mailboxSquare < FROM_MAILBOX.length ? FROM_MAILBOX[mailboxSquare] : -1;
+	}
+
+	@Override
+	public void unmakeMove() {
+		if (playedMovesCount == 0) {
+			throw new IllegalStateException("No moves to unmake");
+		}
+		if (MoveCounters.ENABLED) {
+			MoveCounters.unmade();
+		}
+		playedMovesCount--;
+		final int move = playedMoves[playedMovesCount];
+		final int state = playedStates[playedMovesCount];
+		setState(state & 0xF, (state >>> 4) & 0x7F);
+		halfMoveClock = state >>> 11;
+		final int from = FROM_MAILBOX[Move.getFrom(move)];
+		final int to = FROM_MAILBOX[Move.getTo(move)];
+		final Piece movingPiece = squares[to];
+		if (!movingPiece.isWhite()) {
+			fullMoveNumber--;
+		}
+		setWhiteToMove(movingPiece.isWhite());
+		final Piece capturedPiece = captures[playedMovesCount];
+		captures[playedMovesCount] = null;
+		clear(movingPiece, to);
+		set(movingPiece, from);
+		if (capturedPiece != null) {
+			set(capturedPiece, to);
+		}
+	}
+
+	@Override
+	public BitboardBoard fork() {
+		return new BitboardBoard(this);
+	}
+
+	@Override
+	public void appendFen(StringBuilder builder) {
+		Board.appendFen(builder, squares, false, whiteToMove, castlingRights, enPassant, halfMoveClock, fullMoveNumber);
+	}
+
+	@Override
+	public String toString() {
+		final StringBuilder b = new StringBuilder();
+		for (int rank = 7; rank >= 0; rank--) {
+			b.append((char)('1' + rank));
+			b.append(' ');
+			for (int file = 0; file < 8; file++) {
+				final Piece piece = squares[rank * 8 + file];
+				b.append(piece==null ? ' ' : piece.getCode());
+			}
+			b.append('\n');
+		}
+		b.append("  ");
+		for (char file = 'a'; file < 'h' ; file++) {
+			b.append(file);
+		}
+		return b.toString();
+	}
+}
@@ -0,0 +1,171 @@
+package com.fathzer.chess;
+
+import java.util.Arrays;
+
+/** Precomputed tables used by the {@link BitboardBoard}.
+ * <br>Squares are numbered from 0 (a1) to 63 (h8). Slider attacks are obtained with
+ * <a href="https://www.chessprogramming.org/Magic_Bitboards">magic bitboards</a>.
+ */
+final class Bitboards {
+    static final long FILE_A = 0x0101010101010101L;
+    static final long FILE_H = FILE_A << 7;
+    static final long RANK_3 = 0xFFL << 16;
+    static final long RANK_6 = 0xFFL << 40;
+
+    /** Mailbox (10x12) square index of each bitboard square. */
+    static final int[] TO_MAILBOX = new int[64];
+    /** Bitboard square index of each mailbox (10x12) square, -1 for squares outside the board. */
+    static final int[] FROM_MAILBOX = new int[120];
+
+    static final long[] KING_ATTACKS = new long[64];
+    static final long[] KNIGHT_ATTACKS = new long[64];
+
+    private static final int[][] KING_DIRECTIONS = {{0,1},{0,-1},{1,0},{-1,0},{1,1},{1,-1},{-1,1},{-1,-1}};
+    private static final int[][] KNIGHT_DIRECTIONS = {{1,2},{-1,2},{1,-2},{-1,-2},{2,1},{-2,1},{2,-1},{-2,-1}};
+    private static final int[][] ROOK_DIRECTIONS = {{0,1},{0,-1},{1,0},{-1,0}};
+    private static final int[][] BISHOP_DIRECTIONS = {{1,1},{1,-1},{-1,1},{-1,-1}};
+
+    private static final long[] ROOK_MAGIC_NUMBERS = {
+        0x0080008420144000L, 0x0140001000402000L, 0x8100200100081040L, 0x0580100181040800L,
+        0x0480040002480180L, 0x020002001004C108L, 0x06002600180104ACL, 0x0A00010200804024L,
+        0x1102800320814002L, 0xC000808040002000L, 0x0202802000821000L, 0x4210800800801000L,
+        0x8008808044004800L, 0x0006002418100200L, 0x0A00800200010080L, 0x0202000208804114L,
+        0x0280044002200041L, 0x3010004020004008L, 0x0010002008040022L, 0x8000210008100102L,
+        0x60A2020004110820L, 0x0222008080040002L, 0x00C0840002085110L, 0x02004A0000810454L,
+        0x0080401080008020L, 0x0040200040100048L, 0x0006041200208040L, 0x2010100100210008L,
+        0x5090080080800400L, 0x0022002200042950L, 0x011010040002E108L, 0x0000240200009041L,
+        0x0010400020800080L, 0x0040401000402000L, 0x0200200080801000L, 0x4140080080801003L,
+        0x0000800400800800L, 0x0800040080800200L, 0x1008080284002110L, 0x00A001008A001444L,
+        0x3040002040908000L, 0x1000422010024000L, 0x0040402001010010L, 0x8000100008008080L,
+        0x0084008008028004L, 0x0002000204008080L, 0x0000088210040001L, 0x0280C12080520004L,
+        0x028700800C402B00L, 0x0180200040008080L, 0x80A0008020100080L, 0x0001012010008900L,
+        0x4000040108008180L, 0x000C000402008080L, 0x004B0002002C0900L, 0x0020D42040811200L,
+        0x8844520121004082L, 0x1109150082204001L, 0x0302000820408012L, 0x2081002208041001L,
+        0x0002000804201002L, 0x5101000A28040029L, 0x0100080112489004L, 0x02000E4400288102L
+    };
+    private static final long[] BISHOP_MAGIC_NUMBERS = {
+        0x4014281015002108L, 0x0060020882029000L, 0x1104440082102120L, 0x4004410020042802L,
+        0x0011104020140040L, 0x0006074460005020L, 0x48208E0820040201L, 0x0202050401042240L,
+        0x400C401014208AA0L, 0x01C020064A424100L, 0x0012304408424000L, 0x21008808510C0004L,
+        0x0020141420000024L, 0x0004009004202009L, 0x4002008410080450L, 0x2000088280B82000L,
+        0x4040002410828602L, 0x08448030810A1410L, 0x1010032104008110L, 0x0850810802084244L,
+        0x0804000202112040L, 0x4901008610009420L, 0x31A0402411082800L, 0x8402000107620200L,
+        0x2210311041126208L, 0x0295218018020400L, 0x2092010408104400L, 0x0004040000401080L,
+        0x0020404004010041L, 0x80448A0109080618L, 0x008084110A0A0200L, 0x204C00C000A70440L,
+        0x3010106441114400L, 0x0C94115400181000L, 0x1821403000020400L, 0x2000020082480080L,
+        0x2080408020020200L, 0x0020080040068040L, 0x20089D8888190802L, 0x000F820044408408L,
+        0x2084022006089000L, 0x22510101A0401020L, 0x40000A0802009408L, 0x140483C010420200L,
+        0x0449200208811408L, 0x0002220042000100L, 0x00281000D0800201L, 0x044200A519010200L,
+        0x0300421050080002L, 0x00C0540401080004L, 0x4801010088040034L, 0x8400000210540051L,
+        0x400400404822002CL, 0x2080070448020000L, 0x1B2082100A00A000L, 0x4002021802108000L,
+        0xC000248800901000L, 0x0000024100B01100L, 0x1902103044022100L, 0x0000004404228810L,
+        0x0101000008210100L, 0x0025000820089082L, 0x0008091010008120L, 0x9120024202040010L
+    };
+
+    private static final Magic[] ROOK_MAGICS = new Magic[64];
+    private static final Magic[] BISHOP_MAGICS = new Magic[64];
+
+    /** The data needed to get the attacks of a slider on a square. */
+    private static class Magic {
+        private final long mask;
+        private final long magic;
+        private final int shift;
+        private final long[] attacks;
+
+        private Magic(long mask, long magic, int shift, long[] attacks) {
+            this.mask = mask;
+            this.magic = magic;
+            this.shift = shift;
+            this.attacks = attacks;
+        }
+
+        private long get(long occupancy) {
+            return attacks[(int)(((occupancy & mask) * magic) >>> shift)];
+        }
+    }
+
+    static {
+        Arrays.fill(FROM_MAILBOX, -1);
+        for (int square = 0; square < 64; square++) {
+            final int mailbox = 21 + (square / 8) * 10 + square % 8;
+            TO_MAILBOX[square] = mailbox;
+            FROM_MAILBOX[mailbox] = square;
+            KING_ATTACKS[square] = attacks(square, 0L, KING_DIRECTIONS, false);
+            KNIGHT_ATTACKS[square] = attacks(square, 0L, KNIGHT_DIRECTIONS, false);
+        }
+        for (int square = 0; square < 64; square++) {
+            ROOK_MAGICS[square] = buildMagic(square, ROOK_DIRECTIONS, ROOK_MAGIC_NUMBERS[square]);
+            BISHOP_MAGICS[square] = buildMagic(square, BISHOP_DIRECTIONS, BISHOP_MAGIC_NUMBERS[square]);
+        }
+    }
+
+    private Bitboards() {
+    }
+
+    static long rookAttacks(int square, long occupancy) {
+        return ROOK_MAGICS[square].get(occupancy);
+    }
+
+    static long bishopAttacks(int square, long occupancy) {
+        return BISHOP_MAGICS[square].get(occupancy);
+    }
+
+    /** Computes the squares reached from a square by following directions.
+     * @param square The origin square
+     * @param occupancy The occupied squares (a slider stops on the first occupied square)
+     * @param directions The (file, rank) directions
+     * @param slider true to follow each direction until a blocker or the edge of the board, false to make only one step
+     * @return a bitboard
+     */
+    private static long attacks(int square, long occupancy, int[][] directions, boolean slider) {
+        long result = 0;
+        for (int[] direction : directions) {
+            int file = square % 8 + direction[0];
+            int rank = square / 8 + direction[1];
+            while (file >= 0 && file < 8 && rank >= 0 && rank < 8) {
+                final long bit = 1L << (rank * 8 + file);
+                result |= bit;
+                if (!slider || (occupancy & bit) != 0) {
+                    break;
+                }
+                file += direction[0];
+                rank += direction[1];
+            }
+        }
+        return result;
+    }
+
+    /** Gets the squares whose occupancy matters for a slider, that is all the reachable squares except the last one of each direction. */
+    private static long relevantOccupancyMask(int square, int[][] directions) {
+        long result = 0;
+        for (int[] direction : directions) {
+            int file = square % 8 + direction[0];
+            int rank = square / 8 + direction[1];
+            while (file + direction[0] >= 0 && file + direction[0] < 8 && rank + direction[1] >= 0 && rank + direction[1] < 8) {
+                result |= 1L << (rank * 8 + file);
+                file += direction[0];
+                rank += direction[1];
+            }
+        }
+        return result;
+    }
+
+    private static Magic buildMagic(int square, int[][] directions, long magic) {
+        final long mask = relevantOccupancyMask(square, directions);
+        final int shift = 64 - Long.bitCount(mask);
+        final long[] table = new long[1 << (64 - shift)];
+        // Enumerate all the subsets of the mask (Carry-Rippler trick)
+        long occupancy = 0;
+        do {
+            final int index = (int)((occupancy * magic) >>> shift);
+            final long attacks = attacks(square, occupancy, directions, true);
+            // Attacks are never empty, so 0 means the entry is free
+            if (table[index] != 0 && table[index] != attacks) {
+                throw new IllegalStateException("Invalid magic number for square " + square);
+            }
+            table[index] = attacks;
+            occupancy = (occupancy - mask) & mask;
+        } while (occupancy != 0);
+        return new Magic(mask, magic, shift, table);
+    }
+}
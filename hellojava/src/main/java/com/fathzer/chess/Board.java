@@ -2,33 +2,186 @@ package com.fathzer.chess;
 
 import static com.fathzer.chess.Piece.BLOCKER;
 
-import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.List;
 
-/** A tiny chess board
- * WARNING: This is a very basic implementation. It is not a chess move generator.
+/** A tiny chess board based on a 10x12 mailbox.
+ * <br>By default, it uses a very basic move generator. It is not a chess move generator.
  * It lacks important features like king safety, en passant, castling, promotion.
+ * The same basic moves can be generated using lookup tables (see {@link Generator#LOOKUP}).
+ * <br>The board knows the side to move, but the basic generator can generate the moves of any side; when a move is played,
+ * the side to move becomes the opponent of the moved piece.
+ * <br>When created with the <i>legal</i> flag (or {@link Generator#LEGAL}), it uses a {@link LegalMoveGenerator} that generates strictly legal moves, including
+ * castling, en passant and promotions. Whatever the generator is, moves are played according to the chess rules.
+ * @see BitboardBoard
  */
-public class Board {
+public class Board implements ChessBoard {
+	/** The move generators of the board. */
+	public enum Generator {
+		/** The basic generator, that explores the board square by square from the moving piece. */
+		BASIC,
+		/** The basic moves generated with precomputed per square destination tables and byte coded squares. */
+		LOOKUP,
+		/** The strictly legal generator. */
+		LEGAL
+	}
+
+	/** The castling rights that remain when a piece moves from or to a square. */
+	private static final int[] CASTLING_MASKS = new int[120];
+	private static final Piece[] WHITE_PROMOTIONS = {null, Piece.WHITE_KNIGHT, Piece.WHITE_BISHOP, Piece.WHITE_ROOK, Piece.WHITE_QUEEN};
+	private static final Piece[] BLACK_PROMOTIONS = {null, Piece.BLACK_KNIGHT, Piece.BLACK_BISHOP, Piece.BLACK_ROOK, Piece.BLACK_QUEEN};
+	private static final Piece[] PIECES = Piece.values();
+	/** The number of ints of an undo stack entry. */
+	private static final int UNDO_ENTRY_SIZE = 2;
+	/** The number of plies the undo stack holds before growing, more than any Perft depth. */
+	private static final int DEFAULT_MAX_PLIES = 64;
+	/** The bits of a move in its primitive representation (see {@link Move}). */
+	private static final int MOVE_MASK = 0x7FFFF;
+	/** The position of the captured piece in the first int of an undo stack entry. */
+	private static final int CAPTURED_SHIFT = 19;
+	/** The maximum number of pieces of a color. */
+	private static final int MAX_PIECES = 16;
+
+	static {
+		Arrays.fill(CASTLING_MASKS, WHITE_KING_SIDE | WHITE_QUEEN_SIDE | BLACK_KING_SIDE | BLACK_QUEEN_SIDE);
+		CASTLING_MASKS[getSquare("e1")] &= ~(WHITE_KING_SIDE | WHITE_QUEEN_SIDE);
+		CASTLING_MASKS[getSquare("h1")] &= ~WHITE_KING_SIDE;
+		CASTLING_MASKS[getSquare("a1")] &= ~WHITE_QUEEN_SIDE;
+		CASTLING_MASKS[getSquare("e8")] &= ~(BLACK_KING_SIDE | BLACK_QUEEN_SIDE);
+		CASTLING_MASKS[getSquare("h8")] &= ~BLACK_KING_SIDE;
+		CASTLING_MASKS[getSquare("a8")] &= ~BLACK_QUEEN_SIDE;
+	}
+
     private final Piece[] pieces;
-	private final List<Move> playedMoves;
-	private final List<Piece> captures;
+	/** The byte codes of the pieces (see {@link LookupMoveGenerators#getCode(Piece)}), always in sync with {@link #pieces}. */
+	private final byte[] codes;
+	/** The squares of the pieces, white ones from 0, black ones from {@link #MAX_PIECES}, in no particular order. */
+	private final int[] pieceSquares;
+	/** The number of white and black pieces in {@link #pieceSquares}. */
+	private final int[] piecesCount;
+	/** The index in {@link #pieceSquares} of the piece on each square (meaningless for empty squares). */
+	private final int[] pieceIndexes;
+	/** The undo stack, it has {@link #UNDO_ENTRY_SIZE} ints per played move:
+	 * <ul>
+	 * <li>The move, and the ordinal plus one of the captured piece (0 if none) shifted by {@link #CAPTURED_SHIFT}.</li>
+	 * <li>The castling rights, en passant square and half move clock before the move (see {@link #getState()}).</li>
+	 * </ul>
+	 */
+	private int[] undoStack;
+	private int playedMovesCount;
+	private long hashKey;
+	private int castlingRights;
+	private int enPassant;
+	private boolean whiteToMove = true;
+	private int halfMoveClock;
+	private int fullMoveNumber = 1;
+	private int whiteKingSquare = -1;
+	private int blackKingSquare = -1;
+	private final boolean legal;
+	private final boolean lookup;
+	private LegalMoveGenerator legalMoveGenerator;
 
 	public Board(Board copy) {
 		this.pieces = copy.pieces.clone();
-		this.playedMoves = new ArrayList<>(copy.playedMoves);
-		this.captures = new ArrayList<>(copy.captures);
+		this.codes = copy.codes.clone();
+		this.pieceSquares = copy.pieceSquares.clone();
+		this.piecesCount = copy.piecesCount.clone();
+		this.pieceIndexes = copy.pieceIndexes.clone();
+		this.hashKey = copy.hashKey;
+		this.undoStack = copy.undoStack.clone();
+		this.playedMovesCount = copy.playedMovesCount;
+		this.castlingRights = copy.castlingRights;
+		this.enPassant = copy.enPassant;
+		this.whiteToMove = copy.whiteToMove;
+		this.halfMoveClock = copy.halfMoveClock;
+		this.fullMoveNumber = copy.fullMoveNumber;
+		this.whiteKingSquare = copy.whiteKingSquare;
+		this.blackKingSquare = copy.blackKingSquare;
+		this.legal = copy.legal;
+		this.lookup = copy.lookup;
 	}
 
+	/** Creates a board that uses the basic move generator.
+	 * @param fen The position in FEN format. Only the pieces placement is required, the missing fields default to
+	 * <code>w - - 0 1</code>.
+	 */
     public Board(String fen) {
-		this.playedMoves = new ArrayList<>();
-		this.captures = new ArrayList<>();
+		this(fen, false);
+	}
+
+	/** Creates a board.
+	 * @param fen The position in FEN format. Only the pieces placement is required, the missing fields default to
+	 * <code>w - - 0 1</code>.
+	 * @param legal true to generate strictly legal moves, false to use the basic move generator
+	 */
+	public Board(String fen, boolean legal) {
+		this(fen, legal ? Generator.LEGAL : Generator.BASIC);
+	}
+
+	/** Creates a board.
+	 * @param fen The position in FEN format. Only the pieces placement is required, the missing fields default to
+	 * <code>w - - 0 1</code>.
+	 * @param generator The move generator used by {@link #getMoves(MoveList, boolean)}
+	 */
+	public Board(String fen, Generator generator) {
+		this.legal = generator == Generator.LEGAL;
+		this.lookup = generator == Generator.LOOKUP;
+		this.undoStack = new int[DEFAULT_MAX_PLIES * UNDO_ENTRY_SIZE];
         this.pieces = new Piece[120];
+        this.codes = new byte[120];
+        this.pieceSquares = new int[2 * MAX_PIECES];
+        this.piecesCount = new int[2];
+        this.pieceIndexes = new int[120];
         fillBlockers();
+		final String[] fields = fen.trim().split("\\s+");
+		if (fields.length > 6) {
+			throw new IllegalArgumentException("Invalid FEN: too many fields");
+		}
+		parsePlacement(fields[0]);
+		if (fields.length > 1) {
+			if (!"w".equals(fields[1]) && !"b".equals(fields[1])) {
+				throw new IllegalArgumentException("Invalid FEN: unknown side to move " + fields[1]);
+			}
+			whiteToMove = "w".equals(fields[1]);
+		}
+		if (whiteToMove) {
+			hashKey ^= Zobrist.WHITE_TO_MOVE;
+		}
+		if (fields.length > 2) {
+			parseCastlingRights(fields[2]);
+		}
+		if (fields.length > 3 && !"-".equals(fields[3])) {
+			final int square = getSquare(fields[3]);
+			final int rank = getRank(square);
+			if (rank != 2 && rank != 5) {
+				throw new IllegalArgumentException("Invalid FEN: invalid en passant square " + fields[3]);
+			}
+			enPassant = square;
+			hashKey ^= Zobrist.getEnPassant(enPassant);
+		}
+		if (fields.length > 4) {
+			halfMoveClock = parseCounter(fields[4], 0);
+		}
+		if (fields.length > 5) {
+			fullMoveNumber = parseCounter(fields[5], 1);
+		}
+	}
+
+	private static int parseCounter(String field, int min) {
+		try {
+			final int value = Integer.parseInt(field);
+			if (value >= min) {
+				return value;
+			}
+		} catch (NumberFormatException e) {
+			// Reported below
+		}
+		throw new IllegalArgumentException("Invalid FEN: invalid move counter " + field);
+	}
+
+	private void parsePlacement(String placement) {
 		int rank = 7;
 		int file = 0;
-		for (char c : fen.toCharArray()) {
+		for (char c : placement.toCharArray()) {
 			if (Character.isDigit(c)) {
 				final int count = Character.getNumericValue(c);
 				if (count>8-file) {
@@ -49,7 +202,18 @@ public class Board {
 				if (piece == null || piece==BLOCKER) {
 					throw new IllegalArgumentException("Invalid FEN: unknown piece " + c);
 				}
-				this.pieces[21+rank*10+file] = piece;
+				final int square = 21+rank*10+file;
+				if (piecesCount[piece.isWhite() ? 0 : 1] == MAX_PIECES) {
+					throw new IllegalArgumentException("Invalid FEN: too many " + (piece.isWhite() ? "white" : "black") + " pieces");
+				}
+				setPiece(square, piece);
+				addToPieceList(square, piece.isWhite());
+				this.hashKey ^= Zobrist.get(piece, square);
+				if (piece == Piece.WHITE_KING) {
+					whiteKingSquare = square;
+				} else if (piece == Piece.BLACK_KING) {
+					blackKingSquare = square;
+				}
 				file++;
 			}
 		}
@@ -60,16 +224,58 @@ public class Board {
 			throw new IllegalArgumentException("Invalid FEN: missing ranks");
 		}
     }
+
+	private void parseCastlingRights(String field) {
+		if (!"-".equals(field)) {
+			for (char c : field.toCharArray()) {
+				final int right = "KQkq".indexOf(c);
+				if (right < 0) {
+					throw new IllegalArgumentException("Invalid FEN: invalid castling right " + c);
+				}
+				castlingRights |= 1 << right;
+			}
+		}
+		hashKey ^= Zobrist.getCastling(castlingRights);
+	}
     
     private void fillBlockers() {
     	Arrays.fill(pieces, 0, 20, BLOCKER);
     	Arrays.fill(pieces, 100, 120, BLOCKER);
+    	Arrays.fill(codes, 0, 20, LookupMoveGenerators.OFF_BOARD);
+    	Arrays.fill(codes, 100, 120, LookupMoveGenerators.OFF_BOARD);
     	for (int i=2; i<10; i++) {
 			final int startRank = i*10;
-    		pieces[startRank] = BLOCKER;
-    		pieces[startRank+9] = BLOCKER;
+    		setPiece(startRank, BLOCKER);
+    		setPiece(startRank+9, BLOCKER);
     	}
     }
+
+	private void setPiece(int square, Piece piece) {
+		pieces[square] = piece;
+		codes[square] = LookupMoveGenerators.getCode(piece);
+	}
+
+	private void addToPieceList(int square, boolean white) {
+		final int color = white ? 0 : 1;
+		final int index = color * MAX_PIECES + piecesCount[color]++;
+		pieceSquares[index] = square;
+		pieceIndexes[square] = index;
+	}
+
+	/** Removes a piece from the piece list, the last piece of its color takes its place. */
+	private void removeFromPieceList(int square, boolean white) {
+		final int color = white ? 0 : 1;
+		final int last = pieceSquares[color * MAX_PIECES + --piecesCount[color]];
+		final int index = pieceIndexes[square];
+		pieceSquares[index] = last;
+		pieceIndexes[last] = index;
+	}
+
+	private void movePieceInList(int from, int to) {
+		final int index = pieceIndexes[from];
+		pieceSquares[index] = to;
+		pieceIndexes[to] = index;
+	}
 	
 	static int getSquare(String uciSquare) {
 		if (uciSquare.length() != 2) {
@@ -92,6 +298,7 @@ public class Board {
 		return (char)(square%10 + 'a') + "" +(square/10 + 1);
 	}
 
+	@Override
 	public Piece getPiece(String uciSquare) {
 		return pieces[getSquare(uciSquare)];
 	}
@@ -100,23 +307,153 @@ public class Board {
 		return pieces[square];
 	}
 
-	public List<Move> getMoves(boolean white) {
-		final List<Move> moves = new ArrayList<>(40);
-		for (int square = 20; square < 100; square++) {
-			Piece piece = getPiece(square);
-			if (piece != null && piece!=BLOCKER && piece.isWhite()==white) {
-				MoveGenerators.get(piece).build(moves, this, square);
+	/** Gets the byte coded content of the squares.
+	 * <br>WARNING: The returned array is the internal state of the board, it should not be modified.
+	 * @return An array indexed by mailbox square
+	 */
+	byte[] getCodes() {
+		return codes;
+	}
+
+	/** Gets the number of pieces of a color.
+	 * @param white true for white pieces, false for black ones
+	 * @return a number between 0 and 16
+	 */
+	int getPiecesCount(boolean white) {
+		return piecesCount[white ? 0 : 1];
+	}
+
+	/** Gets the square of a piece.
+	 * @param white true for white pieces, false for black ones
+	 * @param index the index of the piece, between 0 and {@link #getPiecesCount(boolean)} excluded
+	 * @return a mailbox square index
+	 */
+	int getPieceSquare(boolean white, int index) {
+		return pieceSquares[(white ? 0 : MAX_PIECES) + index];
+	}
+
+	@Override
+	public long getHashKey() {
+		return hashKey;
+	}
+
+	@Override
+	public boolean isWhiteToMove() {
+		return whiteToMove;
+	}
+
+	@Override
+	public int getCastlingRights() {
+		return castlingRights;
+	}
+
+	@Override
+	public int getEnPassant() {
+		return enPassant;
+	}
+
+	@Override
+	public int getHalfMoveClock() {
+		return halfMoveClock;
+	}
+
+	@Override
+	public int getFullMoveNumber() {
+		return fullMoveNumber;
+	}
+
+	/** Gets the square of a king.
+	 * @param white true for the white king, false for the black one
+	 * @return a mailbox square index, -1 if there's no such king on the board
+	 */
+	int getKingSquare(boolean white) {
+		return white ? whiteKingSquare : blackKingSquare;
+	}
+
+	/** Tests whether a king is in check.
+	 * @param white true to test the white king, false to test the black one
+	 * @return true if the king is attacked, false if it is not, or if there's no such king on the board
+	 */
+	public boolean isCheck(boolean white) {
+		final int king = getKingSquare(white);
+		return king >= 0 && getLegalMoveGenerator().isAttacked(king, !white);
+	}
+
+	private LegalMoveGenerator getLegalMoveGenerator() {
+		if (legalMoveGenerator == null) {
+			legalMoveGenerator = new LegalMoveGenerator(this, pieces);
+		}
+		return legalMoveGenerator;
+	}
+
+	/** {@inheritDoc}
+	 * <br>If this board was created with the <i>legal</i> flag, the moves are strictly legal. Otherwise, they are generated by
+	 * the basic generator (driven by lookup tables with {@link Generator#LOOKUP}).
+	 */
+	@Override
+	public void getMoves(MoveList moves, boolean white) {
+		if (legal) {
+			getLegalMoveGenerator().generate(moves, white, true);
+			return;
+		}
+		moves.clear();
+		final int start = white ? 0 : MAX_PIECES;
+		final int end = start + piecesCount[white ? 0 : 1];
+		for (int i = start; i < end; i++) {
+			final int square = pieceSquares[i];
+			final Piece piece = pieces[square];
+			final int size = moves.size();
+			getMoveBuilder(piece).build(moves, this, square);
+			if (MoveCounters.ENABLED) {
+				MoveCounters.generated(piece, moves.size() - size);
+			}
+		}
+	}
+
+	@Override
+	public int countMoves(boolean white) {
+		if (legal) {
+			return getLegalMoveGenerator().count(white);
+		}
+		int count = 0;
+		final int start = white ? 0 : MAX_PIECES;
+		final int end = start + piecesCount[white ? 0 : 1];
+		for (int i = start; i < end; i++) {
+			final int square = pieceSquares[i];
+			final Piece piece = pieces[square];
+			final int pieceCount = getMoveBuilder(piece).count(this, square);
+			if (MoveCounters.ENABLED) {
+				MoveCounters.generated(piece, pieceCount);
 			}
+			count += pieceCount;
 		}
-		return moves;
+		return count;
+	}
+
+	private MoveBuilder getMoveBuilder(Piece piece) {
+		return lookup ? LookupMoveGenerators.get(piece) : MoveGenerators.get(piece);
+	}
+
+	/** Gets the pseudo legal moves of a player, including castling, en passant and promotions.
+	 * <br>Pseudo legal moves may leave the king in check (but castling never crosses an attacked square).
+	 * @param moves The list to fill with the moves (it is cleared before being filled)
+	 * @param white true to get the white moves, false to get the black ones
+	 */
+	public void getPseudoLegalMoves(MoveList moves, boolean white) {
+		getLegalMoveGenerator().generate(moves, white, false);
 	}
 
 	public void makeMove(Move move) {
 		if (move==null) {
 			throw new IllegalArgumentException("Move cannot be null");
-		}	    
-	    int from = move.from();
-	    int to = move.to();
+		}
+		makeMove(move.toInt());
+	}
+
+	@Override
+	public void makeMove(int move) {
+	    int from = Move.getFrom(move);
+	    int to = Move.getTo(move);
 		if (from<20 || from>119 || to<20 || to>119) {
 			throw new IllegalArgumentException("Illegal move");
 		}
@@ -125,32 +462,239 @@ public class Board {
 		if (movingPiece==null || movingPiece==BLOCKER || (capturedPiece!=null && !capturedPiece.canBeCapturedBy(((Piece)movingPiece).isWhite()))) {
 			throw new IllegalArgumentException("Illegal move");
 		}
-	    // Store the captured piece (if any)
-	    captures.add(pieces[to]);
+		final boolean white = movingPiece.isWhite();
+		final int promotion = Move.getPromotion(move);
+		if (promotion != 0 && movingPiece != (white ? Piece.WHITE_PAWN : Piece.BLACK_PAWN)) {
+			throw new IllegalArgumentException("Illegal move");
+		}
+		if (MoveCounters.ENABLED) {
+			MoveCounters.made();
+		}
+	    // Record the move, the captured piece and the state it can't restore by itself
+	    final int index = playedMovesCount++ * UNDO_ENTRY_SIZE;
+	    if (index == undoStack.length) {
+	    	undoStack = Arrays.copyOf(undoStack, index * 2);
+	    }
+	    undoStack[index] = (move & MOVE_MASK) | (capturedPiece == null ? 0 : (capturedPiece.ordinal() + 1) << CAPTURED_SHIFT);
+	    undoStack[index + 1] = getState();
+
+	    if (capturedPiece == null && to == enPassant && isPawn(movingPiece) && (to - from) % 10 != 0) {
+	    	// En passant, the captured pawn is not on the destination square
+	    	final int capturedSquare = white ? to - 10 : to + 10;
+	    	final Piece capturedPawn = pieces[capturedSquare];
+	    	setPiece(capturedSquare, null);
+	    	removeFromPieceList(capturedSquare, !white);
+	    	hashKey ^= Zobrist.get(capturedPawn, capturedSquare);
+	    }
 	    
 	    // Move the piece
-	    pieces[to] = pieces[from];
-	    pieces[from] = null; // Empty the source square
-	    
-	    // Record the move
-	    playedMoves.add(move);
+	    if (capturedPiece != null) {
+	    	removeFromPieceList(to, !white);
+	    }
+	    setPiece(to, movingPiece);
+	    setPiece(from, null); // Empty the source square
+	    movePieceInList(from, to);
+	    updateHashKey(movingPiece, from, to, capturedPiece);
+	    if (promotion != 0) {
+	    	final Piece promoted = white ? WHITE_PROMOTIONS[promotion] : BLACK_PROMOTIONS[promotion];
+	    	setPiece(to, promoted);
+	    	hashKey ^= Zobrist.get(movingPiece, to) ^ Zobrist.get(promoted, to);
+	    } else if (movingPiece == Piece.WHITE_KING || movingPiece == Piece.BLACK_KING) {
+	    	if (white) {
+	    		whiteKingSquare = to;
+	    	} else {
+	    		blackKingSquare = to;
+	    	}
+	    	if (to - from == 2 || from - to == 2) {
+	    		// Castling, move the rook
+	    		moveCastlingRook(to > from ? from + 3 : from - 4, to > from ? from + 1 : from - 1);
+	    	}
+	    }
+	    setState(castlingRights & CASTLING_MASKS[from] & CASTLING_MASKS[to], isPawn(movingPiece) && (to - from == 20 || from - to == 20) ? (from + to) / 2 : 0);
+	    halfMoveClock = capturedPiece == null && !isPawn(movingPiece) ? halfMoveClock + 1 : 0;
+	    if (!white) {
+	    	fullMoveNumber++;
+	    }
+	    setWhiteToMove(!white);
+	}
+
+	private void setWhiteToMove(boolean white) {
+		if (white != whiteToMove) {
+			whiteToMove = white;
+			hashKey ^= Zobrist.WHITE_TO_MOVE;
+		}
+	}
+
+	/** Gets the castling rights that remain when a piece moves from or to a square.
+	 * @param square a mailbox square index
+	 * @return a combination of castling rights bits
+	 */
+	static int getCastlingMask(int square) {
+		return CASTLING_MASKS[square];
+	}
+
+	private static boolean isPawn(Piece piece) {
+		return piece == Piece.WHITE_PAWN || piece == Piece.BLACK_PAWN;
 	}
 
+	private void moveCastlingRook(int from, int to) {
+		final Piece rook = pieces[from];
+		setPiece(to, rook);
+		setPiece(from, null);
+		movePieceInList(from, to);
+		hashKey ^= Zobrist.get(rook, from) ^ Zobrist.get(rook, to);
+	}
+
+	/** Gets the castling rights, the en passant square and the half move clock packed in an int. */
+	private int getState() {
+		return castlingRights | (enPassant << 4) | (halfMoveClock << 11);
+	}
+
+	private void setState(int castlingRights, int enPassant) {
+		hashKey ^= Zobrist.getCastling(this.castlingRights) ^ Zobrist.getCastling(castlingRights) ^ Zobrist.getEnPassant(this.enPassant) ^ Zobrist.getEnPassant(enPassant);
+		this.castlingRights = castlingRights;
+		this.enPassant = enPassant;
+	}
+
+	@Override
 	public void unmakeMove() {
-	    if (playedMoves.isEmpty()) {
+	    if (playedMovesCount == 0) {
 	        throw new IllegalStateException("No moves to unmake");
 	    }
+	    if (MoveCounters.ENABLED) {
+	    	MoveCounters.unmade();
+	    }
 	    
 	    // Get the last move and remove it from history
-	    Move lastMove = playedMoves.remove(playedMoves.size() - 1);
-	    int from = lastMove.from();
-	    int to = lastMove.to();
+	    final int index = --playedMovesCount * UNDO_ENTRY_SIZE;
+	    final int entry = undoStack[index];
+	    final int lastMove = entry & MOVE_MASK;
+	    int from = Move.getFrom(lastMove);
+	    int to = Move.getTo(lastMove);
+	    final int state = undoStack[index + 1];
+	    setState(state & 0xF, (state >>> 4) & 0x7F);
+	    halfMoveClock = state >>> 11;
 	    
 	    // Restore the moved piece
-	    pieces[from] = pieces[to];
+	    Piece movingPiece = pieces[to];
+	    if (!movingPiece.isWhite()) {
+	    	fullMoveNumber--;
+	    }
+	    setWhiteToMove(movingPiece.isWhite());
+	    if (Move.getPromotion(lastMove) != 0) {
+	    	final Piece pawn = movingPiece.isWhite() ? Piece.WHITE_PAWN : Piece.BLACK_PAWN;
+	    	hashKey ^= Zobrist.get(movingPiece, to) ^ Zobrist.get(pawn, to);
+	    	movingPiece = pawn;
+	    } else if (movingPiece == Piece.WHITE_KING || movingPiece == Piece.BLACK_KING) {
+	    	if (movingPiece.isWhite()) {
+	    		whiteKingSquare = from;
+	    	} else {
+	    		blackKingSquare = from;
+	    	}
+	    	if (to - from == 2 || from - to == 2) {
+	    		moveCastlingRook(to > from ? from + 1 : from - 1, to > from ? from + 3 : from - 4);
+	    	}
+	    }
+	    setPiece(from, movingPiece);
+	    movePieceInList(to, from);
 	    
 	    // Restore the captured piece (if any)
-	    pieces[to] = captures.remove(captures.size() - 1);
+	    final int captured = entry >>> CAPTURED_SHIFT;
+	    final Piece capturedPiece = captured == 0 ? null : PIECES[captured - 1];
+	    setPiece(to, capturedPiece);
+	    if (capturedPiece != null) {
+	    	addToPieceList(to, capturedPiece.isWhite());
+	    }
+	    updateHashKey(movingPiece, from, to, capturedPiece);
+	    if (capturedPiece == null && to == enPassant && isPawn(movingPiece) && (to - from) % 10 != 0) {
+	    	final int capturedSquare = movingPiece.isWhite() ? to - 10 : to + 10;
+	    	final Piece capturedPawn = movingPiece.isWhite() ? Piece.BLACK_PAWN : Piece.WHITE_PAWN;
+	    	setPiece(capturedSquare, capturedPawn);
+	    	addToPieceList(capturedSquare, !movingPiece.isWhite());
+	    	hashKey ^= Zobrist.get(capturedPawn, capturedSquare);
+	    }
+	}
+
+	/** Updates the hash key when a move is made or unmade (both operations are the same xor).
+	 */
+	private void updateHashKey(Piece movingPiece, int from, int to, Piece capturedPiece) {
+	    hashKey ^= Zobrist.get(movingPiece, from) ^ Zobrist.get(movingPiece, to);
+	    if (capturedPiece != null) {
+	        hashKey ^= Zobrist.get(capturedPiece, to);
+	    }
+	}
+
+	@Override
+	public Board fork() {
+		return new Board(this);
+	}
+
+	@Override
+	public void appendFen(StringBuilder builder) {
+		appendFen(builder, pieces, true, whiteToMove, castlingRights, enPassant, halfMoveClock, fullMoveNumber);
+	}
+
+	/** Appends a position in FEN format to a builder, without allocating anything if the builder is large enough.
+	 * @param builder The builder
+	 * @param pieces The pieces, indexed by mailbox square or by 0 (a1) to 63 (h8) square index
+	 * @param mailbox true if <i>pieces</i> is indexed by mailbox squares
+	 * @param white true if white is to move
+	 * @param castlingRights The castling rights
+	 * @param enPassant The mailbox index of the en passant square, 0 if there's none
+	 * @param halfMoveClock The half move clock
+	 * @param fullMoveNumber The full move number
+	 */
+	static void appendFen(StringBuilder builder, Piece[] pieces, boolean mailbox, boolean white, int castlingRights, int enPassant, int halfMoveClock, int fullMoveNumber) {
+		for (int rank = 7; rank >= 0; rank--) {
+			int empty = 0;
+			for (int file = 0; file < 8; file++) {
+				final Piece piece = pieces[mailbox ? 21 + rank * 10 + file : rank * 8 + file];
+				if (piece == null) {
+					empty++;
+				} else {
+					if (empty != 0) {
+						builder.append((char) ('0' + empty));
+						empty = 0;
+					}
+					builder.append(piece.getCode());
+				}
+			}
+			if (empty != 0) {
+				builder.append((char) ('0' + empty));
+			}
+			if (rank != 0) {
+				builder.append('/');
+			}
+		}
+		appendFenState(builder, white, castlingRights, enPassant, halfMoveClock, fullMoveNumber);
+	}
+
+	/** Appends the fields that follow the pieces placement of a position in FEN format to a builder.
+	 * @param builder The builder
+	 * @param white true if white is to move
+	 * @param castlingRights The castling rights
+	 * @param enPassant The mailbox index of the en passant square, 0 if there's none
+	 * @param halfMoveClock The half move clock
+	 * @param fullMoveNumber The full move number
+	 */
+	static void appendFenState(StringBuilder builder, boolean white, int castlingRights, int enPassant, int halfMoveClock, int fullMoveNumber) {
+		builder.append(white ? " w " : " b ");
+		if (castlingRights == 0) {
+			builder.append('-');
+		} else {
+			for (int right = 0; right < 4; right++) {
+				if ((castlingRights & (1 << right)) != 0) {
+					builder.append("KQkq".charAt(right));
+				}
+			}
+		}
+		builder.append(' ');
+		if (enPassant == 0) {
+			builder.append('-');
+		} else {
+			builder.append((char) ('a' + (enPassant - 21) % 10)).append((char) ('1' + getRank(enPassant)));
+		}
+		builder.append(' ').append(halfMoveClock).append(' ').append(fullMoveNumber);
 	}
 
 	@Override
@@ -0,0 +1,163 @@
+package com.fathzer.chess;
+
+import java.util.List;
+import java.util.function.Function;
+
+/** A chess board on which moves can be generated, played and unplayed.
+ * <br>Moves are expressed in their primitive representation (see {@link Move}), with squares numbered as in the 10x12 {@link Board}.
+ * So, all implementations that use the basic move generator generate exactly the same moves for the same position.
+ */
+public interface ChessBoard {
+	/** The white king side castling right. */
+	int WHITE_KING_SIDE = 1;
+	/** The white queen side castling right. */
+	int WHITE_QUEEN_SIDE = 2;
+	/** The black king side castling right. */
+	int BLACK_KING_SIDE = 4;
+	/** The black queen side castling right. */
+	int BLACK_QUEEN_SIDE = 8;
+	/** The maximum length of a FEN returned by {@link #toFen()} when move counters have at most 4 digits. */
+	int MAX_FEN_LENGTH = 91;
+
+	/** The available board implementations. */
+	enum Type {
+		/** The 10x12 mailbox {@link Board}. */
+		MAILBOX(Board::new),
+		/** The {@link BitboardBoard}. */
+		BITBOARD(BitboardBoard::new),
+		/** The 10x12 mailbox {@link Board} with its strictly legal move generator. */
+		LEGAL(fen -> new Board(fen, true)),
+		/** The 10x12 mailbox {@link Board} with its basic move generator driven by lookup tables. */
+		LOOKUP(fen -> new Board(fen, Board.Generator.LOOKUP)),
+		/** The {@link CopyMakeBoard}, whose position is a small byte array. */
+		COPY_MAKE(CopyMakeBoard::new);
+
+		private final Function<String, ChessBoard> factory;
+
+		private Type(Function<String, ChessBoard> factory) {
+			this.factory = factory;
+		}
+
+		/** Creates a board of this type.
+		 * @param fen The position in FEN format
+		 * @return a new board
+		 */
+		public ChessBoard create(String fen) {
+			return factory.apply(fen);
+		}
+	}
+
+	/** Gets the piece on a square.
+	 * @param uciSquare The square in UCI format (for instance e2)
+	 * @return The piece or null if the square is empty
+	 */
+	Piece getPiece(String uciSquare);
+
+	/** Tests whether white is to move.
+	 * @return true if white is to move, false if black is
+	 */
+	boolean isWhiteToMove();
+
+	/** Gets the castling rights.
+	 * @return a combination of {@link #WHITE_KING_SIDE}, {@link #WHITE_QUEEN_SIDE}, {@link #BLACK_KING_SIDE} and {@link #BLACK_QUEEN_SIDE} bits
+	 */
+	int getCastlingRights();
+
+	/** Gets the en passant square, that is the square a pawn passed over during its two squares move just played.
+	 * @return a mailbox square index, 0 if the last move was not a pawn two squares move
+	 */
+	int getEnPassant();
+
+	/** Gets the number of half moves since the last capture or pawn move.
+	 * @return a positive or null int
+	 */
+	int getHalfMoveClock();
+
+	/** Gets the number of the full move, it starts at 1 and is incremented after each black move.
+	 * @return a positive int
+	 */
+	int getFullMoveNumber();
+
+	/** Gets the <a href="https://www.chessprogramming.org/Zobrist_Hashing">Zobrist</a> hash key of the position, that is the
+	 * pieces placement, the side to move, the castling rights and the en passant square (the move counters are not part of the key).
+	 * <br>All implementations return the same key for the same position.
+	 * @return a long
+	 */
+	long getHashKey();
+
+	/** Gets the position in FEN format.
+	 * @return the six fields FEN of the position
+	 */
+	default String toFen() {
+		final StringBuilder builder = new StringBuilder(MAX_FEN_LENGTH);
+		appendFen(builder);
+		return builder.toString();
+	}
+
+	/** Appends the position in FEN format to a builder.
+	 * <br>This method allocates nothing if the builder has enough capacity (see {@link #MAX_FEN_LENGTH}).
+	 * @param builder The builder
+	 */
+	void appendFen(StringBuilder builder);
+
+	/** Gets the moves of the side to move.
+	 * @return a new list of moves
+	 */
+	default List<Move> getMoves() {
+		return getMoves(isWhiteToMove());
+	}
+
+	/** Gets the moves of a player.
+	 * @param white true to get the white moves, false to get the black ones
+	 * @return a new list of moves
+	 */
+	default List<Move> getMoves(boolean white) {
+		final MoveList moves = new MoveList();
+		getMoves(moves, white);
+		return moves.toList();
+	}
+
+	/** Gets the moves of a player without allocating any object.
+	 * @param moves The list to fill with the moves (it is cleared before being filled)
+	 * @param white true to get the white moves, false to get the black ones
+	 */
+	void getMoves(MoveList moves, boolean white);
+
+	/** Gets the moves of the side to move without allocating any object.
+	 * @param moves The list to fill with the moves (it is cleared before being filled)
+	 */
+	default void getMoves(MoveList moves) {
+		getMoves(moves, isWhiteToMove());
+	}
+
+	/** Counts the moves of a player without generating them.
+	 * <br>This is typically used at the last ply of a Perft, where the moves do not need to be played.
+	 * @param white true to count the white moves, false to count the black ones
+	 * @return the number of moves {@link #getMoves(MoveList, boolean)} would generate
+	 */
+	int countMoves(boolean white);
+
+	/** Counts the moves of the side to move without generating them.
+	 * @return the number of moves {@link #getMoves(MoveList)} would generate
+	 */
+	default int countMoves() {
+		return countMoves(isWhiteToMove());
+	}
+
+	/** Makes a move.
+	 * <br>After the move, the side to move is the opponent of the moved piece.
+	 * @param move The move in its primitive representation (see {@link Move})
+	 * @throws IllegalArgumentException if the move can't be played
+	 */
+	void makeMove(int move);
+
+	/** Unmakes the last move played.
+	 * @throws IllegalStateException if there's no move to unmake
+	 */
+	void unmakeMove();
+
+	/** Creates an independent copy of this board.
+	 * @return a new board, in the same state as this one
+	 */
+	ChessBoard fork();
+}
@@ -0,0 +1,399 @@
+package com.fathzer.chess;
+
+import java.util.Arrays;
+
+/** A tiny chess board designed for <a href="https://www.chessprogramming.org/Copy-Make">copy-make</a>.
+ * <br>Its whole position is a small fixed size byte array: one byte per 10x12 mailbox square, followed by the castling rights,
+ * the en passant square, the side to move and the move counters. Its only other state is the hash key.
+ * <br>So, copying a board is one {@link System#arraycopy(Object, int, Object, int, int) arraycopy}, whatever the number of
+ * played moves is: {@link #fork()} does not copy the played moves, and {@link #copyFrom(CopyMakeBoard)} copies a position
+ * without allocating anything.
+ * <br>Moves are unmade without any undo logic: {@link #makeMove(int)} pushes a copy of the position on a stack, that is
+ * allocated with the first move and reused after, and {@link #unmakeMove()} pops it.
+ * <br>It implements the same (simplified) rules as the basic generator of {@link Board} and generates exactly the same moves.
+ * Like {@link Board}, moves are played according to the chess rules.
+ */
+public class CopyMakeBoard implements ChessBoard {
+	private static final int CASTLING = 120;
+	private static final int EN_PASSANT = 121;
+	private static final int WHITE_TO_MOVE = 122;
+	private static final int HALF_MOVE_CLOCK = 123;
+	private static final int FULL_MOVE_NUMBER = 125;
+	/** The size of a position, in bytes. */
+	static final int SIZE = 127;
+	private static final int INITIAL_PLIES = 16;
+	private static final int MAX_COUNTER = 0xFFFF;
+
+	private static final Piece[] PIECES = Piece.values();
+	/** The code of an empty square, the other codes are the ordinal of the piece plus one. */
+	private static final byte EMPTY = 0;
+	private static final int BLOCKER = code(Piece.BLOCKER);
+	private static final int WHITE_PAWN = code(Piece.WHITE_PAWN);
+	private static final int WHITE_KING = code(Piece.WHITE_KING);
+	private static final int BLACK_PAWN = code(Piece.BLACK_PAWN);
+	private static final int BLACK_KING = code(Piece.BLACK_KING);
+
+	private static final int[] ALL_DIRECTIONS = {10, -10, 1, -1, 11, 9, -9, -11};
+	private static final int[] ROOK_DIRECTIONS = {10, -10, 1, -1};
+	private static final int[] BISHOP_DIRECTIONS = {11, 9, -9, -11};
+	private static final int[] KNIGHT_DELTAS = {21, 19, -19, -21, 12, 8, -8, -12};
+	/** The move deltas of pieces, indexed by piece code (pawns are generated separately). */
+	private static final int[][] DELTAS = new int[PIECES.length + 1][];
+	/** Whether pieces slide along their deltas, indexed by piece code. */
+	private static final boolean[] SLIDERS = new boolean[PIECES.length + 1];
+
+	static {
+		for (boolean white : new boolean[] {true, false}) {
+			setDeltas(white ? Piece.WHITE_KNIGHT : Piece.BLACK_KNIGHT, KNIGHT_DELTAS, false);
+			setDeltas(white ? Piece.WHITE_BISHOP : Piece.BLACK_BISHOP, BISHOP_DIRECTIONS, true);
+			setDeltas(white ? Piece.WHITE_ROOK : Piece.BLACK_ROOK, ROOK_DIRECTIONS, true);
+			setDeltas(white ? Piece.WHITE_QUEEN : Piece.BLACK_QUEEN, ALL_DIRECTIONS, true);
+			setDeltas(white ? Piece.WHITE_KING : Piece.BLACK_KING, ALL_DIRECTIONS, false);
+		}
+	}
+
+	private final byte[] state;
+	private long hashKey;
+	/** The positions before each played move, {@link #SIZE} bytes per move. */
+	private byte[] stack;
+	/** The hash keys before each played move. */
+	private long[] keys;
+	private int ply;
+
+	/** Creates a copy of a board.
+	 * <br>The moves played on the copied board are not copied, so they can't be unmade on the created board.
+	 * @param copy The copied board
+	 */
+	public CopyMakeBoard(CopyMakeBoard copy) {
+		this.state = copy.state.clone();
+		this.hashKey = copy.hashKey;
+	}
+
+	/** Creates a board.
+	 * @param fen The position in FEN format (see {@link Board#Board(String)})
+	 * @throws IllegalArgumentException if the FEN is invalid, or if a move counter is greater than 65535
+	 */
+	public CopyMakeBoard(String fen) {
+		this(new Board(fen));
+	}
+
+	/** Creates a board with the same position as a mailbox board.
+	 * <br>The moves played on the mailbox board are not copied, so they can't be unmade on the created board.
+	 * @param board The mailbox board
+	 * @throws IllegalArgumentException if a move counter of the board is greater than 65535
+	 */
+	public CopyMakeBoard(Board board) {
+		if (board.getHalfMoveClock() > MAX_COUNTER || board.getFullMoveNumber() > MAX_COUNTER) {
+			throw new IllegalArgumentException("Move counters can't exceed " + MAX_COUNTER);
+		}
+		this.state = new byte[SIZE];
+		for (int square = 0; square < CASTLING; square++) {
+			final Piece piece = board.getPiece(square);
+			state[square] = piece == null ? EMPTY : (byte) code(piece);
+		}
+		state[CASTLING] = (byte) board.getCastlingRights();
+		state[EN_PASSANT] = (byte) board.getEnPassant();
+		state[WHITE_TO_MOVE] = (byte) (board.isWhiteToMove() ? 1 : 0);
+		setCounter(HALF_MOVE_CLOCK, board.getHalfMoveClock());
+		setCounter(FULL_MOVE_NUMBER, board.getFullMoveNumber());
+		this.hashKey = board.getHashKey();
+	}
+
+	private static int code(Piece piece) {
+		return piece.ordinal() + 1;
+	}
+
+	private static Piece piece(int code) {
+		return code == EMPTY ? null : PIECES[code - 1];
+	}
+
+	private static void setDeltas(Piece piece, int[] deltas, boolean slider) {
+		DELTAS[code(piece)] = deltas;
+		SLIDERS[code(piece)] = slider;
+	}
+
+	private static boolean isWhite(int code) {
+		return code >= WHITE_PAWN && code <= WHITE_KING;
+	}
+
+	private static boolean canBeCapturedBy(int code, boolean white) {
+		return white ? code >= BLACK_PAWN : isWhite(code);
+	}
+
+	private int getCounter(int index) {
+		return ((state[index] & 0xFF) << 8) | (state[index + 1] & 0xFF);
+	}
+
+	private void setCounter(int index, int value) {
+		state[index] = (byte) (value >>> 8);
+		state[index + 1] = (byte) value;
+	}
+
+	/** Copies the position of another board into this one.
+	 * <br>This method allocates nothing. The moves played on this board are forgotten, so they can't be unmade anymore.
+	 * @param source The board to copy
+	 */
+	public void copyFrom(CopyMakeBoard source) {
+		System.arraycopy(source.state, 0, state, 0, SIZE);
+		hashKey = source.hashKey;
+		ply = 0;
+	}
+
+	@Override
+	public Piece getPiece(String uciSquare) {
+		return piece(state[Board.getSquare(uciSquare)]);
+	}
+
+	@Override
+	public long getHashKey() {
+		return hashKey;
+	}
+
+	@Override
+	public boolean isWhiteToMove() {
+		return state[WHITE_TO_MOVE] != 0;
+	}
+
+	@Override
+	public int getCastlingRights() {
+		return state[CASTLING];
+	}
+
+	@Override
+	public int getEnPassant() {
+		return state[EN_PASSANT];
+	}
+
+	@Override
+	public int getHalfMoveClock() {
+		return getCounter(HALF_MOVE_CLOCK);
+	}
+
+	@Override
+	public int getFullMoveNumber() {
+		return getCounter(FULL_MOVE_NUMBER);
+	}
+
+	@Override
+	public void getMoves(MoveList moves, boolean white) {
+		moves.clear();
+		generate(moves, white);
+	}
+
+	@Override
+	public int countMoves(boolean white) {
+		return generate(null, white);
+	}
+
+	/** Generates the moves of a player.
+	 * @param moves The list where to add the moves, null to only count them
+	 * @param white true to generate the white moves, false to generate the black ones
+	 * @return the number of moves
+	 */
+	private int generate(MoveList moves, boolean white) {
+		final int pawn = white ? WHITE_PAWN : BLACK_PAWN;
+		final int king = white ? WHITE_KING : BLACK_KING;
+		int count = 0;
+		for (int from = 21; from < 99; from++) {
+			final int code = state[from];
+			if (code < pawn || code > king) {
+				continue;
+			}
+			if (code == pawn) {
+				count += generatePawnMoves(moves, from, white);
+			} else if (SLIDERS[code]) {
+				for (int delta : DELTAS[code]) {
+					int to = from + delta;
+					while (state[to] == EMPTY) {
+						count += add(moves, from, to);
+						to += delta;
+					}
+					if (canBeCapturedBy(state[to], white)) {
+						count += add(moves, from, to);
+					}
+				}
+			} else {
+				for (int delta : DELTAS[code]) {
+					final int to = from + delta;
+					final int captured = state[to];
+					if (captured == EMPTY || canBeCapturedBy(captured, white)) {
+						count += add(moves, from, to);
+					}
+				}
+			}
+		}
+		return count;
+	}
+
+	private int generatePawnMoves(MoveList moves, int from, boolean white) {
+		final int advance = white ? 10 : -10;
+		int count = 0;
+		int to = from + advance;
+		if (state[to] == EMPTY) {
+			count += add(moves, from, to);
+			to += advance;
+			if (Board.getRank(from) == (white ? 1 : 6) && state[to] == EMPTY) {
+				count += add(moves, from, to);
+			}
+		}
+		to = from + advance - 1;
+		if (canBeCapturedBy(state[to], white)) {
+			count += add(moves, from, to);
+		}
+		to = from + advance + 1;
+		if (canBeCapturedBy(state[to], white)) {
+			count += add(moves, from, to);
+		}
+		return count;
+	}
+
+	private static int add(MoveList moves, int from, int to) {
+		if (moves != null) {
+			moves.add(from, to);
+		}
+		return 1;
+	}
+
+	@Override
+	public void makeMove(int move) {
+		final int from = Move.getFrom(move);
+		final int to = Move.getTo(move);
+		if (from < 20 || from > 99 || to < 20 || to > 99) {
+			throw new IllegalArgumentException("Illegal move");
+		}
+		final int moving = state[from];
+		final int captured = state[to];
+		if (moving <= BLOCKER) {
+			throw new IllegalArgumentException("Illegal move");
+		}
+		final boolean white = isWhite(moving);
+		final boolean pawn = moving == WHITE_PAWN || moving == BLACK_PAWN;
+		final int promotion = Move.getPromotion(move);
+		if ((captured != EMPTY && !canBeCapturedBy(captured, white)) || (promotion != 0 && !pawn)) {
+			throw new IllegalArgumentException("Illegal move");
+		}
+		if (MoveCounters.ENABLED) {
+			MoveCounters.made();
+		}
+		push();
+
+		long key = hashKey;
+		final int enPassant = state[EN_PASSANT];
+		if (captured != EMPTY) {
+			key ^= Zobrist.get(piece(captured), to);
+		} else if (pawn && to == enPassant && (to - from) % 10 != 0) {
+			// En passant, the captured pawn is not on the destination square
+			final int capturedSquare = white ? to - 10 : to + 10;
+			key ^= Zobrist.get(piece(state[capturedSquare]), capturedSquare);
+			state[capturedSquare] = EMPTY;
+		}
+		// Promotion kinds follow the pawn in the pieces order
+		final int arrived = moving + promotion;
+		state[from] = EMPTY;
+		state[to] = (byte) arrived;
+		key ^= Zobrist.get(piece(moving), from) ^ Zobrist.get(piece(arrived), to);
+		if ((moving == WHITE_KING || moving == BLACK_KING) && (to - from == 2 || from - to == 2)) {
+			// Castling, move the rook
+			final int rookFrom = to > from ? from + 3 : from - 4;
+			final int rookTo = to > from ? from + 1 : from - 1;
+			final int rook = state[rookFrom];
+			state[rookTo] = (byte) rook;
+			state[rookFrom] = EMPTY;
+			key ^= Zobrist.get(piece(rook), rookFrom) ^ Zobrist.get(piece(rook), rookTo);
+		}
+
+		final int castlingRights = state[CASTLING] & Board.getCastlingMask(from) & Board.getCastlingMask(to);
+		final int newEnPassant = pawn && (to - from == 20 || from - to == 20) ? (from + to) / 2 : 0;
+		key ^= Zobrist.getCastling(state[CASTLING]) ^ Zobrist.getCastling(castlingRights) ^ Zobrist.getEnPassant(enPassant) ^ Zobrist.getEnPassant(newEnPassant);
+		state[CASTLING] = (byte) castlingRights;
+		state[EN_PASSANT] = (byte) newEnPassant;
+		setCounter(HALF_MOVE_CLOCK, captured == EMPTY && !pawn ? Math.min(getCounter(HALF_MOVE_CLOCK) + 1, MAX_COUNTER) : 0);
+		if (!white) {
+			setCounter(FULL_MOVE_NUMBER, Math.min(getCounter(FULL_MOVE_NUMBER) + 1, MAX_COUNTER));
+		}
+		if (white == isWhiteToMove()) {
+			key ^= Zobrist.WHITE_TO_MOVE;
+		}
+		state[WHITE_TO_MOVE] = (byte) (white ? 0 : 1);
+		hashKey = key;
+	}
+
+	/** Pushes a copy of the position on the stack. */
+	private void push() {
+		if (stack == null) {
+			stack = new byte[INITIAL_PLIES * SIZE];
+			keys = new long[INITIAL_PLIES];
+		} else if (ply == keys.length) {
+			stack = Arrays.copyOf(stack, 2 * ply * SIZE);
+			keys = Arrays.copyOf(keys, 2 * ply);
+		}
+		System.arraycopy(state, 0, stack, ply * SIZE, SIZE);
+		keys[ply++] = hashKey;
+	}
+
+	@Override
+	public void unmakeMove() {
+		if (ply == 0) {
+			throw new IllegalStateException("No moves to unmake");
+		}
+		if (MoveCounters.ENABLED) {
+			MoveCounters.unmade();
+		}
+		ply--;
+		System.arraycopy(stack, ply * SIZE, state, 0, SIZE);
+		hashKey = keys[ply];
+	}
+
+	/** {@inheritDoc}
+	 * <br>The moves played on this board are not copied, so they can't be unmade on the created board.
+	 */
+	@Override
+	public CopyMakeBoard fork() {
+		return new CopyMakeBoard(this);
+	}
+
+	@Override
+	public void appendFen(StringBuilder builder) {
+		for (int rank = 7; rank >= 0; rank--) {
+			int empty = 0;
+			for (int file = 0; file < 8; file++) {
+				final int code = state[21 + rank * 10 + file];
+				if (code == EMPTY) {
+					empty++;
+				} else {
+					if (empty != 0) {
+						builder.append((char) ('0' + empty));
+						empty = 0;
+					}
+					builder.append(piece(code).getCode());
+				}
+			}
+			if (empty != 0) {
+				builder.append((char) ('0' + empty));
+			}
+			if (rank != 0) {
+				builder.append('/');
+			}
+		}
+		Board.appendFenState(builder, isWhiteToMove(), getCastlingRights(), getEnPassant(), getHalfMoveClock(), getFullMoveNumber());
+	}
+
+	@Override
+	public String toString() {
+		final StringBuilder b = new StringBuilder();
+		for (int rank = 7; rank >= 0; rank--) {
+			b.append((char)('1' + rank));
+			b.append(' ');
+			for (int file = 0; file < 8; file++) {
+				final Piece piece = piece(state[21 + rank * 10 + file]);
+				b.append(piece==null ? ' ' : piece.getCode());
+			}
+			b.append('\n');
+		}
+		b.append("  ");
+		for (char file = 'a'; file < 'h' ; file++) {
+			b.append(file);
+		}
+		return b.toString();
+	}
+}
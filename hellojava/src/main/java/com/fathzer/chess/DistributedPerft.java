@@ -0,0 +1,422 @@
+package com.fathzer.chess;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.BlockingDeque;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.LinkedBlockingDeque;
+
+/** A Perft whose subtrees are counted by {@link PerftWorker}s, typically running in other processes or on other hosts.
+ * <br>The coordinator expands the tree up to a split depth, then sends each position reached, in FEN format, with its remaining
+ * depth to the workers connected to its server socket. Each worker counts one position at a time, so the fastest workers count
+ * the most positions. The counts are aggregated in a usual {@link Perft.Result}.
+ * <br>A worker that dies is detected when its connection is closed, or when it sends nothing for a {@link #setTimeout(int) timeout}
+ * while counting a position (for instance if its process is stopped, or its host is unreachable). The position it was counting is
+ * then sent to another worker. Please note that a run waits for all its positions to be counted: it never ends if all the workers
+ * die and no other connects.
+ * <br>A run can save the counted positions in a checkpoint file. A later run of the same Perft with the same file only sends the
+ * positions that are missing in the file, so an interrupted run can be resumed.
+ * <br>The protocol is made of UTF-8 text lines:<ul>
+ * <li>When it connects, the worker sends {@value #HELLO}.</li>
+ * <li>The coordinator sends <code>PERFT <i>id</i> <i>depth</i> <i>fen</i></code>.</li>
+ * <li>While counting, the worker sends <code>BUSY <i>id</i></code> every {@value #HEARTBEAT_PERIOD} ms, so that a long count is not
+ * mistaken for a dead worker.</li>
+ * <li>The worker answers <code>RESULT <i>id</i> <i>leafNodes</i> <i>searchedNodes</i></code>, or <code>ERROR <i>id</i> <i>message</i></code>
+ * if it can't count the position (the run then fails).</li>
+ * <li>The coordinator sends {@value #QUIT} when it is closed.</li>
+ * </ul>
+ */
+public class DistributedPerft implements AutoCloseable {
+    static final String HELLO = "HELLOJAVA-PERFT 1";
+    static final String PERFT = "PERFT";
+    static final String RESULT = "RESULT";
+    static final String ERROR = "ERROR";
+    static final String BUSY = "BUSY";
+    static final String QUIT = "QUIT";
+    /** The period, in milliseconds, of the {@value #BUSY} messages of the workers. */
+    static final int HEARTBEAT_PERIOD = 10_000;
+
+    private final ServerSocket server;
+    private final BlockingDeque<Job> jobs = new LinkedBlockingDeque<>();
+    private final Set<Connection> connections = ConcurrentHashMap.newKeySet();
+    private int splitDepth = 2;
+    private Path checkpoint;
+    private volatile int timeout = 6 * HEARTBEAT_PERIOD;
+
+    /** A position to count. */
+    private static class Job {
+        private final Run run;
+        private final int id;
+        private final int rootMove;
+        private final String fen;
+        private final int depth;
+
+        private Job(Run run, int id, int rootMove, String fen, int depth) {
+            this.run = run;
+            this.id = id;
+            this.rootMove = rootMove;
+            this.fen = fen;
+            this.depth = depth;
+        }
+    }
+
+    /** The state of a Perft call. */
+    private static class Run {
+        private final CompletableFuture<Void> done = new CompletableFuture<>();
+        private final List<Move> rootMoves = new ArrayList<>();
+        private final List<Job> jobs = new ArrayList<>();
+        private long[] leafNodes;
+        private boolean[] counted;
+        private long searchedNodesCount;
+        private int remaining;
+        private Writer checkpoint;
+
+        private synchronized void count(Job job, long leafNodesCount, long searchedNodes) throws IOException {
+            if (counted[job.id]) {
+                return;
+            }
+            counted[job.id] = true;
+            leafNodes[job.rootMove] += leafNodesCount;
+            searchedNodesCount += searchedNodes;
+            if (checkpoint != null) {
+                checkpoint.write(job.id + " " + leafNodesCount + " " + searchedNodes + " " + job.fen + "\n");
+                checkpoint.flush();
+            }
+            remaining--;
+            if (remaining == 0) {
+                done.complete(null);
+            }
+        }
+
+        private void onResponse(Job job, String response) throws IOException {
+            final String[] parts = response.split(" ", 4);
+            if (parts.length >= 2 && parts[1].equals(Integer.toString(job.id))) {
+                if (RESULT.equals(parts[0]) && parts.length == 4) {
+                    try {
+                        count(job, Long.parseLong(parts[2]), Long.parseLong(parts[3]));
+                        return;
+                    } catch (NumberFormatException e) {
+                        // Invalid response
+                    } catch (IOException e) {
+                        done.completeExceptionally(e);
+                        return;
+                    }
+                } else if (ERROR.equals(parts[0])) {
+                    done.completeExceptionally(new IllegalArgumentException("Worker failed to count " + job.fen + ": " + (parts.length > 2 ? parts[2] : "")));
+                    return;
+                }
+            }
+            throw new IOException("Unexpected response: " + response);
+        }
+    }
+
+    /** The connection with a worker; it sends the positions to count one by one. */
+    private class Connection extends Thread {
+        private final Socket socket;
+
+        private Connection(Socket socket) {
+            super("perft-worker-" + socket.getRemoteSocketAddress());
+            setDaemon(true);
+            this.socket = socket;
+        }
+
+        @Override
+        public void run() {
+            Job job = null;
+            try (Socket s = socket;
+                    BufferedReader in = new BufferedReader(new InputStreamReader(s.getInputStream(), StandardCharsets.UTF_8));
+                    Writer out = new BufferedWriter(new OutputStreamWriter(s.getOutputStream(), StandardCharsets.UTF_8))) {
+                if (!HELLO.equals(in.readLine())) {
+                    return;
+                }
+                try {
+                    while (true) {
+                        job = jobs.take();
+                        if (job.run.done.isDone()) {
+                            // The run has failed
+                            job = null;
+                            continue;
+                        }
+                        out.write(PERFT + " " + job.id + " " + job.depth + " " + job.fen + "\n");
+                        out.flush();
+                        // A read that times out throws a SocketTimeoutException, the worker is then considered as dead
+                        String response = in.readLine();
+                        while (response != null && response.startsWith(BUSY + " ")) {
+                            response = in.readLine();
+                        }
+                        if (response == null) {
+                            throw new EOFException("Connection closed by the worker");
+                        }
+                        job.run.onResponse(job, response);
+                        job = null;
+                    }
+                } catch (InterruptedException e) {
+                    // The coordinator is closed
+                    out.write(QUIT + "\n");
+                    out.flush();
+                }
+            } catch (IOException e) {
+                // The worker died, timed out or sent an invalid response, its job will be sent to another worker
+            } finally {
+                connections.remove(this);
+                if (job != null) {
+                    jobs.addFirst(job);
+                }
+            }
+        }
+    }
+
+    /** Constructor.
+     * <br>The coordinator accepts workers connections as soon as it is created.
+     * @param port The port the coordinator listens to, 0 to use any free port (see {@link #getPort()})
+     * @throws IOException if the server socket can't be opened
+     */
+    public DistributedPerft(int port) throws IOException {
+        this.server = new ServerSocket(port);
+        final Thread acceptor = new Thread(this::accept, "perft-coordinator");
+        acceptor.setDaemon(true);
+        acceptor.start();
+    }
+
+    private void accept() {
+        while (!server.isClosed()) {
+            try {
+                final Socket socket = server.accept();
+                socket.setSoTimeout(timeout);
+                // Lets the system detect the hosts that are unreachable while no position is sent
+                socket.setKeepAlive(true);
+                final Connection connection = new Connection(socket);
+                connections.add(connection);
+                connection.start();
+            } catch (IOException e) {
+                // The server socket is closed or the connection failed
+            }
+        }
+    }
+
+    /** Gets the port the coordinator listens to.
+     * @return an int
+     */
+    public int getPort() {
+        return server.getLocalPort();
+    }
+
+    /** Gets the number of connected workers.
+     * @return an int
+     */
+    public int getWorkersCount() {
+        return connections.size();
+    }
+
+    /** Gets the split depth.
+     * @return an int
+     */
+    public int getSplitDepth() {
+        return splitDepth;
+    }
+
+    /** Sets the depth of the positions sent to the workers (default is 2).
+     * <br>The higher the split depth, the more positions are sent, the better they are balanced between the workers.
+     * @param splitDepth The number of plies played by the coordinator before sending the positions
+     * @throws IllegalArgumentException if splitDepth is not strictly positive
+     */
+    public void setSplitDepth(int splitDepth) {
+        if (splitDepth < 1) {
+            throw new IllegalArgumentException("Split depth must be greater than 0");
+        }
+        this.splitDepth = splitDepth;
+    }
+
+    /** Gets the timeout of the workers.
+     * @return a number of milliseconds
+     */
+    public int getTimeout() {
+        return timeout;
+    }
+
+    /** Sets the time after which a worker that sends nothing while counting a position is considered as dead (default is 60s).
+     * <br>It applies to the workers that connect after this call. It should be longer than {@value #HEARTBEAT_PERIOD} ms, the
+     * period of the messages the workers send while counting.
+     * @param timeout a number of milliseconds
+     * @throws IllegalArgumentException if timeout is not strictly positive
+     */
+    public void setTimeout(int timeout) {
+        if (timeout < 1) {
+            throw new IllegalArgumentException("Timeout must be greater than 0");
+        }
+        this.timeout = timeout;
+    }
+
+    /** Gets the checkpoint file.
+     * @return a path or null if the runs are not saved
+     */
+    public Path getCheckpoint() {
+        return checkpoint;
+    }
+
+    /** Sets the checkpoint file.
+     * <br>The file is created if it does not exist. Otherwise, it should have been written by a run of the same Perft
+     * (same position, depth and split depth). It is kept at the end of the run.
+     * @param checkpoint The file where the counted positions are saved, null (the default) to not save them
+     */
+    public void setCheckpoint(Path checkpoint) {
+        this.checkpoint = checkpoint;
+    }
+
+    /** Performs a non bulk Perft (Performance Test) calculation.
+     * @param board The board to run the performance test on, it is not modified.
+     * @param depth The depth to run the performance test to
+     * @return a non null complete result
+     * @throws IllegalArgumentException if depth is not greater than the split depth, if a worker fails to count a position,
+     * or if the checkpoint file was written by another Perft
+     * @throws IOException if the checkpoint file can't be read or written
+     */
+    public Perft.Result perft(ChessBoard board, int depth) throws IOException {
+        if (board == null) {
+            throw new IllegalArgumentException("Board cannot be null");
+        }
+        if (depth <= splitDepth) {
+            throw new IllegalArgumentException("Depth must be greater than the split depth");
+        }
+        final Run run = new Run();
+        expand(board.fork(), run, -1, 0, depth);
+        run.leafNodes = new long[run.rootMoves.size()];
+        run.counted = new boolean[run.jobs.size()];
+        run.remaining = run.jobs.size();
+        try {
+            if (checkpoint != null) {
+                run.checkpoint = openCheckpoint(run, board.toFen() + " ; " + depth + " ; " + splitDepth);
+            }
+            if (run.remaining == 0) {
+                run.done.complete(null);
+            }
+            for (Job job : run.jobs) {
+                if (!run.counted[job.id]) {
+                    jobs.add(job);
+                }
+            }
+            run.done.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException ioException) {
+                throw ioException;
+            }
+            throw (RuntimeException) e.getCause();
+        } finally {
+            run.done.complete(null);
+            jobs.removeIf(job -> job.run == run);
+            synchronized (run) {
+                if (run.checkpoint != null) {
+                    run.checkpoint.close();
+                    run.checkpoint = null;
+                }
+            }
+        }
+        final Map<Move, Long> nodesPerMove = new HashMap<>();
+        for (int i = 0; i < run.rootMoves.size(); i++) {
+            nodesPerMove.put(run.rootMoves.get(i), run.leafNodes[i]);
+        }
+        return Perft.Result.of(run.searchedNodesCount, nodesPerMove);
+    }
+
+    /** Collects the positions at split depth. */
+    private void expand(ChessBoard board, Run run, int rootMove, int ply, int depth) {
+        if (ply == splitDepth) {
+            run.jobs.add(new Job(run, run.jobs.size(), rootMove, board.toFen(), depth - ply));
+            return;
+        }
+        // Nodes above the split depth are searched by the coordinator
+        run.searchedNodesCount++;
+        final MoveList moves = new MoveList();
+        board.getMoves(moves);
+        for (int i = 0; i < moves.size(); i++) {
+            if (ply == 0) {
+                rootMove = run.rootMoves.size();
+                run.rootMoves.add(Move.of(moves.get(i)));
+            }
+            board.makeMove(moves.get(i));
+            expand(board, run, rootMove, ply + 1, depth);
+            board.unmakeMove();
+        }
+    }
+
+    /** Loads the positions already counted from the checkpoint file and opens it for writing.
+     * <br>The file is rewritten without its invalid lines (typically the last one if the previous run was killed while writing it).
+     */
+    private Writer openCheckpoint(Run run, String header) throws IOException {
+        final List<String> lines = new ArrayList<>();
+        lines.add("# " + header);
+        if (Files.exists(checkpoint)) {
+            final List<String> saved = Files.readAllLines(checkpoint, StandardCharsets.UTF_8);
+            if (!saved.isEmpty() && !saved.get(0).equals(lines.get(0))) {
+                throw new IllegalArgumentException("Checkpoint " + checkpoint + " was written by another Perft: " + saved.get(0));
+            }
+            for (int i = 1; i < saved.size(); i++) {
+                if (restore(run, saved.get(i))) {
+                    lines.add(saved.get(i));
+                }
+            }
+        }
+        Files.write(checkpoint, lines, StandardCharsets.UTF_8);
+        return Files.newBufferedWriter(checkpoint, StandardCharsets.UTF_8, StandardOpenOption.APPEND);
+    }
+
+    private boolean restore(Run run, String line) throws IOException {
+        final String[] parts = line.split(" ", 4);
+        final int id;
+        final long leafNodes;
+        final long searchedNodes;
+        try {
+            id = Integer.parseInt(parts[0]);
+            leafNodes = Long.parseLong(parts[1]);
+            searchedNodes = Long.parseLong(parts[2]);
+        } catch (NumberFormatException | ArrayIndexOutOfBoundsException e) {
+            return false;
+        }
+        if (parts.length < 4 || id < 0 || id >= run.jobs.size()) {
+            return false;
+        }
+        final String fen = run.jobs.get(id).fen;
+        if (!fen.equals(parts[3])) {
+            if (fen.startsWith(parts[3])) {
+                // A line truncated in its FEN
+                return false;
+            }
+            throw new IllegalArgumentException("Checkpoint " + checkpoint + " does not match the positions of this Perft: " + line);
+        }
+        if (run.counted[id]) {
+            return false;
+        }
+        run.count(run.jobs.get(id), leafNodes, searchedNodes);
+        return true;
+    }
+
+    /** Closes the coordinator.
+     * <br>Idle workers are asked to quit, workers counting a position quit after it.
+     */
+    @Override
+    public void close() throws IOException {
+        server.close();
+        connections.forEach(Thread::interrupt);
+    }
+}
@@ -0,0 +1,414 @@
+package com.fathzer.chess;
+
+import static com.fathzer.chess.Piece.*;
+
+/** A legal move generator for the 10x12 mailbox {@link Board}.
+ * <br>It computes the pieces that check the king, and the pieces pinned on the king, once per position. Then, it generates
+ * only the moves that are legal, without playing them:<ul>
+ * <li>When the king is in double check, only king moves are generated.</li>
+ * <li>When the king is in single check, other pieces can only capture the checker or block the check.</li>
+ * <li>A pinned piece can only move along its pin ray.</li>
+ * <li>The king can't move to an attacked square (the king is removed from the board while testing its destinations, so that
+ * it can't hide behind itself on a slider ray).</li>
+ * </ul>
+ * The only exception is en passant, which can uncover a check along a rank by removing two pieces at once: the
+ * resulting position is tested by temporarily moving the pawns on the board (it is a rare move).
+ * <br>This class is not thread safe, it holds work arrays. It should be used by a single board.
+ */
+final class LegalMoveGenerator {
+    private static final int[] KING_DELTAS = {10, -10, 1, -1, 11, 9, -9, -11};
+    private static final int[] KNIGHT_DELTAS = {21, 19, -19, -21, 12, 8, -8, -12};
+    private static final int[] ORTHOGONAL_DELTAS = {10, -10, 1, -1};
+    private static final int[] DIAGONAL_DELTAS = {11, 9, -9, -11};
+    private static final int[] PROMOTIONS = {Move.QUEEN_PROMOTION, Move.ROOK_PROMOTION, Move.BISHOP_PROMOTION, Move.KNIGHT_PROMOTION};
+
+    private final Board board;
+    private final Piece[] pieces;
+    /** The squares where a piece can move to resolve a check (the checker and the squares between it and the king). */
+    private final boolean[] checkMask = new boolean[120];
+    /** The direction of the pin ray of each pinned piece, 0 if the piece is not pinned. */
+    private final int[] pinDirections = new int[120];
+    /** The squares set in checkMask and pinDirections, to clear them after the generation. */
+    private final int[] markedSquares = new int[64];
+    private int markedCount;
+    private int checkersCount;
+    /** The list to fill with the moves, null to only count them. */
+    private MoveList moves;
+    private int count;
+
+    /** Constructor.
+     * @param board The board
+     * @param pieces The pieces array of the board (that the generator may temporarily modify)
+     */
+    LegalMoveGenerator(Board board, Piece[] pieces) {
+        this.board = board;
+        this.pieces = pieces;
+    }
+
+    /** Generates the moves of a player.
+     * @param moves The list to fill with the moves (it is cleared before being filled)
+     * @param white true to get the white moves, false to get the black ones
+     * @param legal true to generate only legal moves, false to generate pseudo legal moves (moves that may leave the king in check)
+     */
+    void generate(MoveList moves, boolean white, boolean legal) {
+        moves.clear();
+        this.moves = moves;
+        try {
+            generate(white, legal);
+        } finally {
+            this.moves = null;
+        }
+    }
+
+    /** Counts the legal moves of a player, without adding them to a list.
+     * @param white true to count the white moves, false to count the black ones
+     * @return the number of moves {@link #generate(MoveList, boolean, boolean)} would generate
+     */
+    int count(boolean white) {
+        count = 0;
+        generate(white, true);
+        return count;
+    }
+
+    private void generate(boolean white, boolean legal) {
+        final int king = board.getKingSquare(white);
+        checkersCount = 0;
+        if (legal && king >= 0) {
+            computeChecksAndPins(king, white);
+        }
+        try {
+            if (king >= 0) {
+                final int generated = generatedCount();
+                addKingMoves(king, white, legal);
+                if (MoveCounters.ENABLED) {
+                    MoveCounters.generated(pieces[king], generatedCount() - generated);
+                }
+            }
+            if (checkersCount > 1) {
+                // Double check, only the king can move
+                return;
+            }
+            final int piecesCount = board.getPiecesCount(white);
+            for (int i = 0; i < piecesCount; i++) {
+                final int from = board.getPieceSquare(white, i);
+                final Piece piece = pieces[from];
+                final int generated = generatedCount();
+                switch (piece) {
+                    case WHITE_PAWN:
+                    case BLACK_PAWN:
+                        addPawnMoves(from, king, white, legal);
+                        break;
+                    case WHITE_KNIGHT:
+                    case BLACK_KNIGHT:
+                        if (pinDirections[from] == 0) {
+                            // A pinned knight can't move
+                            for (int delta : KNIGHT_DELTAS) {
+                                addIfValid(from, from + delta, delta, white);
+                            }
+                        }
+                        break;
+                    case WHITE_BISHOP:
+                    case BLACK_BISHOP:
+                        addSliderMoves(from, DIAGONAL_DELTAS, white);
+                        break;
+                    case WHITE_ROOK:
+                    case BLACK_ROOK:
+                        addSliderMoves(from, ORTHOGONAL_DELTAS, white);
+                        break;
+                    case WHITE_QUEEN:
+                    case BLACK_QUEEN:
+                        addSliderMoves(from, ORTHOGONAL_DELTAS, white);
+                        addSliderMoves(from, DIAGONAL_DELTAS, white);
+                        break;
+                    default:
+                        // The king is already processed
+                        break;
+                }
+                if (MoveCounters.ENABLED) {
+                    MoveCounters.generated(piece, generatedCount() - generated);
+                }
+            }
+        } finally {
+            clearMarks();
+        }
+    }
+
+    private void computeChecksAndPins(int king, boolean white) {
+        for (int delta : KING_DELTAS) {
+            final boolean orthogonal = delta == 10 || delta == -10 || delta == 1 || delta == -1;
+            int pinned = -1;
+            for (int square = king + delta; ; square += delta) {
+                final Piece piece = pieces[square];
+                if (piece == null) {
+                    continue;
+                }
+                if (piece == BLOCKER) {
+                    break;
+                }
+                if (piece.isWhite() == white) {
+                    if (pinned >= 0) {
+                        // Two pieces between the king and the end of the ray, none is pinned
+                        break;
+                    }
+                    pinned = square;
+                    continue;
+                }
+                if (isSlider(piece, orthogonal)) {
+                    if (pinned < 0) {
+                        checkersCount++;
+                        for (int s = king + delta; s != square + delta; s += delta) {
+                            markCheck(s);
+                        }
+                    } else {
+                        pinDirections[pinned] = delta;
+                        markedSquares[markedCount++] = pinned;
+                    }
+                }
+                break;
+            }
+        }
+        final Piece enemyKnight = white ? BLACK_KNIGHT : WHITE_KNIGHT;
+        for (int delta : KNIGHT_DELTAS) {
+            if (pieces[king + delta] == enemyKnight) {
+                checkersCount++;
+                markCheck(king + delta);
+            }
+        }
+        final Piece enemyPawn = white ? BLACK_PAWN : WHITE_PAWN;
+        final int forward = white ? 10 : -10;
+        if (pieces[king + forward - 1] == enemyPawn) {
+            checkersCount++;
+            markCheck(king + forward - 1);
+        }
+        if (pieces[king + forward + 1] == enemyPawn) {
+            checkersCount++;
+            markCheck(king + forward + 1);
+        }
+    }
+
+    private void markCheck(int square) {
+        checkMask[square] = true;
+        markedSquares[markedCount++] = square;
+    }
+
+    private void clearMarks() {
+        for (int i = 0; i < markedCount; i++) {
+            checkMask[markedSquares[i]] = false;
+            pinDirections[markedSquares[i]] = 0;
+        }
+        markedCount = 0;
+    }
+
+    private static boolean isSlider(Piece piece, boolean orthogonal) {
+        switch (piece) {
+            case WHITE_QUEEN:
+            case BLACK_QUEEN:
+                return true;
+            case WHITE_ROOK:
+            case BLACK_ROOK:
+                return orthogonal;
+            case WHITE_BISHOP:
+            case BLACK_BISHOP:
+                return !orthogonal;
+            default:
+                return false;
+        }
+    }
+
+    /** Tests whether a move of a piece (other than the king) complies with its pin and with the check.
+     * @param from The origin square
+     * @param to The destination square
+     * @param delta The direction of the move
+     * @return true if the move is legal
+     */
+    private boolean isAllowed(int from, int to, int delta) {
+        final int pin = pinDirections[from];
+        return (pin == 0 || pin == delta || pin == -delta) && (checkersCount == 0 || checkMask[to]);
+    }
+
+    private void addIfValid(int from, int to, int delta, boolean white) {
+        final Piece piece = pieces[to];
+        if ((piece == null || piece.canBeCapturedBy(white)) && isAllowed(from, to, delta)) {
+            add(from, to);
+        }
+    }
+
+    private void addSliderMoves(int from, int[] deltas, boolean white) {
+        final int pin = pinDirections[from];
+        for (int delta : deltas) {
+            if (pin != 0 && pin != delta && pin != -delta) {
+                continue;
+            }
+            for (int to = from + delta; ; to += delta) {
+                final Piece piece = pieces[to];
+                if (piece == null) {
+                    if (checkersCount == 0 || checkMask[to]) {
+                        add(from, to);
+                    }
+                    continue;
+                }
+                if (piece.canBeCapturedBy(white) && (checkersCount == 0 || checkMask[to])) {
+                    add(from, to);
+                }
+                break;
+            }
+        }
+    }
+
+    private void addKingMoves(int king, boolean white, boolean legal) {
+        final Piece kingPiece = pieces[king];
+        // Remove the king so that it does not block the rays of sliders that attack it
+        pieces[king] = null;
+        try {
+            for (int delta : KING_DELTAS) {
+                final int to = king + delta;
+                final Piece piece = pieces[to];
+                if ((piece == null || piece.canBeCapturedBy(white)) && (!legal || !isAttacked(to, !white))) {
+                    add(king, to);
+                }
+            }
+        } finally {
+            pieces[king] = kingPiece;
+        }
+        final int castlingRights = board.getCastlingRights();
+        if (white) {
+            if (king == 25 && (castlingRights & (Board.WHITE_KING_SIDE | Board.WHITE_QUEEN_SIDE)) != 0) {
+                addCastling(king, (castlingRights & Board.WHITE_KING_SIDE) != 0, (castlingRights & Board.WHITE_QUEEN_SIDE) != 0, WHITE_ROOK, legal);
+            }
+        } else if (king == 95 && (castlingRights & (Board.BLACK_KING_SIDE | Board.BLACK_QUEEN_SIDE)) != 0) {
+            addCastling(king, (castlingRights & Board.BLACK_KING_SIDE) != 0, (castlingRights & Board.BLACK_QUEEN_SIDE) != 0, BLACK_ROOK, legal);
+        }
+    }
+
+    private void addCastling(int king, boolean kingSide, boolean queenSide, Piece rook, boolean legal) {
+        final boolean white = rook.isWhite();
+        if (legal ? checkersCount > 0 : isAttacked(king, !white)) {
+            // Can't castle out of check
+            return;
+        }
+        if (kingSide && pieces[king + 3] == rook && pieces[king + 1] == null && pieces[king + 2] == null
+                && !isAttacked(king + 1, !white) && !isAttacked(king + 2, !white)) {
+            add(king, king + 2);
+        }
+        if (queenSide && pieces[king - 4] == rook && pieces[king - 1] == null && pieces[king - 2] == null && pieces[king - 3] == null
+                && !isAttacked(king - 1, !white) && !isAttacked(king - 2, !white)) {
+            add(king, king - 2);
+        }
+    }
+
+    private void addPawnMoves(int from, int king, boolean white, boolean legal) {
+        final int forward = white ? 10 : -10;
+        final boolean promotion = Board.getRank(from) == (white ? 6 : 1);
+        int to = from + forward;
+        if (pieces[to] == null) {
+            if (isAllowed(from, to, forward)) {
+                addPawnMove(from, to, promotion);
+            }
+            to += forward;
+            if (Board.getRank(from) == (white ? 1 : 6) && pieces[to] == null && isAllowed(from, to, forward)) {
+                add(from, to);
+            }
+        }
+        final int enPassant = board.getEnPassant();
+        for (int delta = forward - 1; delta <= forward + 1; delta += 2) {
+            to = from + delta;
+            final Piece captured = pieces[to];
+            if (captured != null) {
+                if (captured.canBeCapturedBy(white) && isAllowed(from, to, delta)) {
+                    addPawnMove(from, to, promotion);
+                }
+            } else if (to == enPassant && (!legal || king < 0 || isLegalEnPassant(from, to, king, white))) {
+                add(from, to);
+            }
+        }
+    }
+
+    private void addPawnMove(int from, int to, boolean promotion) {
+        if (promotion) {
+            if (moves == null) {
+                count += PROMOTIONS.length;
+                return;
+            }
+            for (int piece : PROMOTIONS) {
+                moves.add(Move.pack(from, to, piece));
+            }
+        } else {
+            add(from, to);
+        }
+    }
+
+    /** Gets the number of moves generated so far by the current generation. */
+    private int generatedCount() {
+        return moves == null ? count : moves.size();
+    }
+
+    private void add(int from, int to) {
+        if (moves == null) {
+            count++;
+        } else {
+            moves.add(from, to);
+        }
+    }
+
+    /** Tests whether an en passant capture leaves the king safe.
+     * <br>The capture is simulated on the board, because it removes two pieces from the capture rank.
+     */
+    private boolean isLegalEnPassant(int from, int to, int king, boolean white) {
+        final int capturedSquare = white ? to - 10 : to + 10;
+        final Piece pawn = pieces[from];
+        final Piece captured = pieces[capturedSquare];
+        pieces[from] = null;
+        pieces[capturedSquare] = null;
+        pieces[to] = pawn;
+        try {
+            return !isAttacked(king, !white);
+        } finally {
+            pieces[from] = pawn;
+            pieces[capturedSquare] = captured;
+            pieces[to] = null;
+        }
+    }
+
+    /** Tests whether a square is attacked.
+     * @param square The square
+     * @param byWhite true to test attacks of white pieces, false for black pieces
+     * @return true if the square is attacked
+     */
+    boolean isAttacked(int square, boolean byWhite) {
+        // A white pawn attacks the squares in front of it (+9 and +11)
+        final int pawnDelta = byWhite ? -10 : 10;
+        final Piece pawn = byWhite ? WHITE_PAWN : BLACK_PAWN;
+        if (pieces[square + pawnDelta - 1] == pawn || pieces[square + pawnDelta + 1] == pawn) {
+            return true;
+        }
+        final Piece knight = byWhite ? WHITE_KNIGHT : BLACK_KNIGHT;
+        for (int delta : KNIGHT_DELTAS) {
+            if (pieces[square + delta] == knight) {
+                return true;
+            }
+        }
+        final Piece king = byWhite ? WHITE_KING : BLACK_KING;
+        for (int delta : KING_DELTAS) {
+            if (pieces[square + delta] == king) {
+                return true;
+            }
+        }
+        return isAttackedBySlider(square, ORTHOGONAL_DELTAS, byWhite ? WHITE_ROOK : BLACK_ROOK, byWhite ? WHITE_QUEEN : BLACK_QUEEN)
+                || isAttackedBySlider(square, DIAGONAL_DELTAS, byWhite ? WHITE_BISHOP : BLACK_BISHOP, byWhite ? WHITE_QUEEN : BLACK_QUEEN);
+    }
+
+    private boolean isAttackedBySlider(int square, int[] deltas, Piece slider, Piece queen) {
+        for (int delta : deltas) {
+            int to = square + delta;
+            Piece piece = pieces[to];
+            while (piece == null) {
+                to += delta;
+                piece = pieces[to];
+            }
+            if (piece == slider || piece == queen) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
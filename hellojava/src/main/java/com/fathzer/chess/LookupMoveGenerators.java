@@ -0,0 +1,240 @@
+package com.fathzer.chess;
+
+import java.util.Arrays;
+
+/** Move builders driven by precomputed lookup tables.
+ * <br>They generate the same moves as {@link MoveGenerators}, but instead of adding direction deltas to the square and comparing
+ * the reached {@link Piece} with the mover, they iterate over per square tables of destinations and test the byte code of the
+ * destination (see {@link Board#getCodes()}).
+ * <br>The destinations of a slider are stored ray after ray, each ray ordered from the nearest square to the edge of the board.
+ * The <i>next</i> table gives, for each destination, the index of the first destination of the following ray, so that the
+ * generation jumps to the next ray as soon as it reaches an occupied square.
+ */
+final class LookupMoveGenerators {
+    /** The code of an empty square. */
+    static final byte EMPTY = 0;
+    /** The color bit of white pieces codes. */
+    static final int WHITE = 0x10;
+    /** The color bit of black pieces codes. */
+    static final int BLACK = 0x20;
+    /** The mask of the color bits of a code. */
+    static final int COLOR_MASK = WHITE | BLACK;
+    /** The code of the squares outside the board, it has both color bits so it can't be reached by any piece. */
+    static final byte OFF_BOARD = (byte) COLOR_MASK;
+
+    private static final byte[] CODES = new byte[Piece.values().length];
+    private static final int ROW_WIDTH = 10;
+    private static final int[] ROOK_DELTAS = { ROW_WIDTH, -ROW_WIDTH, 1, -1 };
+    private static final int[] BISHOP_DELTAS = { ROW_WIDTH + 1, ROW_WIDTH - 1, -ROW_WIDTH + 1, -ROW_WIDTH - 1 };
+    private static final int[] QUEEN_DELTAS = { ROW_WIDTH, -ROW_WIDTH, 1, -1, ROW_WIDTH + 1, ROW_WIDTH - 1, -ROW_WIDTH + 1, -ROW_WIDTH - 1 };
+    private static final int[] KNIGHT_DELTAS = { 2 * ROW_WIDTH + 1, 2 * ROW_WIDTH - 1, -2 * ROW_WIDTH + 1, -2 * ROW_WIDTH - 1,
+            ROW_WIDTH + 2, ROW_WIDTH - 2, -ROW_WIDTH + 2, -ROW_WIDTH - 2 };
+
+    private static final MoveBuilder[] MOVE_BUILDERS = new MoveBuilder[Piece.values().length];
+
+    static {
+        for (Piece piece : Piece.values()) {
+            CODES[piece.ordinal()] = piece == Piece.BLOCKER ? OFF_BOARD : (byte) (piece.ordinal() | (piece.isWhite() ? WHITE : BLACK));
+        }
+        final Rays rookRays = new Rays(ROOK_DELTAS, true);
+        final Rays bishopRays = new Rays(BISHOP_DELTAS, true);
+        final Rays queenRays = new Rays(QUEEN_DELTAS, true);
+        final Rays knightSteps = new Rays(KNIGHT_DELTAS, false);
+        final Rays kingSteps = new Rays(QUEEN_DELTAS, false);
+        for (boolean white : new boolean[] {true, false}) {
+            MOVE_BUILDERS[(white ? Piece.WHITE_KING : Piece.BLACK_KING).ordinal()] = new StepMoveBuilder(kingSteps, white);
+            MOVE_BUILDERS[(white ? Piece.WHITE_QUEEN : Piece.BLACK_QUEEN).ordinal()] = new SliderMoveBuilder(queenRays, white);
+            MOVE_BUILDERS[(white ? Piece.WHITE_ROOK : Piece.BLACK_ROOK).ordinal()] = new SliderMoveBuilder(rookRays, white);
+            MOVE_BUILDERS[(white ? Piece.WHITE_BISHOP : Piece.BLACK_BISHOP).ordinal()] = new SliderMoveBuilder(bishopRays, white);
+            MOVE_BUILDERS[(white ? Piece.WHITE_KNIGHT : Piece.BLACK_KNIGHT).ordinal()] = new StepMoveBuilder(knightSteps, white);
+            MOVE_BUILDERS[(white ? Piece.WHITE_PAWN : Piece.BLACK_PAWN).ordinal()] = new PawnMoveBuilder(white);
+        }
+    }
+
+    private LookupMoveGenerators() {
+    }
+
+    public static MoveBuilder get(Piece piece) {
+        return MOVE_BUILDERS[piece.ordinal()];
+    }
+
+    /** Gets the byte code of a piece.
+     * @param piece a piece or null
+     * @return {@link #EMPTY} if piece is null, {@link #OFF_BOARD} for {@link Piece#BLOCKER}, the ordinal of the piece
+     * combined with its color bit for the others.
+     */
+    static byte getCode(Piece piece) {
+        return piece == null ? EMPTY : CODES[piece.ordinal()];
+    }
+
+    private static boolean isOnBoard(int square) {
+        final int file = square % ROW_WIDTH;
+        return square > 20 && square < 99 && file > 0 && file < 9;
+    }
+
+    /** The destinations of a kind of piece from every square of the board. */
+    private static class Rays {
+        /** The destinations indexed by square, ray after ray. */
+        private final int[][] targets;
+        /** For each destination, the index in {@link #targets} of the first destination of the next ray. */
+        private final int[][] next;
+
+        private Rays(int[] deltas, boolean slider) {
+            this.targets = new int[120][];
+            this.next = new int[120][];
+            final int[] squares = new int[deltas.length * 7];
+            final int[] rayEnds = new int[squares.length];
+            for (int from = 0; from < 120; from++) {
+                if (!isOnBoard(from)) {
+                    continue;
+                }
+                int count = 0;
+                for (int delta : deltas) {
+                    final int rayStart = count;
+                    for (int to = from + delta; isOnBoard(to); to += delta) {
+                        squares[count++] = to;
+                        if (!slider) {
+                            break;
+                        }
+                    }
+                    Arrays.fill(rayEnds, rayStart, count, count);
+                }
+                targets[from] = Arrays.copyOf(squares, count);
+                next[from] = Arrays.copyOf(rayEnds, count);
+            }
+        }
+    }
+
+    private static class StepMoveBuilder implements MoveBuilder {
+        private final int[][] targets;
+        private final int color;
+
+        private StepMoveBuilder(Rays steps, boolean isWhite) {
+            this.targets = steps.targets;
+            this.color = isWhite ? WHITE : BLACK;
+        }
+
+        @Override
+        public void build(MoveList moves, Board board, int from) {
+            final byte[] codes = board.getCodes();
+            for (int to : targets[from]) {
+                // Empty squares and opponent pieces have not the mover color bit
+                if ((codes[to] & COLOR_MASK) != color) {
+                    moves.add(from, to);
+                }
+            }
+        }
+
+        @Override
+        public int count(Board board, int from) {
+            final byte[] codes = board.getCodes();
+            int count = 0;
+            for (int to : targets[from]) {
+                if ((codes[to] & COLOR_MASK) != color) {
+                    count++;
+                }
+            }
+            return count;
+        }
+    }
+
+    private static class SliderMoveBuilder implements MoveBuilder {
+        private final int[][] targets;
+        private final int[][] next;
+        private final int color;
+
+        private SliderMoveBuilder(Rays rays, boolean isWhite) {
+            this.targets = rays.targets;
+            this.next = rays.next;
+            this.color = isWhite ? WHITE : BLACK;
+        }
+
+        @Override
+        public void build(MoveList moves, Board board, int from) {
+            final byte[] codes = board.getCodes();
+            final int[] squares = targets[from];
+            final int[] rayEnds = next[from];
+            int i = 0;
+            while (i < squares.length) {
+                final int to = squares[i];
+                final int code = codes[to];
+                if ((code & COLOR_MASK) != color) {
+                    moves.add(from, to);
+                }
+                // An occupied square ends the ray
+                i = code == EMPTY ? i + 1 : rayEnds[i];
+            }
+        }
+
+        @Override
+        public int count(Board board, int from) {
+            final byte[] codes = board.getCodes();
+            final int[] squares = targets[from];
+            final int[] rayEnds = next[from];
+            int count = 0;
+            int i = 0;
+            while (i < squares.length) {
+                final int code = codes[squares[i]];
+                if ((code & COLOR_MASK) != color) {
+                    count++;
+                }
+                i = code == EMPTY ? i + 1 : rayEnds[i];
+            }
+            return count;
+        }
+    }
+
+    /**
+     * Generates moves for pawns.
+     * <br>Like {@link MoveGenerators}' one, it does not manage en passant, promotion.
+     */
+    private static class PawnMoveBuilder implements MoveBuilder {
+        private final int opponentColor;
+        private final int advanceDelta;
+        private final int twoAdvanceRank;
+
+        private PawnMoveBuilder(boolean isWhite) {
+            this.opponentColor = isWhite ? BLACK : WHITE;
+            this.advanceDelta = isWhite ? ROW_WIDTH : -ROW_WIDTH;
+            this.twoAdvanceRank = isWhite ? 1 : 6;
+        }
+
+        @Override
+        public void build(MoveList moves, Board board, int from) {
+            final byte[] codes = board.getCodes();
+            final int to = from + advanceDelta;
+            if (codes[to] == EMPTY) {
+                moves.add(from, to);
+                if (twoAdvanceRank == Board.getRank(from) && codes[to + advanceDelta] == EMPTY) {
+                    moves.add(from, to + advanceDelta);
+                }
+            }
+            if ((codes[to - 1] & COLOR_MASK) == opponentColor) {
+                moves.add(from, to - 1);
+            }
+            if ((codes[to + 1] & COLOR_MASK) == opponentColor) {
+                moves.add(from, to + 1);
+            }
+        }
+
+        @Override
+        public int count(Board board, int from) {
+            final byte[] codes = board.getCodes();
+            final int to = from + advanceDelta;
+            int count = 0;
+            if (codes[to] == EMPTY) {
+                count++;
+                if (twoAdvanceRank == Board.getRank(from) && codes[to + advanceDelta] == EMPTY) {
+                    count++;
+                }
+            }
+            if ((codes[to - 1] & COLOR_MASK) == opponentColor) {
+                count++;
+            }
+            if ((codes[to + 1] & COLOR_MASK) == opponentColor) {
+                count++;
+            }
+            return count;
+        }
+    }
+}
@@ -1,39 +1,129 @@
 package com.fathzer.chess;
 
-import java.util.Objects;
-
+/** A move.
+ * <br>This class is a thin view of the primitive move representation used internally by the move generator.
+ * In this representation, a move is an int where:<ul>
+ * <li>bits 0 to 7 contain the origin square</li>
+ * <li>bits 8 to 15 contain the destination square</li>
+ * <li>bits 16 to 18 contain the promotion piece (see {@link #getPromotion(int)}), 0 if the move is not a promotion</li>
+ * <li>upper bits are reserved for flags</li>
+ * </ul>
+ * Castling and en passant captures do not need flags, they are respectively a king move of two files, and a pawn
+ * capture on an empty square (as in the UCI notation).
+ */
 public class Move {
-    private final int from;
-    private final int to;
+    /** The promotion to a knight. */
+    public static final int KNIGHT_PROMOTION = 1;
+    /** The promotion to a bishop. */
+    public static final int BISHOP_PROMOTION = 2;
+    /** The promotion to a rook. */
+    public static final int ROOK_PROMOTION = 3;
+    /** The promotion to a queen. */
+    public static final int QUEEN_PROMOTION = 4;
+
+    private static final int SQUARE_MASK = 0xFF;
+    private static final int TO_SHIFT = 8;
+    private static final int PROMOTION_SHIFT = 16;
+    private static final int PROMOTION_MASK = 0x7;
+    private static final String PROMOTION_CODES = " nbrq";
+
+    private final int move;
 
     Move(int from, int to) {
-        this.from = from;
-        this.to = to;
+        this(pack(from, to));
+    }
+
+    private Move(int move) {
+        this.move = move;
     }
     
     public static Move fromUCI(String uci) {
-        if (uci.length() != 4) {
+        if (uci.length() != 4 && uci.length() != 5) {
             throw new IllegalArgumentException("Invalid UCI move: " + uci);
         }
-        return new Move(Board.getSquare(uci.substring(0, 2)), Board.getSquare(uci.substring(2)));
+        int promotion = 0;
+        if (uci.length() == 5) {
+            promotion = PROMOTION_CODES.indexOf(uci.charAt(4));
+            if (promotion <= 0) {
+                throw new IllegalArgumentException("Invalid UCI move: " + uci);
+            }
+        }
+        return new Move(pack(Board.getSquare(uci.substring(0, 2)), Board.getSquare(uci.substring(2, 4)), promotion));
     }
     
     public Move(String from, String to) {
         this(Board.getSquare(from), Board.getSquare(to));
     }
 
+    /** Gets a move from its primitive representation.
+     * @param move a move in its primitive representation
+     * @return a new Move
+     */
+    public static Move of(int move) {
+        return new Move(move);
+    }
+
+    /** Packs a move in its primitive representation.
+     * @param from The origin square
+     * @param to The destination square
+     * @return an int
+     */
+    public static int pack(int from, int to) {
+        return from | (to << TO_SHIFT);
+    }
+
+    /** Packs a promotion in its primitive representation.
+     * @param from The origin square
+     * @param to The destination square
+     * @param promotion The promotion piece (one of the XXX_PROMOTION constants), or 0 if the move is not a promotion
+     * @return an int
+     */
+    public static int pack(int from, int to, int promotion) {
+        return from | (to << TO_SHIFT) | (promotion << PROMOTION_SHIFT);
+    }
+
+    /** Gets the origin square of a move in its primitive representation.
+     * @param move a move in its primitive representation
+     * @return an int
+     */
+    public static int getFrom(int move) {
+        return move & SQUARE_MASK;
+    }
+
+    /** Gets the destination square of a move in its primitive representation.
+     * @param move a move in its primitive representation
+     * @return an int
+     */
+    public static int getTo(int move) {
+        return (move >>> TO_SHIFT) & SQUARE_MASK;
+    }
+
+    /** Gets the promotion piece of a move in its primitive representation.
+     * @param move a move in its primitive representation
+     * @return one of the XXX_PROMOTION constants, or 0 if the move is not a promotion
+     */
+    public static int getPromotion(int move) {
+        return (move >>> PROMOTION_SHIFT) & PROMOTION_MASK;
+    }
+
     public int from() {
-        return from;
+        return getFrom(move);
     }
 
     public int to() {
-        return to;
+        return getTo(move);
     }
 
+    /** Gets the primitive representation of this move.
+     * @return an int
+     */
+    public int toInt() {
+        return move;
+    }
     
     @Override
 	public int hashCode() {
-		return Objects.hash(from, to);
+		return move;
 	}
 
 	@Override
@@ -42,11 +132,13 @@ public class Move {
 		if (obj == null) return false;
 		if (getClass() != obj.getClass()) return false;
 		Move other = (Move) obj;
-		return from == other.from && to == other.to;
+		return move == other.move;
 	}
 
 	@Override
     public String toString() {
-        return Board.getUCI(from) + Board.getUCI(to);
+        final int promotion = getPromotion(move);
+        final String uci = Board.getUCI(from()) + Board.getUCI(to());
+        return promotion == 0 ? uci : uci + PROMOTION_CODES.charAt(promotion);
     }
 }
@@ -1,8 +1,5 @@
 package com.fathzer.chess;
 
-import java.util.List;
-
-@FunctionalInterface
 interface MoveBuilder {
     /**
      * Scans the board for legal moves from a given square.
@@ -10,5 +7,13 @@ interface MoveBuilder {
      * @param board the board to explore
      * @param from the square to scan from
      */
-    void build(List<Move> moves, Board board, int from);
+    void build(MoveList moves, Board board, int from);
+
+    /**
+     * Counts the moves from a given square, without building them.
+     * @param board the board to explore
+     * @param from the square to scan from
+     * @return the number of moves {@link #build(MoveList, Board, int)} would add
+     */
+    int count(Board board, int from);
 }
@@ -0,0 +1,82 @@
+package com.fathzer.chess;
+
+import java.util.concurrent.atomic.LongAdder;
+
+import jdk.jfr.FlightRecorder;
+
+/** Counters of the moves generated and played by the boards.
+ * <br>The counters are disabled by default. They are enabled by setting the {@value #ENABLED_PROPERTY} system property to true
+ * before the first move is generated. As {@link #ENABLED} is a static final field, the JIT compiler removes the counting code
+ * of the boards when the counters are disabled.
+ * <br>Counters are {@link LongAdder}s, so that the threads of a parallel Perft can update them without contention.
+ * When enabled, the counters are also published every second in the {@value MoveCountersEvent#NAME} Flight Recorder event.
+ * <br>The moves generated are counted by the mailbox {@link Board} (whatever its generator is). The moves played are counted by
+ * all the boards.
+ */
+public final class MoveCounters {
+    /** The name of the system property that enables the counters. */
+    public static final String ENABLED_PROPERTY = "com.fathzer.chess.counters";
+    /** true if the counters are enabled. */
+    public static final boolean ENABLED = Boolean.getBoolean(ENABLED_PROPERTY);
+
+    private static final LongAdder[] GENERATED_MOVES = new LongAdder[Piece.values().length];
+    private static final LongAdder MADE_MOVES = new LongAdder();
+    private static final LongAdder UNMADE_MOVES = new LongAdder();
+
+    static {
+        for (int i = 0; i < GENERATED_MOVES.length; i++) {
+            GENERATED_MOVES[i] = new LongAdder();
+        }
+        if (ENABLED) {
+            FlightRecorder.addPeriodicEvent(MoveCountersEvent.class, MoveCountersEvent::emit);
+        }
+    }
+
+    private MoveCounters() {
+    }
+
+    static void generated(Piece piece, int count) {
+        GENERATED_MOVES[piece.ordinal()].add(count);
+    }
+
+    static void made() {
+        MADE_MOVES.increment();
+    }
+
+    static void unmade() {
+        UNMADE_MOVES.increment();
+    }
+
+    /** Gets the number of moves generated (or counted) for a piece.
+     * @param piece A piece
+     * @return a long, 0 if the counters are disabled
+     */
+    public static long getGeneratedMoves(Piece piece) {
+        return GENERATED_MOVES[piece.ordinal()].sum();
+    }
+
+    /** Gets the number of calls to {@link ChessBoard#makeMove(int)}.
+     * @return a long, 0 if the counters are disabled
+     */
+    public static long getMadeMoves() {
+        return MADE_MOVES.sum();
+    }
+
+    /** Gets the number of calls to {@link ChessBoard#unmakeMove()}.
+     * @return a long, 0 if the counters are disabled
+     */
+    public static long getUnmadeMoves() {
+        return UNMADE_MOVES.sum();
+    }
+
+    /** Resets all the counters.
+     * <br>The counters updated during the reset may or may not be reset.
+     */
+    public static void reset() {
+        for (LongAdder counter : GENERATED_MOVES) {
+            counter.reset();
+        }
+        MADE_MOVES.reset();
+        UNMADE_MOVES.reset();
+    }
+}
@@ -0,0 +1,54 @@
+package com.fathzer.chess;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Period;
+
+/** A periodic Flight Recorder event with the values of the {@link MoveCounters}.
+ * <br>Counters are cumulative, both colors are summed.
+ */
+@Name(MoveCountersEvent.NAME)
+@Label("Move Counters")
+@Category({"HelloJava", "Chess"})
+@Description("Moves generated per piece type and moves played since the start or the last reset of the counters")
+@Period("1 s")
+final class MoveCountersEvent extends Event {
+    static final String NAME = "com.fathzer.chess.MoveCounters";
+
+    @Label("Pawn Moves")
+    long pawnMoves;
+    @Label("Knight Moves")
+    long knightMoves;
+    @Label("Bishop Moves")
+    long bishopMoves;
+    @Label("Rook Moves")
+    long rookMoves;
+    @Label("Queen Moves")
+    long queenMoves;
+    @Label("King Moves")
+    long kingMoves;
+    @Label("Made Moves")
+    long madeMoves;
+    @Label("Unmade Moves")
+    long unmadeMoves;
+
+    static void emit() {
+        final MoveCountersEvent event = new MoveCountersEvent();
+        event.pawnMoves = generated(Piece.WHITE_PAWN, Piece.BLACK_PAWN);
+        event.knightMoves = generated(Piece.WHITE_KNIGHT, Piece.BLACK_KNIGHT);
+        event.bishopMoves = generated(Piece.WHITE_BISHOP, Piece.BLACK_BISHOP);
+        event.rookMoves = generated(Piece.WHITE_ROOK, Piece.BLACK_ROOK);
+        event.queenMoves = generated(Piece.WHITE_QUEEN, Piece.BLACK_QUEEN);
+        event.kingMoves = generated(Piece.WHITE_KING, Piece.BLACK_KING);
+        event.madeMoves = MoveCounters.getMadeMoves();
+        event.unmadeMoves = MoveCounters.getUnmadeMoves();
+        event.commit();
+    }
+
+    private static long generated(Piece white, Piece black) {
+        return MoveCounters.getGeneratedMoves(white) + MoveCounters.getGeneratedMoves(black);
+    }
+}
@@ -1,7 +1,6 @@
 package com.fathzer.chess;
 
 import java.util.Arrays;
-import java.util.List;
 
 final class MoveGenerators {
     private enum Direction {
@@ -76,15 +75,27 @@ final class MoveGenerators {
         }
 
         @Override
-        public void build(List<Move> moves, Board board, int from) {
+        public void build(MoveList moves, Board board, int from) {
             for (int delta : deltas) {
                 int to = from + delta;
                 Piece piece = board.getPiece(to);
                 if (piece == null || piece.canBeCapturedBy(isWhite)) {
-                    moves.add(new Move(from, to));
+                    moves.add(from, to);
                 }
             }
         }
+
+        @Override
+        public int count(Board board, int from) {
+            int count = 0;
+            for (int delta : deltas) {
+                Piece piece = board.getPiece(from + delta);
+                if (piece == null || piece.canBeCapturedBy(isWhite)) {
+                    count++;
+                }
+            }
+            return count;
+        }
     }
 
     private static class KingMoveBuilder extends BasicMoveBuilder {
@@ -132,26 +143,47 @@ final class MoveGenerators {
         }
         
         @Override
-        public void build(List<Move> moves, Board board, int from) {
+        public void build(MoveList moves, Board board, int from) {
             int to = from + advanceDelta;
             if (board.getPiece(to) == null) {
-                moves.add(new Move(from, to));
+                moves.add(from, to);
                 to += advanceDelta;
                 if (twoAdvanceRank == Board.getRank(from) && board.getPiece(to)==null) {
-                    moves.add(new Move(from, to));
+                    moves.add(from, to);
                 }
             }
             to = from + captureDeltaWest;
             Piece captured = board.getPiece(to);
             if (captured != null && captured.canBeCapturedBy(isWhite)) {
-                moves.add(new Move(from, to));
+                moves.add(from, to);
             }
             to = from + captureDeltaEast;
             captured = board.getPiece(to);
             if (captured != null && captured.canBeCapturedBy(isWhite)) {
-                moves.add(new Move(from, to));
+                moves.add(from, to);
             }
         }
+
+        @Override
+        public int count(Board board, int from) {
+            int count = 0;
+            int to = from + advanceDelta;
+            if (board.getPiece(to) == null) {
+                count++;
+                if (twoAdvanceRank == Board.getRank(from) && board.getPiece(to + advanceDelta)==null) {
+                    count++;
+                }
+            }
+            Piece captured = board.getPiece(from + captureDeltaWest);
+            if (captured != null && captured.canBeCapturedBy(isWhite)) {
+                count++;
+            }
+            captured = board.getPiece(from + captureDeltaEast);
+            if (captured != null && captured.canBeCapturedBy(isWhite)) {
+                count++;
+            }
+            return count;
+        }
     }
 
     private static class SliderMoveBuilder implements MoveBuilder {
@@ -163,15 +195,15 @@ final class MoveGenerators {
             this.isWhite = isWhite;
         }
 
-        public void scanDirection(List<Move> moves, Board board, int from, int delta) {
+        public void scanDirection(MoveList moves, Board board, int from, int delta) {
             int to = from + delta;
             while (true) {
                 Piece piece = board.getPiece(to);
                 if (piece == null) {
-                    moves.add(new Move(from, to));
+                    moves.add(from, to);
                 } else {
                     if (piece.canBeCapturedBy(isWhite)) {
-                        moves.add(new Move(from, to));
+                        moves.add(from, to);
                     }
                     break;
                 }
@@ -180,10 +212,28 @@ final class MoveGenerators {
         }
 
         @Override
-        public void build(List<Move> moves, Board board, int from) {
+        public void build(MoveList moves, Board board, int from) {
             for (int delta : deltas) {
                 scanDirection(moves, board, from, delta);
             }
         }
+
+        @Override
+        public int count(Board board, int from) {
+            int count = 0;
+            for (int delta : deltas) {
+                int to = from + delta;
+                Piece piece = board.getPiece(to);
+                while (piece == null) {
+                    count++;
+                    to += delta;
+                    piece = board.getPiece(to);
+                }
+                if (piece.canBeCapturedBy(isWhite)) {
+                    count++;
+                }
+            }
+            return count;
+        }
     }
 }
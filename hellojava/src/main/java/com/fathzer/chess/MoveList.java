@@ -0,0 +1,68 @@
+package com.fathzer.chess;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/** A reusable list of moves in their primitive representation (see {@link Move}).
+ * <br>Filling a list that is already large enough does not allocate anything.
+ */
+public class MoveList {
+    private static final int DEFAULT_CAPACITY = 256;
+
+    private int[] moves;
+    private int size;
+
+    public MoveList() {
+        this.moves = new int[DEFAULT_CAPACITY];
+    }
+
+    /** Removes all the moves of this list. */
+    public void clear() {
+        size = 0;
+    }
+
+    /** Adds a move to this list.
+     * @param from The origin square
+     * @param to The destination square
+     */
+    public void add(int from, int to) {
+        add(Move.pack(from, to));
+    }
+
+    /** Adds a move to this list.
+     * @param move The move in its primitive representation
+     */
+    public void add(int move) {
+        if (size == moves.length) {
+            moves = Arrays.copyOf(moves, size * 2);
+        }
+        moves[size++] = move;
+    }
+
+    /** Gets a move of this list.
+     * @param index The index of the move
+     * @return a move in its primitive representation
+     */
+    public int get(int index) {
+        return moves[index];
+    }
+
+    /** Gets the number of moves in this list.
+     * @return an int
+     */
+    public int size() {
+        return size;
+    }
+
+    /** Gets the moves of this list as a list of {@link Move}.
+     * @return a new list
+     */
+    public List<Move> toList() {
+        final List<Move> result = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            result.add(Move.of(moves[i]));
+        }
+        return result;
+    }
+}
@@ -1,15 +1,34 @@
 package com.fathzer.chess;
 
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * <a href="https://www.chessprogramming.org/Perft">Perft, ('Performance Test')</a> is a Performance Test is a debugging function
  * that walks the move generation tree of strictly legal moves to count all the leaf nodes of a certain depth,
  * which can be compared to predetermined values and used to isolate bugs.
+ * <br>Long Perft calls can publish their progress to a {@link ProgressListener}, can be cancelled (see {@link #cancel()}) and
+ * can be limited by a time or nodes budget. A stopped call returns the counts of the root moves explored so far.
  */
 public class Perft {
+    /** The minimum remaining depth for a subtree to be split into parallel tasks. */
+    private static final int MIN_SPLIT_DEPTH = 4;
+    /** The number of searched nodes between two checks of the cancellation, the budgets and the progress (a power of 2). */
+    private static final int CHECK_INTERVAL = 4096;
+    private static final int CHECK_MASK = CHECK_INTERVAL - 1;
+    /** The minimum depth of the subtrees stored in the {@link PerftCache}, smaller ones are cheap enough to be recomputed. */
+    private static final int MIN_CACHE_DEPTH = 3;
+    /** The count returned by a subtree whose exploration was stopped. */
+    private static final long STOPPED = -1;
+
     /** The type of Perft calculation.
      * <br>Please note that as Calvin move generator generates only legal moves both type should yield the same result.
      */
@@ -26,6 +45,11 @@ public class Perft {
     public static class Result {
         private long searchedNodesCount;
         private long leafNodesCount;
+        private long transpositionTableProbes;
+        private long transpositionTableHits;
+        private long cacheProbes;
+        private long cacheHits;
+        private boolean complete;
         private final Map<Move, Long> nodesPerMove;
 
         private Result() {
@@ -45,32 +69,316 @@ public class Perft {
             return searchedNodesCount;
         }
 
+        /** Gets the number of times the transposition table was looked up
+         * @return a long (0 if no transposition table was used)
+         */
+        public long transpositionTableProbes() {
+            return transpositionTableProbes;
+        }
+
+        /** Gets the number of times a subtree was found in the transposition table
+         * @return a long (0 if no transposition table was used)
+         */
+        public long transpositionTableHits() {
+            return transpositionTableHits;
+        }
+
+        /** Gets the transposition table hit rate
+         * @return a double between 0 and 1 (0 if no transposition table was used)
+         */
+        public double transpositionTableHitRate() {
+            return transpositionTableProbes == 0 ? 0.0 : (double) transpositionTableHits / transpositionTableProbes;
+        }
+
+        /** Gets the number of times the persistent cache was looked up
+         * @return a long (0 if no cache was used)
+         */
+        public long cacheProbes() {
+            return cacheProbes;
+        }
+
+        /** Gets the number of times a subtree was found in the persistent cache
+         * @return a long (0 if no cache was used)
+         */
+        public long cacheHits() {
+            return cacheHits;
+        }
+
+        /** Gets the number of times a subtree was not found in the persistent cache, and was explored (then stored in the cache)
+         * @return a long (0 if no cache was used)
+         */
+        public long cacheMisses() {
+            return cacheProbes - cacheHits;
+        }
+
+        /** Gets the persistent cache hit rate
+         * @return a double between 0 and 1 (0 if no cache was used)
+         */
+        public double cacheHitRate() {
+            return cacheProbes == 0 ? 0.0 : (double) cacheHits / cacheProbes;
+        }
+
+        /** Creates the result of a complete Perft whose subtrees were counted elsewhere.
+         * @param searchedNodesCount The number of searched nodes
+         * @param nodesPerMove The number of leaf nodes of each root move
+         * @return a new result
+         */
+        static Result of(long searchedNodesCount, Map<Move, Long> nodesPerMove) {
+            final Result result = new Result();
+            result.searchedNodesCount = searchedNodesCount;
+            result.nodesPerMove.putAll(nodesPerMove);
+            result.leafNodesCount = nodesPerMove.values().stream().mapToLong(Long::longValue).sum();
+            result.complete = true;
+            return result;
+        }
+
+        private void add(Result other) {
+            searchedNodesCount += other.searchedNodesCount;
+            leafNodesCount += other.leafNodesCount;
+            transpositionTableProbes += other.transpositionTableProbes;
+            transpositionTableHits += other.transpositionTableHits;
+            cacheProbes += other.cacheProbes;
+            cacheHits += other.cacheHits;
+        }
+
         /** Gets the number of nodes per move at first depth
-         * @return a map of moves to the number of nodes
+         * @return a map of moves to the number of nodes, only the moves whose subtree was fully explored if the Perft is not complete
          */
         public Map<Move, Long> divide() {
             return nodesPerMove;
         }
+
+        /** Tests whether the whole tree was explored.
+         * <br>An incomplete Perft was cancelled or ran out of budget. Its {@link #leafNodesCount()} is the sum of the counts of
+         * the root moves in {@link #divide()}, while {@link #searchedNodesCount()} includes the nodes of the unfinished subtrees.
+         * @return true if the Perft is complete
+         */
+        public boolean isComplete() {
+            return complete;
+        }
+    }
+
+    /** The progress of a running Perft. */
+    public static class Progress {
+        private final long searchedNodesCount;
+        private final int rootMovesDone;
+        private final int rootMovesCount;
+        private final long elapsedMs;
+
+        private Progress(long searchedNodesCount, int rootMovesDone, int rootMovesCount, long elapsedMs) {
+            this.searchedNodesCount = searchedNodesCount;
+            this.rootMovesDone = rootMovesDone;
+            this.rootMovesCount = rootMovesCount;
+            this.elapsedMs = elapsedMs;
+        }
+
+        /** Gets the number of nodes searched so far.
+         * <br>While the Perft is running, this number is approximate (nodes are reported by batches of a few thousands).
+         * @return a long
+         */
+        public long searchedNodesCount() {
+            return searchedNodesCount;
+        }
+
+        /** Gets the number of root moves whose subtree is fully explored.
+         * @return an int
+         */
+        public int rootMovesDone() {
+            return rootMovesDone;
+        }
+
+        /** Gets the number of root moves.
+         * @return an int (0 if the root moves are not generated yet)
+         */
+        public int rootMovesCount() {
+            return rootMovesCount;
+        }
+
+        /** Gets the time elapsed since the Perft started.
+         * @return a number of milliseconds
+         */
+        public long elapsedMs() {
+            return elapsedMs;
+        }
+
+        /** Gets the searched nodes rate.
+         * @return a number of nodes per second
+         */
+        public long nodesPerSecond() {
+            return elapsedMs == 0 ? 0 : searchedNodesCount * 1000 / elapsedMs;
+        }
+    }
+
+    /** A listener of the progress of Perft calls. */
+    @FunctionalInterface
+    public interface ProgressListener {
+        /** Called when a Perft progresses.
+         * <br>It is called at most once per progress interval (see {@link Perft#setProgressInterval(long)}), plus once when the Perft ends.
+         * It is called by the threads that run the Perft, so it should return quickly.
+         * @param progress The progress of the Perft
+         */
+        void onProgress(Progress progress);
+    }
+
+    private int parallelism = 1;
+    private TranspositionTable transpositionTable;
+    private PerftCache cache;
+    private ProgressListener progressListener;
+    private long progressInterval = 1000;
+    private long timeBudget;
+    private long nodesBudget;
+    /** The controls of the running calls. */
+    private final Set<Control> running = ConcurrentHashMap.newKeySet();
+
+    /** Gets the number of threads used to perform the Perft.
+     * @return a positive int
+     */
+    public int getParallelism() {
+        return parallelism;
+    }
+
+    /** Sets the number of threads used to perform the Perft.
+     * <br>When greater than 1, each root move (and each subtree deep enough) is explored in its own task,
+     * on its own copy of the board, by a work-stealing {@link ForkJoinPool}.
+     * @param parallelism The number of threads (default is 1).
+     * @throws IllegalArgumentException if parallelism is less than 1
+     */
+    public void setParallelism(int parallelism) {
+        if (parallelism<1) {
+            throw new IllegalArgumentException("Parallelism must be at least 1");
+        }
+        this.parallelism = parallelism;
     }
     
+    /** Gets the transposition table used to cache the subtrees leaf nodes count.
+     * @return a table or null if no table is used
+     */
+    public TranspositionTable getTranspositionTable() {
+        return transpositionTable;
+    }
+
+    /** Sets the transposition table used to cache the subtrees leaf nodes count.
+     * <br>When a table is used, the subtrees found in the table are not explored, so the searched nodes count
+     * of the result is lower than without table.
+     * <br>The table can be shared by the threads of a parallel Perft, and can be shared by successive Perft calls.
+     * @param transpositionTable The table, null (the default) to use no table.
+     */
+    public void setTranspositionTable(TranspositionTable transpositionTable) {
+        this.transpositionTable = transpositionTable;
+    }
+
+    /** Gets the persistent cache of the subtrees leaf nodes count.
+     * @return a cache or null if no cache is used
+     */
+    public PerftCache getCache() {
+        return cache;
+    }
+
+    /** Sets the persistent cache of the subtrees leaf nodes count.
+     * <br>The cache is looked up when a subtree of depth 3 or more is not in the transposition table. Like the table, it
+     * reduces the searched nodes count of the result, but it keeps its entries for the next runs (see {@link PerftCache}).
+     * <br>The cache should only be used with boards that use the move generator it was created for.
+     * @param cache The cache, null (the default) to use no cache.
+     */
+    public void setCache(PerftCache cache) {
+        this.cache = cache;
+    }
+
+    /** Gets the listener of the progress of Perft calls.
+     * @return a listener or null if no listener is set
+     */
+    public ProgressListener getProgressListener() {
+        return progressListener;
+    }
+
+    /** Sets the listener of the progress of Perft calls.
+     * @param progressListener The listener, null (the default) to publish no progress.
+     */
+    public void setProgressListener(ProgressListener progressListener) {
+        this.progressListener = progressListener;
+    }
+
+    /** Gets the minimum time between two progress notifications.
+     * @return a number of milliseconds
+     */
+    public long getProgressInterval() {
+        return progressInterval;
+    }
+
+    /** Sets the minimum time between two progress notifications.
+     * @param progressInterval A number of milliseconds (default is 1000)
+     * @throws IllegalArgumentException if progressInterval is negative
+     */
+    public void setProgressInterval(long progressInterval) {
+        if (progressInterval < 0) {
+            throw new IllegalArgumentException("Progress interval can't be negative");
+        }
+        this.progressInterval = progressInterval;
+    }
+
+    /** Gets the maximum duration of a Perft call.
+     * @return a number of milliseconds, 0 if the duration is not limited
+     */
+    public long getTimeBudget() {
+        return timeBudget;
+    }
+
+    /** Sets the maximum duration of a Perft call.
+     * <br>A call that exceeds its budget returns an incomplete result (see {@link Result#isComplete()}).
+     * @param timeBudget A number of milliseconds, 0 (the default) to not limit the duration
+     * @throws IllegalArgumentException if timeBudget is negative
+     */
+    public void setTimeBudget(long timeBudget) {
+        if (timeBudget < 0) {
+            throw new IllegalArgumentException("Time budget can't be negative");
+        }
+        this.timeBudget = timeBudget;
+    }
+
+    /** Gets the maximum number of nodes a Perft call can search.
+     * @return a number of nodes, 0 if it is not limited
+     */
+    public long getNodesBudget() {
+        return nodesBudget;
+    }
+
+    /** Sets the maximum number of nodes a Perft call can search.
+     * <br>A call that exceeds its budget returns an incomplete result (see {@link Result#isComplete()}). The budget is checked
+     * every few thousands of nodes, so the call may search slightly more nodes.
+     * @param nodesBudget A number of searched nodes, 0 (the default) to not limit it
+     * @throws IllegalArgumentException if nodesBudget is negative
+     */
+    public void setNodesBudget(long nodesBudget) {
+        if (nodesBudget < 0) {
+            throw new IllegalArgumentException("Nodes budget can't be negative");
+        }
+        this.nodesBudget = nodesBudget;
+    }
+
+    /** Cancels the Perft calls in progress.
+     * <br>The cancellation is cooperative, the calls return shortly after with an incomplete result (see {@link Result#isComplete()}).
+     * Calls that start after this method returns are not cancelled.
+     */
+    public void cancel() {
+        running.forEach(Control::cancel);
+    }
+
     /** Performs a non bulk Perft (Performance Test) calculation.
-     * @param board The board to run the performance test on.
+     * @param board The board to run the performance test on, the first moves are played by its side to move.
      * @param depth The depth to run the performance test to
-     * @param whitePlaying true if white is playing, false otherwise
      * @return a non null result
      */
-    public Result perft(Board board, int depth, boolean whitePlaying) {
-        return perft(board, depth, Type.NON_BULK, whitePlaying);
+    public Result perft(ChessBoard board, int depth) {
+        return perft(board, depth, Type.NON_BULK);
     }
 
     /**  Performs a Perft (Performance Test) calculation.
-     * @param board The board to run the performance test on.
+     * @param board The board to run the performance test on, the first moves are played by its side to move.
      * @param depth The depth to run the performance test to
      * @param type The type of Perft to run
-     * @param whitePlaying true if white is playing, false otherwise
      * @return a non null result
      */
-    public Result perft(Board board, int depth, Type type, boolean whitePlaying) {
+    public Result perft(ChessBoard board, int depth, Type type) {
         if (board==null) {
             throw new IllegalArgumentException("Board cannot be null");
         }
@@ -78,28 +386,359 @@ public class Perft {
     		throw new IllegalArgumentException("Depth must be greater than 0");
     	}
         final Result result = new Result();
-        result.leafNodesCount = perft(board, result, depth, depth, type, whitePlaying);
+        final Control control = new Control(progressListener, progressInterval, timeBudget, nodesBudget);
+        running.add(control);
+        try {
+            final long count;
+            if (parallelism==1 || depth==1) {
+                count = rootPerft(board, result, createMoveLists(depth), transpositionTable, cache, control, depth, type);
+            } else {
+                count = parallelPerft(board, result, control, depth, type);
+            }
+            result.complete = count != STOPPED;
+            result.leafNodesCount = result.complete ? count : result.nodesPerMove.values().stream().mapToLong(Long::longValue).sum();
+            control.end(result.searchedNodesCount);
+        } finally {
+            running.remove(control);
+        }
         return result;
     }
 
-    private long perft(Board board, Result result, int depth, int originalDepth, Type type, boolean whitePlaying) {
-        result.searchedNodesCount++;
-        final List<Move> moves = board.getMoves(whitePlaying);
-        if (depth == 1 && type == Type.NON_BULK) {
-            return moves.size();
-        } else if (depth == 0) {
-            return 1;
+    private long parallelPerft(ChessBoard board, Result result, Control control, int depth, Type type) {
+        final PerftTask root = new PerftTask(board.fork(), null, transpositionTable, cache, control, depth, type, true, false);
+        final ForkJoinPool pool = new ForkJoinPool(parallelism);
+        final long count;
+        try {
+            count = pool.invoke(root);
+        } finally {
+            pool.shutdown();
         }
+        result.add(root.result);
+        for (PerftTask child : root.children) {
+            if (child.count != STOPPED) {
+                result.nodesPerMove.put(child.move, child.count);
+            }
+        }
+        return count;
+    }
+
+    /** Creates the move lists used to explore a tree; one per ply.
+     * @param depth The depth of the tree
+     * @return an array of move lists indexed by remaining depth
+     */
+    private static MoveList[] createMoveLists(int depth) {
+        final MoveList[] moveLists = new MoveList[depth+1];
+        for (int i = 0; i < moveLists.length; i++) {
+            moveLists[i] = new MoveList();
+        }
+        return moveLists;
+    }
+
+    /** Counts the leaf nodes of the tree, and of the subtree of each root move.
+     * <br>The root is never cached, its divide is required.
+     * @return the number of leaf nodes, or {@link #STOPPED} if the Perft was stopped (the board is then restored, and the
+     * divide only contains the root moves explored before the stop)
+     */
+    private static long rootPerft(ChessBoard board, Result result, MoveList[] moveLists, TranspositionTable table, PerftCache cache, Control control, int depth, Type type) {
+        result.searchedNodesCount++;
+        final MoveList moves = moveLists[depth];
+        board.getMoves(moves);
+        control.setRootMovesCount(moves.size());
         long leafNodesCount = 0;
-        for (Move move : moves) {
+        for (int i = 0; i < moves.size(); i++) {
+            final int move = moves.get(i);
+            final PerftRootMoveEvent event = new PerftRootMoveEvent();
+            event.begin();
+            final long searched = result.searchedNodesCount;
             board.makeMove(move);
-            long moveCount = perft(board, result, depth - 1, originalDepth, type, !whitePlaying);
-            if (depth == originalDepth) {
-                result.nodesPerMove.put(move, moveCount);
+            final long moveCount = perft(board, result, moveLists, table, cache, control, depth - 1, type);
+            board.unmakeMove();
+            final Move rootMove = Move.of(move);
+            commit(event, rootMove, depth, moveCount, result.searchedNodesCount - searched);
+            if (moveCount == STOPPED) {
+                return STOPPED;
             }
+            result.nodesPerMove.put(rootMove, moveCount);
+            control.rootMoveDone();
             leafNodesCount += moveCount;
+        }
+        return leafNodesCount;
+    }
+
+    private static void commit(PerftRootMoveEvent event, Move move, int depth, long leafNodes, long searchedNodes) {
+        if (event.shouldCommit()) {
+            event.move = move.toString();
+            event.depth = depth;
+            event.complete = leafNodes != STOPPED;
+            event.leafNodes = event.complete ? leafNodes : 0;
+            event.searchedNodes = searchedNodes;
+            event.commit();
+        }
+    }
+
+    /** Counts the leaf nodes of a subtree that is not the root of the tree.
+     * @return the number of leaf nodes, or {@link #STOPPED} if the Perft was stopped (the board is then restored, but the
+     * counts of the unfinished subtrees are neither returned nor stored in the table)
+     */
+    private static long perft(ChessBoard board, Result result, MoveList[] moveLists, TranspositionTable table, PerftCache cache, Control control, int depth, Type type) {
+        // Trivial subtrees are not cached
+        final boolean cacheable = table != null && (depth > 1 || (depth == 1 && type == Type.BULK));
+        if (cacheable) {
+            result.transpositionTableProbes++;
+            final long cached = table.get(board.getHashKey(), depth);
+            if (cached >= 0) {
+                result.transpositionTableHits++;
+                return cached;
+            }
+        }
+        final boolean persistent = cache != null && depth >= MIN_CACHE_DEPTH;
+        if (persistent) {
+            final long cached = probe(cache, board, result, depth);
+            if (cached >= 0) {
+                if (cacheable) {
+                    table.store(board.getHashKey(), depth, cached);
+                }
+                return cached;
+            }
+        }
+        if (depth == 0) {
+            // Leaves of a bulk Perft do not need any move generation
+            return 1;
+        }
+        result.searchedNodesCount++;
+        if ((result.searchedNodesCount & CHECK_MASK) == 0 && control.update(CHECK_INTERVAL)) {
+            return STOPPED;
+        }
+        if (depth == 1 && type == Type.NON_BULK) {
+            // Moves at last depth are not played, so there's no need to build them
+            return board.countMoves();
+        }
+        final MoveList moves = moveLists[depth];
+        board.getMoves(moves);
+        long leafNodesCount = 0;
+        for (int i = 0; i < moves.size(); i++) {
+            board.makeMove(moves.get(i));
+            final long moveCount = perft(board, result, moveLists, table, cache, control, depth - 1, type);
             board.unmakeMove();
+            if (moveCount == STOPPED) {
+                return STOPPED;
+            }
+            leafNodesCount += moveCount;
+        }
+        if (cacheable) {
+            table.store(board.getHashKey(), depth, leafNodesCount);
+        }
+        if (persistent) {
+            cache.store(board.getHashKey(), depth, leafNodesCount);
         }
         return leafNodesCount;
     }
+
+    private static long probe(PerftCache cache, ChessBoard board, Result result, int depth) {
+        result.cacheProbes++;
+        final long cached = cache.get(board.getHashKey(), depth);
+        if (cached >= 0) {
+            result.cacheHits++;
+        }
+        return cached;
+    }
+
+    /** A task that counts the leaf nodes of a subtree using its own board.
+     * <br>Subtrees that are deep enough are split into one sub-task per move, others are explored sequentially.
+     */
+    private static class PerftTask extends RecursiveTask<Long> {
+        private static final long serialVersionUID = 1L;
+
+        private final transient ChessBoard board;
+        private final transient Move move;
+        private final transient TranspositionTable table;
+        private final transient PerftCache cache;
+        private final transient Control control;
+        private final int depth;
+        private final Type type;
+        private final boolean split;
+        /** true if this task explores the subtree of a root move. */
+        private final boolean rootMove;
+        private final transient List<PerftTask> children;
+        private final transient Result result;
+        /** The leaf nodes count of the subtree, {@link #STOPPED} if its exploration was stopped. */
+        private long count;
+
+        private PerftTask(ChessBoard board, Move move, TranspositionTable table, PerftCache cache, Control control, int depth, Type type, boolean split, boolean rootMove) {
+            this.board = board;
+            this.move = move;
+            this.table = table;
+            this.cache = cache;
+            this.control = control;
+            this.result = new Result();
+            this.depth = depth;
+            this.type = type;
+            this.split = split;
+            this.rootMove = rootMove;
+            this.children = new ArrayList<>();
+        }
+
+        @Override
+        protected Long compute() {
+            if (control.isStopped()) {
+                count = STOPPED;
+                return count;
+            }
+            final PerftRootMoveEvent event = rootMove ? new PerftRootMoveEvent() : null;
+            if (event != null) {
+                event.begin();
+            }
+            // Subtrees that are not split probe the table and the cache when they are explored, the root is never cached (its divide is required)
+            final long cached = !split || move == null ? -1 : probe(board, result);
+            if (cached >= 0) {
+                count = cached;
+            } else if (split) {
+                result.searchedNodesCount++;
+                for (Move child : board.getMoves()) {
+                    final ChessBoard childBoard = board.fork();
+                    childBoard.makeMove(child.toInt());
+                    children.add(new PerftTask(childBoard, child, table, cache, control, depth-1, type, depth-1>=MIN_SPLIT_DEPTH, move == null));
+                }
+                if (move == null) {
+                    control.setRootMovesCount(children.size());
+                }
+                invokeAll(children);
+                count = 0;
+                for (PerftTask child : children) {
+                    result.add(child.result);
+                    count = count == STOPPED || child.count == STOPPED ? STOPPED : count + child.count;
+                }
+                if (move != null && count != STOPPED) {
+                    store(board, count);
+                }
+            } else {
+                count = perft(board, result, createMoveLists(depth), table, cache, control, depth, type);
+                // Reports the nodes searched since the last check
+                control.update(result.searchedNodesCount & CHECK_MASK);
+            }
+            result.leafNodesCount = count == STOPPED ? 0 : count;
+            if (rootMove) {
+                // The task depth does not include the root move
+                commit(event, move, depth + 1, count, result.searchedNodesCount);
+                if (count != STOPPED) {
+                    control.rootMoveDone();
+                }
+            }
+            return count;
+        }
+
+        /** Looks up the subtree of a split task in the transposition table, then in the persistent cache.
+         * @return the leaf nodes count, or -1 if the subtree is neither in the table nor in the cache
+         */
+        private long probe(ChessBoard board, Result result) {
+            long cached = -1;
+            if (table != null) {
+                result.transpositionTableProbes++;
+                cached = table.get(board.getHashKey(), depth);
+                if (cached >= 0) {
+                    result.transpositionTableHits++;
+                    return cached;
+                }
+            }
+            if (cache != null) {
+                cached = Perft.probe(cache, board, result, depth);
+                if (cached >= 0 && table != null) {
+                    table.store(board.getHashKey(), depth, cached);
+                }
+            }
+            return cached;
+        }
+
+        private void store(ChessBoard board, long count) {
+            if (table != null) {
+                table.store(board.getHashKey(), depth, count);
+            }
+            if (cache != null) {
+                cache.store(board.getHashKey(), depth, count);
+            }
+        }
+    }
+
+    /** The cancellation, budgets and progress of a Perft call, shared by the threads that run it. */
+    private static class Control {
+        private final long start = System.nanoTime();
+        private final ProgressListener listener;
+        private final long progressIntervalNanos;
+        private final long timeBudgetNanos;
+        private final long nodesBudget;
+        private final AtomicLong searchedNodes = new AtomicLong();
+        private final AtomicInteger rootMovesDone = new AtomicInteger();
+        private volatile int rootMovesCount;
+        private volatile boolean stopped;
+        private volatile long nextProgress;
+
+        private Control(ProgressListener listener, long progressInterval, long timeBudget, long nodesBudget) {
+            this.listener = listener;
+            this.progressIntervalNanos = progressInterval * 1_000_000;
+            this.timeBudgetNanos = timeBudget * 1_000_000;
+            this.nodesBudget = nodesBudget;
+            this.nextProgress = start + progressIntervalNanos;
+        }
+
+        private boolean isStopped() {
+            return stopped;
+        }
+
+        private void cancel() {
+            stopped = true;
+        }
+
+        private void setRootMovesCount(int rootMovesCount) {
+            this.rootMovesCount = rootMovesCount;
+        }
+
+        private void rootMoveDone() {
+            rootMovesDone.incrementAndGet();
+        }
+
+        /** Reports searched nodes and checks whether the Perft should stop.
+         * <br>It is called every {@link Perft#CHECK_INTERVAL} nodes by each thread, so it can afford reading the clock.
+         * @param nodes The number of nodes searched since the last call
+         * @return true if the Perft should stop
+         */
+        private boolean update(long nodes) {
+            final long total = searchedNodes.addAndGet(nodes);
+            if (stopped) {
+                return true;
+            }
+            if (nodesBudget > 0 && total >= nodesBudget) {
+                stopped = true;
+                return true;
+            }
+            if (timeBudgetNanos == 0 && listener == null) {
+                return false;
+            }
+            final long now = System.nanoTime();
+            if (timeBudgetNanos > 0 && now - start >= timeBudgetNanos) {
+                stopped = true;
+                return true;
+            }
+            if (listener != null && now - nextProgress >= 0) {
+                publish(now, total, false);
+            }
+            return false;
+        }
+
+        /** Publishes the last progress of the call.
+         * @param searchedNodesCount The exact number of searched nodes
+         */
+        private void end(long searchedNodesCount) {
+            if (listener != null) {
+                publish(System.nanoTime(), searchedNodesCount, true);
+            }
+        }
+
+        private synchronized void publish(long now, long searchedNodesCount, boolean last) {
+            // Another thread may have published the progress while this one was waiting for the lock
+            if (last || now - nextProgress >= 0) {
+                nextProgress = now + progressIntervalNanos;
+                listener.onProgress(new Progress(searchedNodesCount, rootMovesDone.get(), rootMovesCount, (now - start) / 1_000_000));
+            }
+        }
+    }
 }
@@ -0,0 +1,195 @@
+package com.fathzer.chess;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/** A persistent cache of the leaf nodes count of Perft subtrees, stored in a memory-mapped file.
+ * <br>Unlike a {@link TranspositionTable}, the cache survives the end of the process: a later run (or another process) that
+ * opens the same file finds the subtrees counted by the previous ones.
+ * <br>The file has a fixed layout: a {@value #HEADER_SIZE} bytes header (magic number, number of entries and move generator
+ * name), followed by the entries. Each entry is made of two longs, the xor of the entry key and its data, then the data. Entries
+ * are grouped in buckets of {@value #BUCKET_SIZE} consecutive entries: an entry can be stored in any slot of the bucket its key
+ * selects, and when the bucket is full, the entry with the lowest count, that is the cheapest to recompute, is replaced.
+ * <br>Like the transposition table, the cache is lock-free. It can be shared by the threads of a Perft and by several processes
+ * that map the same file: an entry partially overwritten by another thread or process is detected when read, because its two
+ * longs do not match anymore, and is considered as missing.
+ * <br>The leaf nodes count of a position depends on the move generator. A file is tied to the move generator name it was
+ * created with, so that the counts of a basic move generator are never returned to a Perft that uses a legal one.
+ */
+public class PerftCache implements AutoCloseable {
+    /** "HJPERFT1" in ASCII. */
+    private static final long MAGIC = 0x484A504552465431L;
+    private static final int HEADER_SIZE = 64;
+    private static final int NAME_OFFSET = 16;
+    private static final int MAX_NAME_LENGTH = HEADER_SIZE - NAME_OFFSET;
+    private static final int BYTES_PER_ENTRY = 2 * Long.BYTES;
+    private static final int BUCKET_SIZE = 4;
+    /** The maximum number of entries, so that the whole file can be mapped in a single buffer. */
+    private static final int MAX_ENTRIES = 1 << 26;
+    /** The maximum size of the entries in MB. */
+    public static final int MAX_SIZE_MB = (int)(((long)MAX_ENTRIES * BYTES_PER_ENTRY) >> 20);
+
+    private final FileChannel channel;
+    private final MappedByteBuffer entries;
+    private final int bucketMask;
+
+    /** Opens a cache file.
+     * <br>The file is created if it does not exist. Otherwise, its size is the one of its creation.
+     * @param file The cache file
+     * @param sizeMB The size of the entries in MB, at most {@value #MAX_SIZE_MB}, used only if the file is created. The number of entries
+     * is rounded down to a power of 2.
+     * @param generator The name of the move generator of the boards the cache is used with
+     * @throws IllegalArgumentException if size is not strictly positive or greater than {@value #MAX_SIZE_MB}, if the name is too long, or if the file is not a
+     * cache or was created with another move generator
+     * @throws IOException if the file can't be opened or mapped
+     */
+    public PerftCache(Path file, int sizeMB, String generator) throws IOException {
+        if (sizeMB < 1) {
+            throw new IllegalArgumentException("Size must be at least 1 MB");
+        }
+        if (sizeMB > MAX_SIZE_MB) {
+            throw new IllegalArgumentException("Size must be at most " + MAX_SIZE_MB + " MB");
+        }
+        final byte[] name = generator.getBytes(StandardCharsets.UTF_8);
+        if (name.length > MAX_NAME_LENGTH) {
+            throw new IllegalArgumentException("Generator name is too long: " + generator);
+        }
+        this.channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        try {
+            final int entriesCount = init(file, ((long)sizeMB << 20) / BYTES_PER_ENTRY, name, generator);
+            this.entries = channel.map(FileChannel.MapMode.READ_WRITE, HEADER_SIZE, (long)entriesCount * BYTES_PER_ENTRY);
+            this.bucketMask = entriesCount / BUCKET_SIZE - 1;
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /** Creates the header of the file if it is empty, or checks it.
+     * @return the number of entries of the file
+     */
+    private int init(Path file, long maxEntries, byte[] name, String generator) throws IOException {
+        final ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+        // The file lock prevents two processes from creating the file at the same time, but it can't be held twice by the same JVM
+        synchronized (PerftCache.class) {
+            final FileLock lock = channel.lock();
+            try {
+                if (channel.size() == 0) {
+                    final int entriesCount = Integer.highestOneBit((int)Math.max(maxEntries, BUCKET_SIZE));
+                    header.putLong(MAGIC).putInt(entriesCount).putInt(name.length).put(name).clear();
+                    // Writing the last byte allocates the (sparse) file
+                    channel.write(ByteBuffer.allocate(1), HEADER_SIZE + (long)entriesCount * BYTES_PER_ENTRY - 1);
+                    channel.write(header, 0);
+                    return entriesCount;
+                }
+                channel.read(header, 0);
+                header.flip();
+                if (header.remaining() < HEADER_SIZE || header.getLong() != MAGIC) {
+                    throw new IllegalArgumentException(file + " is not a Perft cache");
+                }
+                final int entriesCount = header.getInt();
+                final int nameLength = header.getInt();
+                if (Integer.bitCount(entriesCount) != 1 || entriesCount < BUCKET_SIZE || entriesCount > MAX_ENTRIES
+                        || nameLength < 0 || nameLength > MAX_NAME_LENGTH
+                        || channel.size() < HEADER_SIZE + (long)entriesCount * BYTES_PER_ENTRY) {
+                    throw new IllegalArgumentException(file + " is not a valid Perft cache");
+                }
+                final byte[] savedName = new byte[nameLength];
+                header.get(savedName);
+                final String saved = new String(savedName, StandardCharsets.UTF_8);
+                if (!saved.equals(generator)) {
+                    throw new IllegalArgumentException(file + " is a Perft cache of the " + saved + " move generator");
+                }
+                return entriesCount;
+            } finally {
+                lock.release();
+            }
+        }
+    }
+
+    /** Gets the number of entries of this cache.
+     * @return an int
+     */
+    public int size() {
+        return (bucketMask + 1) * BUCKET_SIZE;
+    }
+
+    /** Removes all the entries of this cache.
+     * <br>Please note the entries are also removed for the other processes that use the same file.
+     */
+    public void clear() {
+        for (int i = 0; i < entries.capacity(); i += Long.BYTES) {
+            entries.putLong(i, 0L);
+        }
+    }
+
+    private int getBucket(long key) {
+        return ((int)key & bucketMask) * BUCKET_SIZE * BYTES_PER_ENTRY;
+    }
+
+    /** Gets the leaf nodes count of a subtree.
+     * @param hashKey The hash key of the subtree's root position
+     * @param depth The depth of the subtree
+     * @return the leaf nodes count, or -1 if the subtree is not in the cache
+     */
+    public long get(long hashKey, int depth) {
+        final long key = TranspositionTable.getKey(hashKey, depth);
+        final int bucket = getBucket(key);
+        for (int index = bucket; index < bucket + BUCKET_SIZE * BYTES_PER_ENTRY; index += BYTES_PER_ENTRY) {
+            final long data = entries.getLong(index + Long.BYTES);
+            if ((entries.getLong(index) ^ data) == key) {
+                return data;
+            }
+        }
+        return -1;
+    }
+
+    /** Stores the leaf nodes count of a subtree.
+     * <br>It replaces the entry of the same subtree if any, otherwise the entry of its bucket with the lowest count.
+     * @param hashKey The hash key of the subtree's root position
+     * @param depth The depth of the subtree
+     * @param leafNodesCount The leaf nodes count of the subtree
+     */
+    public void store(long hashKey, int depth, long leafNodesCount) {
+        final long key = TranspositionTable.getKey(hashKey, depth);
+        final int bucket = getBucket(key);
+        int target = bucket;
+        long lowest = Long.MAX_VALUE;
+        for (int index = bucket; index < bucket + BUCKET_SIZE * BYTES_PER_ENTRY; index += BYTES_PER_ENTRY) {
+            final long data = entries.getLong(index + Long.BYTES);
+            if ((entries.getLong(index) ^ data) == key) {
+                target = index;
+                break;
+            }
+            // Empty entries have a 0 count, and entries partially overwritten may have a negative one
+            if (data < lowest) {
+                lowest = data;
+                target = index;
+            }
+        }
+        entries.putLong(target, key ^ leafNodesCount);
+        entries.putLong(target + Long.BYTES, leafNodesCount);
+    }
+
+    /** Writes the entries to the storage device.
+     * <br>This is not required for other processes to see the entries, only to survive a system crash.
+     */
+    public void force() {
+        entries.force();
+    }
+
+    /** Writes the entries to the storage device and closes the file.
+     * <br>The cache should not be used after being closed.
+     */
+    @Override
+    public void close() throws IOException {
+        force();
+        channel.close();
+    }
+}
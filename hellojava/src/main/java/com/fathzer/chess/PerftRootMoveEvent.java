@@ -0,0 +1,27 @@
+package com.fathzer.chess;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/** A Flight Recorder event that spans the exploration of the subtree of a {@link Perft} root move. */
+@Name("com.fathzer.chess.PerftRootMove")
+@Label("Perft Root Move")
+@Category({"HelloJava", "Chess"})
+@Description("The exploration of the subtree of a root move by Perft")
+final class PerftRootMoveEvent extends Event {
+    @Label("Move")
+    String move;
+    @Label("Depth")
+    @Description("The depth of the Perft, including the root move")
+    int depth;
+    @Label("Leaf Nodes")
+    long leafNodes;
+    @Label("Searched Nodes")
+    long searchedNodes;
+    @Label("Complete")
+    @Description("false if the Perft was stopped before the end of the subtree")
+    boolean complete;
+}
@@ -0,0 +1,101 @@
+package com.fathzer.chess;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/** A worker that counts the positions sent by a {@link DistributedPerft} coordinator.
+ * <br>The positions are counted one at a time by a local {@link Perft}, that can be parallel and use a transposition table
+ * (positions of the same run may share subtrees).
+ * <br>While a position is counted, a daemon thread tells the coordinator the worker is alive.
+ */
+public class PerftWorker {
+    private final ChessBoard.Type boardType;
+    private final Perft perft;
+
+    /** Constructor.
+     * @param boardType The type of board used to count the positions
+     * @param perft The Perft used to count the positions
+     */
+    public PerftWorker(ChessBoard.Type boardType, Perft perft) {
+        this.boardType = boardType;
+        this.perft = perft;
+    }
+
+    /** Connects to a coordinator and counts the positions it sends, until it quits or closes the connection.
+     * @param host The coordinator host
+     * @param port The coordinator port
+     * @return The number of positions counted
+     * @throws IOException if the connection fails or if the coordinator sends an invalid request
+     */
+    public int run(String host, int port) throws IOException {
+        int count = 0;
+        final ScheduledExecutorService heartbeat = Executors.newSingleThreadScheduledExecutor(r -> {
+            final Thread thread = new Thread(r, "perft-worker-heartbeat");
+            thread.setDaemon(true);
+            return thread;
+        });
+        try (Socket socket = new Socket(host, port);
+                BufferedReader in = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8));
+                Writer out = new BufferedWriter(new OutputStreamWriter(socket.getOutputStream(), StandardCharsets.UTF_8))) {
+            send(out, DistributedPerft.HELLO);
+            for (String request = in.readLine(); request != null && !DistributedPerft.QUIT.equals(request); request = in.readLine()) {
+                // The FEN contains spaces, it is the last part of the request
+                final String[] parts = request.split(" ", 4);
+                if (parts.length != 4 || !DistributedPerft.PERFT.equals(parts[0])) {
+                    throw new IOException("Unexpected request: " + request);
+                }
+                final String busy = DistributedPerft.BUSY + " " + parts[1];
+                final ScheduledFuture<?> alive = heartbeat.scheduleAtFixedRate(() -> {
+                    try {
+                        send(out, busy);
+                    } catch (IOException e) {
+                        // The connection is broken, the next response will fail too
+                    }
+                }, DistributedPerft.HEARTBEAT_PERIOD, DistributedPerft.HEARTBEAT_PERIOD, TimeUnit.MILLISECONDS);
+                final String response;
+                try {
+                    response = count(parts);
+                } finally {
+                    alive.cancel(false);
+                }
+                send(out, response);
+                count++;
+            }
+        } finally {
+            heartbeat.shutdownNow();
+        }
+        return count;
+    }
+
+    private static void send(Writer out, String line) throws IOException {
+        // The heartbeat thread and the counting one share the connection
+        synchronized (out) {
+            out.write(line + "\n");
+            out.flush();
+        }
+    }
+
+    private String count(String[] parts) {
+        final String id = parts[1];
+        try {
+            final Perft.Result result = perft.perft(boardType.create(parts[3]), Integer.parseInt(parts[2]));
+            if (!result.isComplete()) {
+                return DistributedPerft.ERROR + " " + id + " Perft was stopped";
+            }
+            return DistributedPerft.RESULT + " " + id + " " + result.leafNodesCount() + " " + result.searchedNodesCount();
+        } catch (RuntimeException e) {
+            // An invalid position, or a position the board does not support
+            return DistributedPerft.ERROR + " " + id + " " + String.valueOf(e.getMessage()).replace('\n', ' ');
+        }
+    }
+}
@@ -0,0 +1,84 @@
+package com.fathzer.chess;
+
+import java.util.Arrays;
+
+/** A fixed size hash table that caches the leaf nodes count of Perft subtrees.
+ * <br>Entries are keyed on the position hash key (that includes the side to move) and the remaining depth.
+ * <br>This table is lock-free and can be shared by the threads of a parallel Perft: Each entry is stored in two longs,
+ * the first one being the xor of the entry key and its data. An entry partially overwritten by another thread is
+ * detected when read, because its two longs do not match anymore, and is considered as missing.
+ */
+public class TranspositionTable {
+    private static final int BYTES_PER_ENTRY = 2 * Long.BYTES;
+    /** An odd constant used to spread the depth over the key bits. */
+    private static final long DEPTH_MULTIPLIER = 0x9E3779B97F4A7C15L;
+    /** The maximum number of entries, so that the two longs of each entry fit in a single array. */
+    private static final int MAX_ENTRIES = 1 << 29;
+    /** The maximum size of the table in MB. */
+    public static final int MAX_SIZE_MB = (int)(((long)MAX_ENTRIES * BYTES_PER_ENTRY) >> 20);
+
+    private final long[] entries;
+    private final int mask;
+
+    /** Constructor.
+     * @param sizeMB The size of the table in MB, at most {@value #MAX_SIZE_MB}. The number of entries is rounded down to a power of 2.
+     * @throws IllegalArgumentException if size is not strictly positive or greater than {@value #MAX_SIZE_MB}
+     */
+    public TranspositionTable(int sizeMB) {
+        if (sizeMB < 1) {
+            throw new IllegalArgumentException("Size must be at least 1 MB");
+        }
+        if (sizeMB > MAX_SIZE_MB) {
+            throw new IllegalArgumentException("Size must be at most " + MAX_SIZE_MB + " MB");
+        }
+        final int entriesCount = Integer.highestOneBit((int)(((long)sizeMB << 20) / BYTES_PER_ENTRY));
+        this.entries = new long[2 * entriesCount];
+        this.mask = entriesCount - 1;
+    }
+
+    /** Gets the number of entries of this table.
+     * @return an int
+     */
+    public int size() {
+        return mask + 1;
+    }
+
+    /** Removes all the entries of this table. */
+    public void clear() {
+        Arrays.fill(entries, 0L);
+    }
+
+    /** Gets the key of a subtree.
+     * @param hashKey The hash key of the subtree's root position
+     * @param depth The depth of the subtree
+     * @return a long
+     */
+    static long getKey(long hashKey, int depth) {
+        return hashKey ^ (depth * DEPTH_MULTIPLIER);
+    }
+
+    /** Gets the leaf nodes count of a subtree.
+     * @param hashKey The hash key of the subtree's root position
+     * @param depth The depth of the subtree
+     * @return the leaf nodes count, or -1 if the subtree is not in the table
+     */
+    public long get(long hashKey, int depth) {
+        final long key = getKey(hashKey, depth);
+        final int index = 2 * ((int)key & mask);
+        final long data = entries[index + 1];
+        return (entries[index] ^ data) == key ? data : -1;
+    }
+
+    /** Stores the leaf nodes count of a subtree.
+     * <br>It replaces the entry previously stored at the same place, if any.
+     * @param hashKey The hash key of the subtree's root position
+     * @param depth The depth of the subtree
+     * @param leafNodesCount The leaf nodes count of the subtree
+     */
+    public void store(long hashKey, int depth, long leafNodesCount) {
+        final long key = getKey(hashKey, depth);
+        final int index = 2 * ((int)key & mask);
+        entries[index] = key ^ leafNodesCount;
+        entries[index + 1] = leafNodesCount;
+    }
+}
@@ -0,0 +1,62 @@
+package com.fathzer.chess;
+
+import java.util.Random;
+
+/** The random keys used to compute <a href="https://www.chessprogramming.org/Zobrist_Hashing">Zobrist</a> hash keys of positions.
+ * <br>Keys are indexed by mailbox (10x12) square and are generated with a fixed seed, so all board implementations,
+ * and all JVMs, compute the same key for the same position.
+ */
+final class Zobrist {
+    private static final long[][] PIECE_SQUARE_KEYS = new long[Piece.values().length][120];
+    /** The key to xor with a position key when white is to move. */
+    static final long WHITE_TO_MOVE;
+    /** The keys of castling rights combinations, the one of no rights is 0. */
+    private static final long[] CASTLING_KEYS = new long[16];
+    /** The keys of en passant squares, the one of no square (0) is 0. */
+    private static final long[] EN_PASSANT_KEYS = new long[120];
+
+    static {
+        final Random random = new Random(0x2B0B715L);
+        for (long[] keys : PIECE_SQUARE_KEYS) {
+            for (int square = 0; square < keys.length; square++) {
+                keys[square] = random.nextLong();
+            }
+        }
+        WHITE_TO_MOVE = random.nextLong();
+        // These keys are drawn after the others, so positions without castling rights nor en passant square keep their keys
+        for (int rights = 1; rights < CASTLING_KEYS.length; rights++) {
+            CASTLING_KEYS[rights] = random.nextLong();
+        }
+        for (int square = 1; square < EN_PASSANT_KEYS.length; square++) {
+            EN_PASSANT_KEYS[square] = random.nextLong();
+        }
+    }
+
+    private Zobrist() {
+    }
+
+    /** Gets the key of a piece on a square.
+     * @param piece The piece
+     * @param square The mailbox index of the square
+     * @return a long
+     */
+    static long get(Piece piece, int square) {
+        return PIECE_SQUARE_KEYS[piece.ordinal()][square];
+    }
+
+    /** Gets the key of castling rights.
+     * @param castlingRights The castling rights (see {@link ChessBoard#getCastlingRights()})
+     * @return a long, 0 if there's no castling right
+     */
+    static long getCastling(int castlingRights) {
+        return CASTLING_KEYS[castlingRights];
+    }
+
+    /** Gets the key of an en passant square.
+     * @param square The mailbox index of the square, 0 if there is no en passant square
+     * @return a long, 0 if there's no en passant square
+     */
+    static long getEnPassant(int square) {
+        return EN_PASSANT_KEYS[square];
+    }
+}
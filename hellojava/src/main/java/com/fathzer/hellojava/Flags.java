@@ -1,5 +1,8 @@
 package com.fathzer.hellojava;
 
+import com.fathzer.chess.ChessBoard;
+import com.fathzer.pi.PiCalculator;
+
 public class Flags {
     private Flags() {}
 
@@ -10,6 +13,69 @@ public class Flags {
         return piLoops;
     }
 
+    public static int parsePiDigits(String[] args) {
+        int piDigits = 0; // default value
+        piDigits = parseIntegerArgument(args, "--piDigits=", piDigits);
+        piDigits = parseIntegerArgument(args, "-pdi=", piDigits);
+        return piDigits;
+    }
+
+    public static String parsePiOutput(String[] args) {
+        String output = null; // default value
+        output = parseStringArgument(args, "--piOutput=", output);
+        output = parseStringArgument(args, "-po=", output);
+        return output;
+    }
+
+    public static boolean parsePiOffHeap(String[] args) {
+        String offHeap = "false"; // default value
+        offHeap = parseStringArgument(args, "--piOffHeap=", offHeap);
+        offHeap = parseStringArgument(args, "-poh=", offHeap);
+        if (!"true".equalsIgnoreCase(offHeap) && !"false".equalsIgnoreCase(offHeap)) {
+            throw new IllegalArgumentException("Invalid value for --piOffHeap=: " + offHeap);
+        }
+        return Boolean.parseBoolean(offHeap);
+    }
+
+    public static PiCalculator.Algorithm parsePiAlgorithm(String[] args) {
+        String algorithm = "series"; // default value
+        algorithm = parseStringArgument(args, "--piAlgorithm=", algorithm);
+        algorithm = parseStringArgument(args, "-pa=", algorithm);
+        try {
+            return PiCalculator.Algorithm.valueOf(algorithm.toUpperCase());
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Invalid value for --piAlgorithm=: " + algorithm, e);
+        }
+    }
+
+    public static boolean parsePiCache(String[] args) {
+        String piCache = "false"; // default value
+        piCache = parseStringArgument(args, "--piCache=", piCache);
+        piCache = parseStringArgument(args, "-pc=", piCache);
+        if (!"true".equalsIgnoreCase(piCache) && !"false".equalsIgnoreCase(piCache)) {
+            throw new IllegalArgumentException("Invalid value for --piCache=: " + piCache);
+        }
+        return Boolean.parseBoolean(piCache);
+    }
+
+    public static Main.Reduction parsePiReduction(String[] args) {
+        String reduction = "reduce"; // default value
+        reduction = parseStringArgument(args, "--piReduction=", reduction);
+        reduction = parseStringArgument(args, "-pr=", reduction);
+        try {
+            return Main.Reduction.valueOf(reduction.toUpperCase());
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Invalid value for --piReduction=: " + reduction, e);
+        }
+    }
+
+    public static TaskExecutor parseExecutor(String[] args) {
+        String executor = "forkjoin"; // default value
+        executor = parseStringArgument(args, "--executor=", executor);
+        executor = parseStringArgument(args, "-e=", executor);
+        return TaskExecutor.parse(executor);
+    }
+
     public static int parsePerftDepth(String[] args) {
         int perftDepth = 5; // default value
         perftDepth = parseIntegerArgument(args, "--perftDepth=", perftDepth);
@@ -17,6 +83,103 @@ public class Flags {
         return perftDepth;
     }
 
+    public static int parsePerftThreads(String[] args) {
+        int perftThreads = 1; // default value
+        perftThreads = parseIntegerArgument(args, "--perftThreads=", perftThreads);
+        perftThreads = parseIntegerArgument(args, "-pt=", perftThreads);
+        return perftThreads;
+    }
+
+    public static int parsePerftHashSize(String[] args) {
+        int perftHashSize = 0; // default value
+        perftHashSize = parseIntegerArgument(args, "--perftHash=", perftHashSize);
+        perftHashSize = parseIntegerArgument(args, "-ph=", perftHashSize);
+        return perftHashSize;
+    }
+
+    public static String parsePerftCache(String[] args) {
+        String perftCache = null; // default value
+        perftCache = parseStringArgument(args, "--perftCache=", perftCache);
+        perftCache = parseStringArgument(args, "-pf=", perftCache);
+        return perftCache;
+    }
+
+    public static int parsePerftCacheSize(String[] args) {
+        int perftCacheSize = 64; // default value
+        perftCacheSize = parseIntegerArgument(args, "--perftCacheSize=", perftCacheSize);
+        perftCacheSize = parseIntegerArgument(args, "-pcs=", perftCacheSize);
+        return perftCacheSize;
+    }
+
+    public static ChessBoard.Type parseBoardType(String[] args) {
+        String boardType = "mailbox"; // default value
+        boardType = parseStringArgument(args, "--board=", boardType);
+        boardType = parseStringArgument(args, "-b=", boardType);
+        try {
+            return ChessBoard.Type.valueOf(boardType.toUpperCase());
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Invalid value for --board=: " + boardType, e);
+        }
+    }
+
+    public static String parseSuite(String[] args) {
+        String suite = null; // default value
+        suite = parseStringArgument(args, "--suite=", suite);
+        suite = parseStringArgument(args, "-s=", suite);
+        return suite;
+    }
+
+    public static PerftSuite.Shard parseShard(String[] args) {
+        String shard = "0/1"; // default value
+        shard = parseStringArgument(args, "--shard=", shard);
+        shard = parseStringArgument(args, "-sh=", shard);
+        return PerftSuite.Shard.parse(shard);
+    }
+
+    public static int parseCoordinator(String[] args) {
+        int port = 0; // default value
+        port = parseIntegerArgument(args, "--coordinator=", port);
+        port = parseIntegerArgument(args, "-co=", port);
+        return port;
+    }
+
+    public static String parseWorker(String[] args) {
+        String worker = null; // default value
+        worker = parseStringArgument(args, "--worker=", worker);
+        worker = parseStringArgument(args, "-w=", worker);
+        return worker;
+    }
+
+    public static int parseSplitDepth(String[] args) {
+        int splitDepth = 2; // default value
+        splitDepth = parseIntegerArgument(args, "--splitDepth=", splitDepth);
+        splitDepth = parseIntegerArgument(args, "-sd=", splitDepth);
+        return splitDepth;
+    }
+
+    public static String parseCheckpoint(String[] args) {
+        String checkpoint = null; // default value
+        checkpoint = parseStringArgument(args, "--checkpoint=", checkpoint);
+        checkpoint = parseStringArgument(args, "-cp=", checkpoint);
+        return checkpoint;
+    }
+
+    public static String parseJfr(String[] args) {
+        String jfr = null; // default value
+        jfr = parseStringArgument(args, "--jfr=", jfr);
+        jfr = parseStringArgument(args, "-j=", jfr);
+        return jfr;
+    }
+
+    private static String parseStringArgument(String[] args, String prefix, String defaultValue) {
+        for (String arg : args) {
+            if (arg.startsWith(prefix)) {
+                return arg.substring(prefix.length());
+            }
+        }
+        return defaultValue;
+    }
+
     private static int parseIntegerArgument(String[] args, String prefix, int defaultValue) {
         for (String arg : args) {
             if (arg.startsWith(prefix)) {
@@ -31,8 +194,27 @@ public class Flags {
     }
 
     public static void printUsage() {
-        System.out.println("Usage: java Main [--piLoops=<number>] [--perftDepth=<number>]");
+        System.out.println("Usage: java Main [--piLoops=<number>] [--piAlgorithm=series|binary_splitting|fixed_point] [--piCache=true|false] [--piDigits=<number>] [--piOutput=<file>] [--piOffHeap=true|false] [--piReduction=reduce|lock] [--executor=forkjoin|fixed:<number>|virtual|structured] [--perftDepth=<number>] [--perftThreads=<number>] [--board=mailbox|bitboard|legal|lookup|copy_make] [--perftHash=<MB>] [--perftCache=<file>] [--perftCacheSize=<MB>] [--suite=<file>] [--shard=<index>/<count>] [--coordinator=<port>] [--worker=<host>:<port>] [--splitDepth=<number>] [--checkpoint=<file>] [--jfr=<file>]");
         System.out.println("  --piLoops=<number>  Number of Pi calculations to perform (default: 2000)");
+        System.out.println("  --piAlgorithm=series|binary_splitting|fixed_point  Algorithm used to compute Pi, fixed_point is the series on mutable numbers (default: series)");
+        System.out.println("  --piCache=true|false  Reuse the previous Pi calculations instead of computing each one from scratch (default: false)");
+        System.out.println("  --piDigits=<number>  Computes Pi once with this number of digits after the concurrency test, using binary splitting, 0 to disable it (default: 0)");
+        System.out.println("  --piOutput=<file>  File where the digits of the Pi test are written, without building them in memory (default: none)");
+        System.out.println("  --piOffHeap=true|false  Stores the largest numbers of the Pi computations outside the heap (default: false)");
+        System.out.println("  --piReduction=reduce|lock  How the Pi values are summed, by a parallel reduction or in a synchronized block (default: reduce)");
+        System.out.println("  --executor=forkjoin|fixed:<number>|virtual|structured  How the Pi calculations are scheduled (default: forkjoin)");
         System.out.println("  --perftDepth=<number>  Depth of Perft (Performance Test) to perform (default: 5)");
+        System.out.println("  --perftThreads=<number>  Number of threads used by Perft (default: 1)");
+        System.out.println("  --board=mailbox|bitboard|legal|lookup|copy_make  Board implementation used by Perft, legal is the mailbox with a strictly legal move generator, lookup the mailbox with its basic generator driven by precomputed tables, copy_make a mailbox that unmakes moves by restoring copies (default: mailbox)");
+        System.out.println("  --perftHash=<MB>  Size of the Perft transposition table in MB, at most 8192, 0 to disable it (default: 0)");
+        System.out.println("  --perftCache=<file>  Memory-mapped file that caches the Perft subtrees counts across runs and processes (default: none)");
+        System.out.println("  --perftCacheSize=<MB>  Size of the Perft cache file in MB when it is created, at most 1024 (default: 64)");
+        System.out.println("  --suite=<file>  EPD file of Perft positions to check instead of the default Perft test, results are written as JSON lines");
+        System.out.println("  --shard=<index>/<count>  Checks only the lines of the suite file whose (line number - 1) modulo count is index (default: 0/1)");
+        System.out.println("  --coordinator=<port>  Distributes the Perft of the initial position to the workers that connect to this port instead of the default Perft test (default: 0, not distributed)");
+        System.out.println("  --worker=<host>:<port>  Counts the positions sent by the coordinator at this address instead of the default Perft test");
+        System.out.println("  --splitDepth=<number>  Depth of the positions the coordinator sends to the workers (default: 2)");
+        System.out.println("  --checkpoint=<file>  File where the coordinator saves the counted positions, an interrupted run is resumed from this file");
+        System.out.println("  --jfr=<file>  Records the run with Java Flight Recorder in the given file, and enables the chess move counters");
     }
 }
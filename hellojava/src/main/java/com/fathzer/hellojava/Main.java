@@ -1,37 +1,155 @@
 package com.fathzer.hellojava;
 
-import static com.fathzer.pi.PiCalculator.computePi;
-
+import java.io.IOException;
 import java.math.BigDecimal;
+import java.math.BigInteger;
 import java.math.RoundingMode;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.text.ParseException;
 import java.util.concurrent.atomic.AtomicReference;
-import java.util.stream.IntStream;
+import java.util.function.IntFunction;
 
-import com.fathzer.chess.Board;
+import com.fathzer.chess.ChessBoard;
+import com.fathzer.chess.DistributedPerft;
+import com.fathzer.chess.MoveCounters;
 import com.fathzer.chess.Perft;
 import com.fathzer.chess.Perft.Result;
+import com.fathzer.chess.PerftCache;
+import com.fathzer.chess.PerftWorker;
+import com.fathzer.chess.Piece;
+import com.fathzer.chess.TranspositionTable;
 import com.fathzer.oop.ACoolThing;
 import com.fathzer.oop.AbstractThing;
 import com.fathzer.oop.CoolInterface;
+import com.fathzer.pi.DecimalWriter;
+import com.fathzer.pi.IncrementalPiCalculator;
+import com.fathzer.pi.PiCalculator;
+
+import jdk.jfr.Configuration;
+import jdk.jfr.Recording;
 
 public class Main {
+    /** The ways the concurrency test sums the computed values. */
+    public enum Reduction {
+        /** Each task adds its value to a shared sum in a synchronized block. */
+        LOCK,
+        /** The values are summed by the parallel stream, without any shared state. */
+        REDUCE
+    }
+
     public static void main(String[] args) {
         try {
+            String jfr = Flags.parseJfr(args);
+            if (jfr != null) {
+                // The counters are read once, so they should be enabled before any move is generated
+                System.setProperty(MoveCounters.ENABLED_PROPERTY, "true");
+            }
             int piLoops = Flags.parsePiLoops(args);
+            PiCalculator.Algorithm piAlgorithm = Flags.parsePiAlgorithm(args);
+            boolean piCache = Flags.parsePiCache(args);
+            int piDigits = Flags.parsePiDigits(args);
+            String piOutput = Flags.parsePiOutput(args);
+            if (Flags.parsePiOffHeap(args)) {
+                // The storage is chosen once, before the first Pi computation
+                System.setProperty(PiCalculator.OFF_HEAP_PROPERTY, "true");
+            }
+            Reduction piReduction = Flags.parsePiReduction(args);
+            TaskExecutor executor = Flags.parseExecutor(args);
             int perftDepth = Flags.parsePerftDepth(args);
+            int perftThreads = Flags.parsePerftThreads(args);
+            ChessBoard.Type boardType = Flags.parseBoardType(args);
+            int perftHashSize = Flags.parsePerftHashSize(args);
+            String suite = Flags.parseSuite(args);
+            PerftSuite.Shard shard = Flags.parseShard(args);
+            int coordinator = Flags.parseCoordinator(args);
+            String worker = Flags.parseWorker(args);
+            int splitDepth = Flags.parseSplitDepth(args);
+            String checkpoint = Flags.parseCheckpoint(args);
+            String perftCache = Flags.parsePerftCache(args);
+            int perftCacheSize = Flags.parsePerftCacheSize(args);
 
+            final Recording recording = jfr == null ? null : startRecording(Path.of(jfr));
+            final PerftCache cache = perftCache == null ? null : openCache(Path.of(perftCache), perftCacheSize, boardType);
             System.out.println("Starting OOP concepts test...");
             oopConceptsTest();
             System.out.println("Starting concurrency test with " + piLoops + " loops...");
-            concurrencyTest(piLoops);
-            System.out.println("Starting Perft test...");
-            perftTest(perftDepth);
+            concurrencyTest(piLoops, piAlgorithm, piCache, piReduction, executor);
+            if (piDigits > 0) {
+                System.out.println("Starting Pi test with " + piDigits + " digits...");
+                piTest(piDigits, piOutput == null ? null : Path.of(piOutput));
+            }
+            if (worker != null) {
+                System.out.println("Starting Perft worker of " + worker + "...");
+                perftWorker(worker, perftThreads, boardType, perftHashSize, cache);
+            } else if (coordinator > 0) {
+                System.out.println("Starting distributed Perft test on port " + coordinator + "...");
+                distributedPerftTest(coordinator, perftDepth, splitDepth, checkpoint, boardType);
+            } else if (suite == null) {
+                System.out.println("Starting Perft test...");
+                perftTest(perftDepth, perftThreads, boardType, perftHashSize, cache);
+            } else {
+                System.out.println("Starting Perft suite " + suite + "...");
+                perftSuite(Path.of(suite), shard, perftDepth, perftThreads, boardType, perftHashSize, cache);
+            }
+            if (cache != null) {
+                closeCache(cache);
+            }
+            if (recording != null) {
+                recording.stop();
+                recording.close();
+                printMoveCounters();
+                System.out.println("Flight recording written to " + jfr);
+            }
         } catch (IllegalArgumentException e) {
             System.err.println(e.getMessage());
             System.exit(1);
         }
     }
 
+    private static Recording startRecording(Path file) {
+        try {
+            final Recording recording = new Recording(Configuration.getConfiguration("default"));
+            recording.setName("hellojava");
+            recording.setDestination(file);
+            // The Perft suite may end with System.exit
+            recording.setDumpOnExit(true);
+            recording.start();
+            return recording;
+        } catch (IOException | ParseException e) {
+            throw new IllegalArgumentException("Unable to start the flight recording in " + file + ": " + e.getMessage(), e);
+        }
+    }
+
+    private static PerftCache openCache(Path file, int sizeMB, ChessBoard.Type boardType) {
+        try {
+            // The legal move generator counts differ from the basic one's (no castling, en passant nor promotions)
+            return new PerftCache(file, sizeMB, boardType == ChessBoard.Type.LEGAL ? "legal" : "basic");
+        } catch (IOException e) {
+            throw new IllegalArgumentException("Unable to open Perft cache " + file + ": " + e.getMessage(), e);
+        }
+    }
+
+    private static void closeCache(PerftCache cache) {
+        try {
+            cache.close();
+        } catch (IOException e) {
+            throw new IllegalArgumentException("Unable to close Perft cache: " + e.getMessage(), e);
+        }
+    }
+
+    private static void printMoveCounters() {
+        final StringBuilder generated = new StringBuilder("Generated moves:");
+        for (Piece piece : Piece.values()) {
+            if (piece != Piece.BLOCKER) {
+                generated.append(' ').append(piece.getCode()).append('=').append(MoveCounters.getGeneratedMoves(piece));
+            }
+        }
+        System.out.println(generated);
+        System.out.println("Made moves: " + MoveCounters.getMadeMoves() + ", unmade moves: " + MoveCounters.getUnmadeMoves());
+    }
+
     private static void oopConceptsTest() {
         AbstractThing aThing = new ACoolThing("my abstract thing");
         ((CoolInterface)aThing).doSomethingCool();
@@ -46,36 +164,147 @@ public class Main {
         acoolThing.doSomethingCool();
     }
 
-    private static void concurrencyTest(int nbLoops) {
+    private static void concurrencyTest(int nbLoops, PiCalculator.Algorithm algorithm, boolean cache, Reduction reduction, TaskExecutor executor) {
         if (nbLoops < 1) {
             throw new IllegalArgumentException("Number of loops must be at least 1");
         }
-        final AtomicReference<BigDecimal> result = new AtomicReference<>(new BigDecimal(0));
+        // The incremental calculator always uses binary splitting
+        final IntFunction<BigDecimal> calculator = cache ? new IncrementalPiCalculator()::computePi : digits -> PiCalculator.computePi(digits, algorithm);
+        final ThreadStatistics statistics = new ThreadStatistics(nbLoops);
         long start = System.currentTimeMillis();
-        IntStream.range(0, nbLoops).parallel().forEach(i -> {
-            var pi = computePi(1000+i);
-            synchronized(result) {
-                result.set(result.get().add(pi));
-            }
-        });
-        System.out.println("duration ("+nbLoops+" loops): " + (System.currentTimeMillis() - start)+" ms");
-        System.out.println("result: " + result.get().divide(BigDecimal.valueOf(nbLoops), 10, RoundingMode.HALF_UP));
+        final BigDecimal result;
+        if (reduction == Reduction.LOCK) {
+            final AtomicReference<BigDecimal> sum = new AtomicReference<>(new BigDecimal(0));
+            executor.forEach(nbLoops, i -> {
+                var pi = statistics.compute(i, calculator, 1000+i);
+                synchronized(sum) {
+                    sum.set(sum.get().add(pi));
+                }
+            });
+            result = sum.get();
+        } else {
+            result = executor.reduce(nbLoops, i -> statistics.compute(i, calculator, 1000+i), BigDecimal.ZERO, BigDecimal::add);
+        }
+        final long duration = System.currentTimeMillis() - start;
+        System.out.println("duration ("+nbLoops+" loops): " + duration+" ms");
+        System.out.println("result: " + result.divide(BigDecimal.valueOf(nbLoops), 10, RoundingMode.HALF_UP));
+        statistics.print(duration);
+    }
+
+    private static void piTest(int digits, Path output) {
+        // Binary splitting is the only algorithm fast enough for millions of digits
+        final long start = System.currentTimeMillis();
+        final BigDecimal pi = PiCalculator.computePi(digits, PiCalculator.Algorithm.BINARY_SPLITTING);
+        final long duration = System.currentTimeMillis() - start;
+        System.out.println("duration (" + digits + " digits): " + duration + " ms");
+        // Converting millions of digits to a string is slower than computing them, only the last ones are printed
+        final BigInteger last = pi.unscaledValue().mod(BigInteger.TEN.pow(Math.min(digits, 10)));
+        System.out.println("last digits: " + last);
+        if (output != null) {
+            writePi(pi, output);
+        }
+    }
+
+    private static void writePi(BigDecimal pi, Path file) {
+        final long start = System.currentTimeMillis();
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            final DecimalWriter writer = new DecimalWriter(channel);
+            writer.write(pi);
+            writer.flush();
+        } catch (IOException e) {
+            throw new IllegalArgumentException("Unable to write Pi to " + file + ": " + e.getMessage(), e);
+        }
+        System.out.println("Pi written to " + file + " in " + (System.currentTimeMillis() - start) + " ms");
     }
 
-    private static void perftTest(int depth) {
+    private static void perftTest(int depth, int threads, ChessBoard.Type boardType, int hashSize, PerftCache cache) {
+        final Perft perft = new Perft();
+        perft.setParallelism(threads);
+        perft.setCache(cache);
+        if (hashSize > 0) {
+            perft.setTranspositionTable(new TranspositionTable(hashSize));
+        }
         for (int i = 1; i <= 5; i++) {
-            doPerft(depth, new Board("rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR"), true);
-            doPerft(depth, new Board("rnbqkbnr/pp1ppppp/2p5/8/6P1/2P5/PP1PPP1P/RNBQKBNR"), false);
+            doPerft(perft, depth, boardType.create("rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w KQkq - 0 1"));
+            doPerft(perft, depth, boardType.create("rnbqkbnr/pp1ppppp/2p5/8/6P1/2P5/PP1PPP1P/RNBQKBNR b KQkq - 0 2"));
+        }
+    }
+
+    private static void perftSuite(Path file, PerftSuite.Shard shard, int depth, int threads, ChessBoard.Type boardType, int hashSize, PerftCache cache) {
+        // Positions are checked in parallel, so each Perft is single threaded
+        final Perft perft = new Perft();
+        perft.setCache(cache);
+        if (hashSize > 0) {
+            // The table can be shared by all the positions, its keys are complete positions
+            perft.setTranspositionTable(new TranspositionTable(hashSize));
+        }
+        try {
+            final PerftSuite.Summary summary = new PerftSuite(boardType, depth, threads, perft, System.out).run(file, shard);
+            if (summary.failed() > 0) {
+                System.exit(2);
+            }
+        } catch (IOException e) {
+            throw new IllegalArgumentException("Unable to read suite " + file + ": " + e.getMessage(), e);
+        }
+    }
+
+    private static void distributedPerftTest(int port, int depth, int splitDepth, String checkpoint, ChessBoard.Type boardType) {
+        try (DistributedPerft perft = new DistributedPerft(port)) {
+            perft.setSplitDepth(splitDepth);
+            if (checkpoint != null) {
+                perft.setCheckpoint(Path.of(checkpoint));
+            }
+            final long start = System.currentTimeMillis();
+            final Result result = perft.perft(boardType.create("rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w KQkq - 0 1"), depth);
+            System.out.println(String.format("duration (%d depth): %d ms", depth, System.currentTimeMillis() - start));
+            System.out.println(String.format("Found: %d leaf nodes. Generated: %d", result.leafNodesCount(), result.searchedNodesCount()));
+        } catch (IOException e) {
+            throw new IllegalArgumentException("Distributed Perft failed: " + e.getMessage(), e);
         }
     }
 
-    private static void doPerft(int depth, Board board, boolean whitePlaying) {
+    private static void perftWorker(String address, int threads, ChessBoard.Type boardType, int hashSize, PerftCache cache) {
+        final int separator = address.lastIndexOf(':');
+        final int port;
+        try {
+            port = separator < 0 ? -1 : Integer.parseInt(address.substring(separator + 1));
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid value for --worker=: " + address, e);
+        }
+        if (port < 0) {
+            throw new IllegalArgumentException("Invalid value for --worker=: " + address);
+        }
+        final Perft perft = new Perft();
+        perft.setParallelism(threads);
+        perft.setCache(cache);
+        if (hashSize > 0) {
+            // The positions sent by the coordinator often share subtrees
+            perft.setTranspositionTable(new TranspositionTable(hashSize));
+        }
+        try {
+            final int count = new PerftWorker(boardType, perft).run(address.substring(0, separator), port);
+            System.out.println("Counted " + count + " positions");
+        } catch (IOException e) {
+            throw new IllegalArgumentException("Perft worker failed: " + e.getMessage(), e);
+        }
+    }
+
+    private static void doPerft(Perft perft, int depth, ChessBoard board) {
         final String DURATION_FORMAT = "duration (%d depth): %d ms";
         final String FOUND_FORMAT = "Found: %d leaf nodes. Generated: %d";
-        final Perft perft = new Perft();
+        if (perft.getTranspositionTable() != null) {
+            // Every run starts with an empty table
+            perft.getTranspositionTable().clear();
+        }
         long start = System.currentTimeMillis();
-        final Result result = perft.perft(board, depth, whitePlaying);
+        final Result result = perft.perft(board, depth);
         System.out.println(String.format(DURATION_FORMAT, depth, System.currentTimeMillis() - start));
         System.out.println(String.format(FOUND_FORMAT, result.leafNodesCount(), result.searchedNodesCount()));
+        if (perft.getTranspositionTable() != null) {
+            System.out.println(String.format("Transposition table hit rate: %.1f%%", 100 * result.transpositionTableHitRate()));
+        }
+        if (perft.getCache() != null) {
+            System.out.println(String.format("Cache hits: %d, misses: %d", result.cacheHits(), result.cacheMisses()));
+        }
     }
 }
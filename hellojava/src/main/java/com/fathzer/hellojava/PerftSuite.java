@@ -0,0 +1,305 @@
+package com.fathzer.hellojava;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import com.fathzer.chess.ChessBoard;
+import com.fathzer.chess.Perft;
+
+/** A runner of Perft test suites stored in EPD files.
+ * <br>Each line of the file contains a position in FEN format followed by the expected leaf nodes counts, for instance:
+ * <pre>rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w KQkq - ;D1 20 ;D2 400 ;D3 8902</pre>
+ * Empty lines and lines starting with # are ignored, and so are operations other than D<i>n</i>. A line without any D<i>n</i>
+ * operation fails, a line whose counts are all deeper than the maximum depth is skipped.
+ * <br>The file is read line by line while the positions are tested by a pool of threads, so it is never fully loaded in memory.
+ * Results are written as <a href="https://jsonlines.org/">JSON lines</a> as soon as a position is tested (so not necessarily in
+ * the file order), followed by a summary line.
+ */
+public class PerftSuite {
+    private static final Pattern DEPTH_PATTERN = Pattern.compile("D(\\d+)\\s+(\\d+)");
+
+    /** A part of a suite file.
+     * <br>The lines of the file are distributed in a round robin way between the shards, so running all the shards of a file
+     * tests all its positions once.
+     */
+    public static class Shard {
+        /** A shard that contains the whole file. */
+        public static final Shard ALL = new Shard(0, 1);
+
+        private final int index;
+        private final int count;
+
+        /** Constructor.
+         * @param index The index of the shard, from 0 to count-1
+         * @param count The number of shards
+         */
+        public Shard(int index, int count) {
+            if (count < 1 || index < 0 || index >= count) {
+                throw new IllegalArgumentException("Invalid shard: " + index + "/" + count);
+            }
+            this.index = index;
+            this.count = count;
+        }
+
+        /** Parses a shard.
+         * @param value The shard definition: <i>index</i>/<i>count</i>, for instance 0/4 for the first of 4 shards
+         * @return A new shard
+         * @throws IllegalArgumentException if the definition is invalid
+         */
+        public static Shard parse(String value) {
+            final int separator = value.indexOf('/');
+            if (separator < 0) {
+                throw new IllegalArgumentException("Invalid shard: " + value);
+            }
+            try {
+                return new Shard(Integer.parseInt(value.substring(0, separator)), Integer.parseInt(value.substring(separator + 1)));
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("Invalid shard: " + value, e);
+            }
+        }
+
+        public int getIndex() {
+            return index;
+        }
+
+        public int getCount() {
+            return count;
+        }
+
+        /** Tests whether a line belongs to this shard.
+         * @param lineNumber The line number (starting at 1)
+         * @return true if the line belongs to this shard
+         */
+        public boolean contains(long lineNumber) {
+            return (lineNumber - 1) % count == index;
+        }
+    }
+
+    /** The result of a suite run. */
+    public static class Summary {
+        private final AtomicLong positions = new AtomicLong();
+        private final AtomicLong failed = new AtomicLong();
+        private final AtomicLong skipped = new AtomicLong();
+        private final AtomicLong nodes = new AtomicLong();
+        private long durationMs;
+
+        /** Gets the number of positions read, including the skipped ones.
+         * @return a long
+         */
+        public long positions() {
+            return positions.get();
+        }
+
+        /** Gets the number of positions that failed (wrong count or invalid line).
+         * @return a long
+         */
+        public long failed() {
+            return failed.get();
+        }
+
+        /** Gets the number of positions skipped because they have no expected count at or below the maximum depth.
+         * @return a long
+         */
+        public long skipped() {
+            return skipped.get();
+        }
+
+        /** Gets the total number of leaf nodes of all the Perft calls.
+         * @return a long
+         */
+        public long nodes() {
+            return nodes.get();
+        }
+
+        /** Gets the duration of the run.
+         * @return a number of milliseconds
+         */
+        public long durationMs() {
+            return durationMs;
+        }
+    }
+
+    private final ChessBoard.Type boardType;
+    private final int maxDepth;
+    private final int threads;
+    private final Perft perft;
+    private final PrintStream out;
+
+    /** Constructor.
+     * @param boardType The type of board used to test the positions
+     * @param maxDepth The maximum depth tested, the expected counts at greater depths are ignored
+     * @param threads The number of threads that test positions in parallel
+     * @param perft The Perft used to test each position (it can be shared by the threads)
+     * @param out The stream where the results are written
+     */
+    public PerftSuite(ChessBoard.Type boardType, int maxDepth, int threads, Perft perft, PrintStream out) {
+        if (maxDepth < 1) {
+            throw new IllegalArgumentException("Depth must be greater than 0");
+        }
+        if (threads < 1) {
+            throw new IllegalArgumentException("Number of threads must be at least 1");
+        }
+        this.boardType = boardType;
+        this.maxDepth = maxDepth;
+        this.threads = threads;
+        this.perft = perft;
+        this.out = out;
+    }
+
+    /** Runs the positions of a suite file.
+     * @param file The EPD file
+     * @param shard The part of the file to run
+     * @return The summary of the run (that is also written in the output stream)
+     * @throws IOException if the file can't be read
+     */
+    public Summary run(Path file, Shard shard) throws IOException {
+        final Summary summary = new Summary();
+        final long start = System.currentTimeMillis();
+        final ExecutorService executor = Executors.newFixedThreadPool(threads);
+        // Limits the number of lines read in advance, so that memory does not depend on the file size
+        final Semaphore pending = new Semaphore(2 * threads);
+        try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            long lineNumber = 0;
+            for (String line = reader.readLine(); line != null; line = reader.readLine()) {
+                lineNumber++;
+                final String trimmed = line.trim();
+                if (trimmed.isEmpty() || trimmed.startsWith("#") || !shard.contains(lineNumber)) {
+                    continue;
+                }
+                pending.acquire();
+                final long number = lineNumber;
+                executor.execute(() -> {
+                    try {
+                        test(number, trimmed, summary);
+                    } finally {
+                        pending.release();
+                    }
+                });
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(e);
+        } finally {
+            executor.shutdown();
+            awaitTermination(executor);
+        }
+        summary.durationMs = System.currentTimeMillis() - start;
+        out.println(String.format("{\"summary\":true,\"positions\":%d,\"passed\":%d,\"failed\":%d,\"skipped\":%d,\"nodes\":%d,\"durationMs\":%d,\"nodesPerSecond\":%d}",
+                summary.positions(), summary.positions() - summary.failed() - summary.skipped(), summary.failed(), summary.skipped(),
+                summary.nodes(), summary.durationMs,
+                nodesPerSecond(summary.nodes(), summary.durationMs)));
+        return summary;
+    }
+
+    private static void awaitTermination(ExecutorService executor) {
+        try {
+            while (!executor.awaitTermination(1, TimeUnit.MINUTES)) {
+                // Positions are still being tested
+            }
+        } catch (InterruptedException e) {
+            executor.shutdownNow();
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void test(long lineNumber, String line, Summary summary) {
+        summary.positions.incrementAndGet();
+        final String[] parts = line.split(";");
+        final String fen = parts[0].trim();
+        final StringBuilder json = new StringBuilder();
+        json.append("{\"line\":").append(lineNumber).append(",\"fen\":\"").append(escape(fen)).append('"');
+        try {
+            final long[] expected = parseExpectedCounts(parts);
+            final ChessBoard board = boardType.create(fen);
+            if (Arrays.stream(expected).allMatch(count -> count < 0)) {
+                // No Perft to run, the position neither passes nor fails
+                summary.skipped.incrementAndGet();
+                json.append(",\"skipped\":true,\"reason\":\"No expected count at or below depth ").append(maxDepth).append("\"}");
+            } else {
+                check(board, expected, json, summary);
+            }
+        } catch (RuntimeException e) {
+            // An invalid line or a position the board does not support, the other positions are still checked
+            summary.failed.incrementAndGet();
+            json.setLength(0);
+            json.append("{\"line\":").append(lineNumber).append(",\"fen\":\"").append(escape(fen)).append("\",\"pass\":false,\"error\":\"")
+                .append(escape(String.valueOf(e.getMessage()))).append("\"}");
+        }
+        synchronized (out) {
+            out.println(json);
+        }
+    }
+
+    /** Runs the Perft of a position at the depths of its expected counts, and appends the results to the JSON line. */
+    private void check(ChessBoard board, long[] expected, StringBuilder json, Summary summary) {
+        boolean pass = true;
+        long nodes = 0;
+        final long start = System.nanoTime();
+        json.append(",\"depths\":[");
+        boolean first = true;
+        for (int depth = 1; depth < expected.length; depth++) {
+            if (expected[depth] < 0) {
+                continue;
+            }
+            final long actual = perft.perft(board, depth).leafNodesCount();
+            nodes += actual;
+            pass = pass && actual == expected[depth];
+            json.append(first ? "" : ",").append(String.format("{\"depth\":%d,\"expected\":%d,\"actual\":%d,\"pass\":%b}", depth, expected[depth], actual, actual == expected[depth]));
+            first = false;
+        }
+        final long durationMs = (System.nanoTime() - start) / 1_000_000;
+        summary.nodes.addAndGet(nodes);
+        if (!pass) {
+            summary.failed.incrementAndGet();
+        }
+        json.append(String.format("],\"pass\":%b,\"nodes\":%d,\"durationMs\":%d,\"nodesPerSecond\":%d}", pass, nodes, durationMs, nodesPerSecond(nodes, durationMs)));
+    }
+
+    /** Gets the expected counts of a line.
+     * @param parts The parts of the line (the first one, the FEN, is ignored)
+     * @return The expected counts indexed by depth (-1 for depths without count), limited to the max depth
+     * @throws IllegalArgumentException if the line has no expected count or an invalid depth
+     */
+    private long[] parseExpectedCounts(String[] parts) {
+        final long[] expected = new long[maxDepth + 1];
+        Arrays.fill(expected, -1);
+        boolean found = false;
+        for (int i = 1; i < parts.length; i++) {
+            final Matcher matcher = DEPTH_PATTERN.matcher(parts[i].trim());
+            if (matcher.matches()) {
+                found = true;
+                final int depth = Integer.parseInt(matcher.group(1));
+                if (depth < 1) {
+                    throw new IllegalArgumentException("Invalid depth: " + parts[i].trim());
+                }
+                if (depth <= maxDepth) {
+                    expected[depth] = Long.parseLong(matcher.group(2));
+                }
+            }
+        }
+        if (!found) {
+            throw new IllegalArgumentException("No expected count");
+        }
+        return expected;
+    }
+
+    private static long nodesPerSecond(long nodes, long durationMs) {
+        return durationMs == 0 ? 0 : nodes * 1000 / durationMs;
+    }
+
+    private static String escape(String value) {
+        return value.replace("\\", "\\\\").replace("\"", "\\\"");
+    }
+}
@@ -0,0 +1,278 @@
+package com.fathzer.hellojava;
+
+import java.lang.reflect.InvocationTargetException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.function.BinaryOperator;
+import java.util.function.IntConsumer;
+import java.util.function.IntFunction;
+import java.util.stream.IntStream;
+
+/** The way the tasks of the concurrency test are scheduled.
+ * <br>Virtual threads are only available with Java 21 or later. As this project targets Java 17, they are obtained by reflection.
+ */
+public class TaskExecutor {
+    /** The scheduling models. */
+    public enum Type {
+        /** A parallel stream on the common fork-join pool. */
+        FORKJOIN,
+        /** A fixed pool of platform threads. */
+        FIXED,
+        /** A new virtual thread per task. */
+        VIRTUAL,
+        /** A structured fan-out: every task is forked in its own thread (a virtual one if available) inside a scope that
+         * waits for all of them, and cancels the remaining ones as soon as one fails.
+         * <br>Without virtual threads, at most one platform thread per processor runs at once.
+         * <br>It mimics the <code>StructuredTaskScope.ShutdownOnFailure</code> preview API of recent Java versions.
+         */
+        STRUCTURED
+    }
+
+    private final Type type;
+    private final int threads;
+
+    /** Constructor.
+     * @param type The scheduling model
+     * @param threads The number of threads of a {@link Type#FIXED} pool (ignored for other types)
+     */
+    public TaskExecutor(Type type, int threads) {
+        if (type == Type.FIXED && threads < 1) {
+            throw new IllegalArgumentException("Number of threads must be at least 1");
+        }
+        this.type = type;
+        this.threads = type == Type.FIXED ? threads : 0;
+    }
+
+    /** Parses an executor.
+     * @param value The executor definition: forkjoin, fixed:<i>threads</i>, virtual or structured
+     * @return A new executor
+     * @throws IllegalArgumentException if the definition is invalid
+     */
+    public static TaskExecutor parse(String value) {
+        final int index = value.indexOf(':');
+        final String typeName = index < 0 ? value : value.substring(0, index);
+        final Type type;
+        try {
+            type = Type.valueOf(typeName.toUpperCase());
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Invalid executor: " + value, e);
+        }
+        if ((type == Type.FIXED) != (index >= 0)) {
+            throw new IllegalArgumentException("Invalid executor: " + value);
+        }
+        try {
+            return new TaskExecutor(type, type == Type.FIXED ? Integer.parseInt(value.substring(index + 1)) : 0);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid executor: " + value, e);
+        }
+    }
+
+    public Type getType() {
+        return type;
+    }
+
+    public int getThreads() {
+        return threads;
+    }
+
+    /** Executes tasks and waits for their completion.
+     * @param count The number of tasks
+     * @param task The task, it receives the index of the task
+     */
+    public void forEach(int count, IntConsumer task) {
+        reduce(count, i -> {
+            task.accept(i);
+            return null;
+        }, null, (a, b) -> null);
+    }
+
+    /** Executes tasks and combines their results.
+     * @param <T> The type of results
+     * @param count The number of tasks
+     * @param task The task, it receives the index of the task and returns its result
+     * @param identity The identity value of the accumulator
+     * @param accumulator An associative function that combines two results
+     * @return The combination of the results
+     */
+    public <T> T reduce(int count, IntFunction<T> task, T identity, BinaryOperator<T> accumulator) {
+        if (type == Type.FORKJOIN) {
+            return IntStream.range(0, count).parallel().mapToObj(task).reduce(identity, accumulator);
+        }
+        final List<Future<T>> futures = new ArrayList<>(count);
+        try {
+            if (type == Type.STRUCTURED) {
+                try (TaskScope<T> scope = new TaskScope<>()) {
+                    for (int i = 0; i < count; i++) {
+                        final int index = i;
+                        futures.add(scope.fork(() -> task.apply(index)));
+                    }
+                    scope.join();
+                }
+            } else {
+                final ExecutorService executor = type == Type.FIXED ? Executors.newFixedThreadPool(threads) : newVirtualThreadPerTaskExecutor();
+                try {
+                    for (int i = 0; i < count; i++) {
+                        final int index = i;
+                        futures.add(executor.submit(() -> task.apply(index)));
+                    }
+                } finally {
+                    executor.shutdown();
+                }
+            }
+            // Results are combined by the calling thread, tasks do not share any state
+            T result = identity;
+            for (Future<T> future : futures) {
+                result = accumulator.apply(result, future.get());
+            }
+            return result;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+
+    private static ExecutorService newVirtualThreadPerTaskExecutor() {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (NoSuchMethodException e) {
+            throw new IllegalArgumentException("Virtual threads require Java 21 or later");
+        } catch (IllegalAccessException | InvocationTargetException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /** Gets a factory of virtual threads.
+     * @return a thread factory, null if virtual threads are not available
+     */
+    private static ThreadFactory virtualThreadFactory() {
+        try {
+            final Object builder = Thread.class.getMethod("ofVirtual").invoke(null);
+            return (ThreadFactory) Class.forName("java.lang.Thread$Builder").getMethod("factory").invoke(builder);
+        } catch (NoSuchMethodException | ClassNotFoundException e) {
+            return null;
+        } catch (IllegalAccessException | InvocationTargetException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /** A scope that runs each forked task in its own thread.
+     * <br>When a task fails, the other ones are cancelled and the tasks forked later are not started. When the scope is closed,
+     * the still running tasks are cancelled and the scope waits for their threads to terminate.
+     * <br>Virtual threads are cheap, but platform threads are not: when virtual threads are not available, {@link #fork(Callable)}
+     * waits until less than one thread per processor are running.
+     */
+    private static class TaskScope<T> implements AutoCloseable {
+        private final ThreadFactory factory;
+        /** The number of threads that can still be started, null if they are not limited. */
+        private final Semaphore permits;
+        private final List<Thread> threads = new ArrayList<>();
+        private final List<FutureTask<T>> tasks = new ArrayList<>();
+        private Throwable failure;
+
+        private TaskScope() {
+            final ThreadFactory virtual = virtualThreadFactory();
+            this.factory = virtual == null ? Thread::new : virtual;
+            this.permits = virtual == null ? new Semaphore(Runtime.getRuntime().availableProcessors()) : null;
+        }
+
+        /** Forks a task.
+         * @param callable The task
+         * @return The future result of the task, a cancelled one if a task already failed
+         * @throws InterruptedException if the thread is interrupted while waiting for a running task to end
+         */
+        private Future<T> fork(Callable<T> callable) throws InterruptedException {
+            final FutureTask<T> task = new FutureTask<>(callable) {
+                @Override
+                protected void setException(Throwable t) {
+                    super.setException(t);
+                    fail(t);
+                }
+            };
+            if (permits != null) {
+                permits.acquire();
+            }
+            final Thread thread;
+            synchronized (this) {
+                if (failure != null) {
+                    // The scope is shut down, the task is not started
+                    task.cancel(false);
+                    release();
+                    return task;
+                }
+                thread = factory.newThread(() -> {
+                    try {
+                        task.run();
+                    } finally {
+                        release();
+                    }
+                });
+                tasks.add(task);
+                threads.add(thread);
+            }
+            thread.start();
+            return task;
+        }
+
+        private void release() {
+            if (permits != null) {
+                permits.release();
+            }
+        }
+
+        private synchronized void fail(Throwable t) {
+            if (failure == null) {
+                failure = t;
+                shutdown();
+            }
+        }
+
+        private synchronized void shutdown() {
+            tasks.forEach(t -> t.cancel(true));
+        }
+
+        /** Waits for all the forked tasks to be completed or cancelled.
+         * @throws ExecutionException if a task failed
+         */
+        private void join() throws InterruptedException, ExecutionException {
+            awaitThreads();
+            synchronized (this) {
+                if (failure != null) {
+                    throw new ExecutionException(failure);
+                }
+            }
+        }
+
+        private void awaitThreads() throws InterruptedException {
+            final List<Thread> forked;
+            synchronized (this) {
+                forked = new ArrayList<>(threads);
+            }
+            for (Thread thread : forked) {
+                thread.join();
+            }
+        }
+
+        /** Cancels the running tasks and waits for their threads to terminate.
+         * <br>If the thread is interrupted while waiting, its interrupt status is restored and the method returns.
+         */
+        @Override
+        public void close() {
+            shutdown();
+            try {
+                awaitThreads();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+}
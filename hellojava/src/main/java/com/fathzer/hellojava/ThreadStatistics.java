@@ -0,0 +1,147 @@
+package com.fathzer.hellojava;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.lang.management.ThreadInfo;
+import java.lang.management.ThreadMXBean;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.IntFunction;
+
+/** Statistics of a concurrent test.
+ * <br>It records the number of computations and the computation time of each thread, and, if the JVM supports it,
+ * the number of times and the time each thread was blocked waiting for a monitor (a <code>synchronized</code> block).
+ * <br>It also records the latency of each task, the peak heap usage during the test and, if the JVM supports it, the memory
+ * allocated by the computations.
+ */
+class ThreadStatistics {
+    private static final ThreadMXBean THREADS = ManagementFactory.getThreadMXBean();
+    /** The bean that measures the memory allocated by a thread, null if the JVM does not support it. */
+    private static final com.sun.management.ThreadMXBean ALLOCATIONS = getAllocationsBean();
+    /** Over this number of threads, the statistics of each thread are not printed. */
+    private static final int MAX_PRINTED_THREADS = 32;
+
+    /** The statistics of a thread. Its fields are only updated by that thread. */
+    private static class Counters {
+        private final long id;
+        private final String name;
+        private final long initialBlockedCount;
+        private final long initialBlockedTime;
+        private long count;
+        private long computationNanos;
+        private long allocatedBytes;
+
+        private Counters(Thread thread) {
+            this.id = thread.getId();
+            this.name = thread.getName();
+            final ThreadInfo info = THREADS.getThreadInfo(id);
+            this.initialBlockedCount = info == null ? 0 : info.getBlockedCount();
+            this.initialBlockedTime = info == null ? 0 : info.getBlockedTime();
+        }
+    }
+
+    private static com.sun.management.ThreadMXBean getAllocationsBean() {
+        if (THREADS instanceof com.sun.management.ThreadMXBean bean && bean.isThreadAllocatedMemorySupported()) {
+            bean.setThreadAllocatedMemoryEnabled(true);
+            return bean;
+        }
+        return null;
+    }
+
+    private final boolean contentionMonitored;
+    private final Map<Long, Counters> counters = new ConcurrentHashMap<>();
+    private final long[] latencies;
+
+    /** Constructor.
+     * <br>It resets the peak usage of the heap.
+     * @param tasks The number of tasks of the test
+     */
+    ThreadStatistics(int tasks) {
+        if (THREADS.isThreadContentionMonitoringSupported()) {
+            THREADS.setThreadContentionMonitoringEnabled(true);
+        }
+        this.contentionMonitored = THREADS.isThreadContentionMonitoringEnabled();
+        this.latencies = new long[tasks];
+        ManagementFactory.getMemoryPoolMXBeans().stream().filter(pool -> pool.getType() == MemoryType.HEAP).forEach(MemoryPoolMXBean::resetPeakUsage);
+    }
+
+    /** Performs a computation and records it in the statistics of the current thread.
+     * @param <T> The type of the result
+     * @param task The index of the task
+     * @param function The computation
+     * @param value The argument of the computation
+     * @return The result of the computation
+     */
+    <T> T compute(int task, IntFunction<T> function, int value) {
+        final Thread thread = Thread.currentThread();
+        final Counters threadCounters = counters.computeIfAbsent(thread.getId(), id -> new Counters(thread));
+        final long allocatedBefore = ALLOCATIONS == null ? -1 : ALLOCATIONS.getCurrentThreadAllocatedBytes();
+        final long start = System.nanoTime();
+        final T result = function.apply(value);
+        final long latency = System.nanoTime() - start;
+        // Allocations are not measured on virtual threads (-1)
+        if (allocatedBefore >= 0) {
+            threadCounters.allocatedBytes += ALLOCATIONS.getCurrentThreadAllocatedBytes() - allocatedBefore;
+        }
+        latencies[task] = latency;
+        threadCounters.computationNanos += latency;
+        threadCounters.count++;
+        return result;
+    }
+
+    /** Prints the statistics.
+     * <br>This method should be called once all the computations are done.
+     * @param durationMs The duration of the test in milliseconds
+     */
+    void print(long durationMs) {
+        long totalBlockedCount = 0;
+        long totalBlockedTime = 0;
+        long totalAllocatedBytes = 0;
+        long totalCount = 0;
+        final Counters[] sorted = counters.values().stream().sorted(Comparator.comparing(c -> c.name)).toArray(Counters[]::new);
+        final boolean printThreads = sorted.length <= MAX_PRINTED_THREADS;
+        for (Counters c : sorted) {
+            final StringBuilder line = new StringBuilder(String.format("  %s: %d computations, %.1f/s, computing %d%% of the time", c.name, c.count,
+                    durationMs == 0 ? 0.0 : 1000.0 * c.count / durationMs, durationMs == 0 ? 0 : c.computationNanos / 10_000 / durationMs));
+            if (contentionMonitored) {
+                final ThreadInfo info = THREADS.getThreadInfo(c.id);
+                if (info != null) {
+                    final long blockedCount = info.getBlockedCount() - c.initialBlockedCount;
+                    final long blockedTime = info.getBlockedTime() - c.initialBlockedTime;
+                    totalBlockedCount += blockedCount;
+                    totalBlockedTime += blockedTime;
+                    line.append(String.format(", blocked %d times (%d ms)", blockedCount, blockedTime));
+                }
+            }
+            if (c.allocatedBytes > 0) {
+                totalAllocatedBytes += c.allocatedBytes;
+                totalCount += c.count;
+                line.append(String.format(", allocating %d KB/computation", c.allocatedBytes / c.count / 1024));
+            }
+            if (printThreads) {
+                System.out.println(line);
+            }
+        }
+        if (contentionMonitored) {
+            System.out.println(String.format("Lock contention: %d blocked times (%d ms) on %d threads", totalBlockedCount, totalBlockedTime, counters.size()));
+        }
+        if (totalCount > 0) {
+            System.out.println(String.format("allocated: %d bytes per computation", totalAllocatedBytes / totalCount));
+        }
+        final long[] sortedLatencies = latencies.clone();
+        Arrays.sort(sortedLatencies);
+        System.out.println(String.format("throughput: %.1f tasks/s, task latency p50: %.2f ms, p99: %.2f ms",
+                durationMs == 0 ? 0.0 : 1000.0 * latencies.length / durationMs, percentile(sortedLatencies, 50) / 1e6, percentile(sortedLatencies, 99) / 1e6));
+        final long peakHeap = ManagementFactory.getMemoryPoolMXBeans().stream().filter(pool -> pool.getType() == MemoryType.HEAP)
+                .mapToLong(pool -> pool.getPeakUsage().getUsed()).sum();
+        System.out.println(String.format("peak heap: %d MB", peakHeap / (1024 * 1024)));
+    }
+
+    /** Gets a percentile of sorted values (nearest rank method). */
+    private static long percentile(long[] sorted, int percent) {
+        return sorted.length == 0 ? 0 : sorted[Math.max(0, (sorted.length * percent + 99) / 100 - 1)];
+    }
+}
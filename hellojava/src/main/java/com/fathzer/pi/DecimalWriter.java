@@ -0,0 +1,151 @@
+package com.fathzer.pi;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.util.ArrayList;
+import java.util.List;
+
+/** Writes the decimal representation of huge numbers to a channel.
+ * <br>{@link BigDecimal#toString()} builds the whole representation in memory, a String of millions of characters, on top of the
+ * intermediate numbers of the conversion. This class converts the number recursively: it is split in two halves of a power of
+ * 10 number of digits, by a division by this power, until the parts are small enough to be converted by {@link BigInteger#toString()}.
+ * The parts are written, most significant first, to a direct buffer that is written to the channel each time it is full, so the
+ * representation is never in memory.
+ * <br>Large divisions use {@link NttArithmetic}, so the conversion of millions of digits takes about as long as their computation.
+ * <br>This class is not thread safe.
+ */
+public class DecimalWriter {
+    /** The number of digits of the parts converted by {@link BigInteger#toString()}. */
+    private static final int LEAF_DIGITS = 512;
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    private final WritableByteChannel channel;
+    private final ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+    /** The powers of 10 that split the numbers, 10<sup>LEAF_DIGITS*2<sup>i</sup></sup> at index i. */
+    private final List<BigInteger> powers = new ArrayList<>();
+    /** The divisors by the powers of 10, whose reciprocals are computed once. */
+    private final List<NttArithmetic.Divisor> divisors = new ArrayList<>();
+    /** The number of digits after the decimal point of the number being written. */
+    private int scale;
+    /** The number of digits of the number being written, -1 until its first digits are converted. */
+    private int length;
+
+    /** Constructor.
+     * @param channel The channel where to write the numbers
+     */
+    public DecimalWriter(WritableByteChannel channel) {
+        this.channel = channel;
+        powers.add(BigInteger.TEN.pow(LEAF_DIGITS));
+    }
+
+    /** Writes a number.
+     * <br>The number is written like {@link BigDecimal#toPlainString()} does.
+     * <br>Please note the characters may remain in a buffer until {@link #flush()} is called.
+     * @param value The number to write
+     * @throws IOException if the channel fails
+     */
+    public void write(BigDecimal value) throws IOException {
+        if (value.signum() < 0) {
+            put('-');
+        }
+        // The digits are the ones of the unscaled value, the decimal point is inserted when scale digits remain
+        final BigInteger unscaled = value.unscaledValue().abs();
+        this.scale = Math.max(value.scale(), 0);
+        this.length = -1;
+        int level = 0;
+        while (power(level).compareTo(unscaled) <= 0) {
+            level++;
+        }
+        write(unscaled, level, false, 0);
+        for (int i = value.scale(); i < 0; i++) {
+            put('0');
+        }
+    }
+
+    /** Writes the characters that remain in the buffer to the channel.
+     * @throws IOException if the channel fails
+     */
+    public void flush() throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+
+    /** Writes the digits of a positive integer lower than 10<sup>LEAF_DIGITS*2<sup>level</sup></sup>.
+     * @param padded true to write the leading zeros up to LEAF_DIGITS*2<sup>level</sup> digits
+     * @param after The number of digits that will follow the ones of this integer
+     */
+    private void write(BigInteger value, int level, boolean padded, int after) throws IOException {
+        if (level == 0) {
+            writeLeaf(value.toString(), padded, after);
+        } else if (!padded && value.compareTo(power(level - 1)) < 0) {
+            // The upper half is only made of leading zeros
+            write(value, level - 1, false, after);
+        } else {
+            final BigInteger[] halves = divisor(level - 1).divideAndRemainder(value);
+            write(halves[0], level - 1, padded, after + (LEAF_DIGITS << (level - 1)));
+            write(halves[1], level - 1, true, after);
+        }
+    }
+
+    private void writeLeaf(String digits, boolean padded, int after) throws IOException {
+        final int zeros = padded ? LEAF_DIGITS - digits.length() : 0;
+        if (length < 0) {
+            // The first digits of the number, that gives its length
+            length = zeros + digits.length() + after;
+            if (length <= scale) {
+                put('0');
+                put('.');
+                for (int i = length; i < scale; i++) {
+                    put('0');
+                }
+            }
+        }
+        int remaining = zeros + digits.length() + after;
+        for (int i = 0; i < zeros; i++) {
+            putDigit('0', remaining--);
+        }
+        for (int i = 0; i < digits.length(); i++) {
+            putDigit(digits.charAt(i), remaining--);
+        }
+    }
+
+    /** Writes a digit, preceded by the decimal point if it is the first digit of the fraction.
+     * @param remaining The number of digits of the number that remain to be written, including this one
+     */
+    private void putDigit(char digit, int remaining) throws IOException {
+        if (remaining == scale && length > scale) {
+            put('.');
+        }
+        put(digit);
+    }
+
+    private BigInteger power(int level) {
+        while (powers.size() <= level) {
+            final BigInteger last = powers.get(powers.size() - 1);
+            powers.add(NttArithmetic.multiply(last, last));
+        }
+        return powers.get(level);
+    }
+
+    private NttArithmetic.Divisor divisor(int level) {
+        while (divisors.size() <= level) {
+            // The numbers divided by a power are lower than its square
+            final BigInteger power = power(divisors.size());
+            divisors.add(new NttArithmetic.Divisor(power, 2 * power.bitLength()));
+        }
+        return divisors.get(level);
+    }
+
+    private void put(char c) throws IOException {
+        if (!buffer.hasRemaining()) {
+            flush();
+        }
+        buffer.put((byte) c);
+    }
+}
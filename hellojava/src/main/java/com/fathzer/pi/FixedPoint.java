@@ -0,0 +1,169 @@
+package com.fathzer.pi;
+
+import java.math.BigInteger;
+import java.util.Arrays;
+
+/** A mutable binary fixed-point number.
+ * <br>The number is stored in an array of 32 bits limbs, most significant first: the first limbs are the integer part, the
+ * others are the fraction. Its value is the two's complement integer made of all the limbs divided by 2<sup>32*fractionLimbs</sup>.
+ * <br>Unlike {@link java.math.BigDecimal}, all the operations are done in place, so a computation allocates nothing but its
+ * numbers. Operations are exact, except {@link #divide(int)} that truncates.
+ * <br>This class is not thread safe.
+ */
+final class FixedPoint {
+    /** The maximum absolute value of the factors and divisors, so that intermediate results fit in a long. */
+    static final int MAX_FACTOR = 1 << 30;
+    private static final long MASK = 0xFFFFFFFFL;
+
+    private final int[] limbs;
+    private final int integerLimbs;
+    /** All the limbs before this index are 0. */
+    private int first;
+
+    /** Constructor.
+     * <br>The number is 0.
+     * @param integerLimbs The number of 32 bits limbs of the integer part
+     * @param fractionLimbs The number of 32 bits limbs of the fraction
+     * @throws IllegalArgumentException if integerLimbs is not strictly positive or fractionLimbs is negative
+     */
+    FixedPoint(int integerLimbs, int fractionLimbs) {
+        if (integerLimbs < 1 || fractionLimbs < 0) {
+            throw new IllegalArgumentException("Invalid number of limbs");
+        }
+        this.limbs = new int[integerLimbs + fractionLimbs];
+        this.integerLimbs = integerLimbs;
+        this.first = limbs.length;
+    }
+
+    /** Gets the number of limbs of the fraction.
+     * @return an int
+     */
+    int getFractionLimbs() {
+        return limbs.length - integerLimbs;
+    }
+
+    /** Sets this number to an integer.
+     * @param value The value
+     * @return this
+     */
+    FixedPoint set(int value) {
+        Arrays.fill(limbs, 0, integerLimbs, value < 0 ? -1 : 0);
+        Arrays.fill(limbs, integerLimbs, limbs.length, 0);
+        limbs[integerLimbs - 1] = value;
+        first = value == 0 ? limbs.length : 0;
+        isZero();
+        return this;
+    }
+
+    /** Tests whether this number is 0.
+     * @return true if it is 0
+     */
+    boolean isZero() {
+        while (first < limbs.length && limbs[first] == 0) {
+            first++;
+        }
+        return first == limbs.length;
+    }
+
+    /** Multiplies this number by an integer.
+     * @param factor The factor, between 0 and {@link #MAX_FACTOR}
+     * @return this
+     * @throws IllegalStateException if this number is negative
+     * @throws ArithmeticException if the result overflows the integer part
+     */
+    FixedPoint multiply(int factor) {
+        checkFactor(factor, 0);
+        checkPositive();
+        long carry = 0;
+        for (int i = limbs.length - 1; i >= first; i--) {
+            final long value = (limbs[i] & MASK) * factor + carry;
+            limbs[i] = (int) value;
+            carry = value >>> 32;
+        }
+        if (carry != 0) {
+            if (first == 0) {
+                throw new ArithmeticException("Overflow");
+            }
+            limbs[--first] = (int) carry;
+        }
+        if (limbs[0] < 0) {
+            throw new ArithmeticException("Overflow");
+        }
+        return this;
+    }
+
+    /** Divides this number by an integer.
+     * <br>The result is truncated to the precision of this number.
+     * @param divisor The divisor, between 1 and {@link #MAX_FACTOR}
+     * @return this
+     * @throws IllegalStateException if this number is negative
+     */
+    FixedPoint divide(int divisor) {
+        checkFactor(divisor, 1);
+        checkPositive();
+        long remainder = 0;
+        for (int i = first; i < limbs.length; i++) {
+            final long value = (remainder << 32) | (limbs[i] & MASK);
+            limbs[i] = (int) (value / divisor);
+            remainder = value % divisor;
+        }
+        isZero();
+        return this;
+    }
+
+    /** Adds a multiple of a number to this number.
+     * @param other The number to add, its fraction should have the same number of limbs as this one
+     * @param factor The multiple of <i>other</i> to add, between -{@link #MAX_FACTOR} and {@link #MAX_FACTOR}
+     * @return this
+     * @throws IllegalArgumentException if the numbers do not have the same precision
+     */
+    FixedPoint addMultiple(FixedPoint other, int factor) {
+        if (other.limbs.length != limbs.length) {
+            throw new IllegalArgumentException("Numbers should have the same precision");
+        }
+        checkFactor(Math.abs(factor), 0);
+        long carry = 0;
+        int i = limbs.length - 1;
+        for (; i >= other.first; i--) {
+            final long value = (limbs[i] & MASK) + (other.limbs[i] & MASK) * factor + carry;
+            limbs[i] = (int) value;
+            carry = value >> 32;
+        }
+        // The carry (or the borrow if negative) is propagated to the higher limbs, the overflow of the integer part is ignored
+        for (; i >= 0 && carry != 0; i--) {
+            final long value = (limbs[i] & MASK) + carry;
+            limbs[i] = (int) value;
+            carry = value >> 32;
+        }
+        first = Math.min(first, i + 1);
+        return this;
+    }
+
+    private void checkPositive() {
+        if (limbs[0] < 0) {
+            throw new IllegalStateException("This operation is not supported on negative numbers");
+        }
+    }
+
+    private static void checkFactor(int factor, int min) {
+        if (factor < min || factor > MAX_FACTOR) {
+            throw new IllegalArgumentException("Factor should be between " + min + " and " + MAX_FACTOR + ": " + factor);
+        }
+    }
+
+    /** Gets this number scaled by 2<sup>32*fractionLimbs</sup>.
+     * <br>This is the only method of this class that allocates memory.
+     * @return a new integer
+     */
+    BigInteger toScaledBigInteger() {
+        final byte[] bytes = new byte[limbs.length * Integer.BYTES];
+        for (int i = 0; i < limbs.length; i++) {
+            final int limb = limbs[i];
+            bytes[4 * i] = (byte) (limb >>> 24);
+            bytes[4 * i + 1] = (byte) (limb >>> 16);
+            bytes[4 * i + 2] = (byte) (limb >>> 8);
+            bytes[4 * i + 3] = (byte) limb;
+        }
+        return new BigInteger(bytes);
+    }
+}
@@ -0,0 +1,143 @@
+package com.fathzer.pi;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicReference;
+
+import com.fathzer.pi.PiCalculator.Series;
+
+/** A Pi calculator that reuses its previous computations.
+ * <br>It keeps the most precise value of Pi computed so far, and the binary splitting state of the
+ * {@link PiCalculator.Algorithm#BINARY_SPLITTING Chudnovsky series} used to compute it.
+ * <ul>
+ * <li>A request for at most this precision is served by truncating the kept value.</li>
+ * <li>A request for more digits only computes the missing terms of the series, and combines them with the kept ones.</li>
+ * </ul>
+ * This class is thread safe and does not use locks. Concurrent requests share the computations: A request that needs more
+ * digits than the computation in progress chains a new computation after it, the others wait for the computation in progress.
+ * <br>If a computation fails, the requests that wait for it fail, and the calculator goes back to the computation it extended.
+ */
+public class IncrementalPiCalculator {
+    /** A function that computes a range of terms of the series. */
+    @FunctionalInterface
+    interface SeriesFunction {
+        /** Computes a range of terms of the series.
+         * @param a The first term (inclusive)
+         * @param b The last term (exclusive)
+         * @return The P, Q and T values of the range
+         */
+        Series compute(int a, int b);
+    }
+
+    /** A computation of Pi. */
+    private static final class Computation {
+        private final int digits;
+        private final CompletableFuture<State> state;
+        /** The computation this one extends, restored if this one fails. It is cleared when this one succeeds. */
+        private volatile Computation previous;
+
+        private Computation(int digits, CompletableFuture<State> state, Computation previous) {
+            this.digits = digits;
+            this.state = state;
+            this.previous = previous;
+        }
+
+        /** Gets the most recent successful, or still running, computation this failed one extends.
+         * @return a computation
+         */
+        private Computation recover() {
+            Computation result = previous;
+            // A computation chained after a failed one fails too
+            while (result.state.isCompletedExceptionally()) {
+                result = result.previous;
+            }
+            return result;
+        }
+    }
+
+    /** The result of a computation. */
+    private static final class State {
+        private static final State EMPTY = new State(0, null, 0, null);
+
+        private final int terms;
+        private final Series series;
+        private final int digits;
+        private final BigDecimal pi;
+
+        private State(int terms, Series series, int digits, BigDecimal pi) {
+            this.terms = terms;
+            this.series = series;
+            this.digits = digits;
+            this.pi = pi;
+        }
+
+        private State extend(int digits, SeriesFunction seriesFunction) {
+            final PiComputationEvent event = new PiComputationEvent();
+            event.begin();
+            final int newTerms = Math.max(terms, PiCalculator.terms(digits));
+            Series newSeries = series;
+            if (newTerms > terms) {
+                final Series missing = seriesFunction.compute(terms, newTerms);
+                newSeries = series == null ? missing : series.combine(missing);
+            }
+            final State extended = new State(newTerms, newSeries, digits, PiCalculator.computePi(newSeries, digits));
+            PiCalculator.commit(event, "incremental", digits, newTerms - terms);
+            return extended;
+        }
+    }
+
+    private final AtomicReference<Computation> last = new AtomicReference<>(new Computation(0, CompletableFuture.completedFuture(State.EMPTY), null));
+    private final SeriesFunction seriesFunction;
+
+    /** Constructor. */
+    public IncrementalPiCalculator() {
+        this(PiCalculator::series);
+    }
+
+    /** Constructor.
+     * @param seriesFunction The function that computes the terms of the series
+     */
+    IncrementalPiCalculator(SeriesFunction seriesFunction) {
+        this.seriesFunction = seriesFunction;
+    }
+
+    /** Computes Pi.
+     * @param digits The number of decimal digits to compute
+     * @return Pi truncated to <i>digits</i> decimals
+     */
+    public BigDecimal computePi(int digits) {
+        if (digits < 1) {
+            throw new IllegalArgumentException("Number of digits must be at least 1");
+        }
+        while (true) {
+            final Computation current = last.get();
+            if (current.digits >= digits) {
+                return current.state.join().pi.setScale(digits, RoundingMode.DOWN);
+            }
+            // Compute more digits than required to serve calls with slightly growing precisions without extending again
+            final int target = Math.max(digits, 2 * current.digits);
+            final Computation next = new Computation(target, new CompletableFuture<>(), current);
+            if (last.compareAndSet(current, next)) {
+                current.state.thenApply(state -> state.extend(target, seriesFunction)).whenComplete((state, e) -> {
+                    if (e == null) {
+                        next.previous = null;
+                        next.state.complete(state);
+                    } else {
+                        // Forget the failed computation, so that the next calls can compute again
+                        last.compareAndSet(next, next.recover());
+                        next.state.completeExceptionally(e);
+                    }
+                });
+                return next.state.join().pi.setScale(digits, RoundingMode.DOWN);
+            }
+        }
+    }
+
+    /** Gets the number of digits of Pi this calculator already knows, or is computing.
+     * @return a number of digits, 0 if nothing was computed yet
+     */
+    public int getDigits() {
+        return last.get().digits;
+    }
+}
@@ -0,0 +1,398 @@
+package com.fathzer.pi;
+
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.util.concurrent.ForkJoinTask;
+
+/** Arithmetic on very large integers.
+ * <br>{@link BigInteger#multiply(BigInteger)} uses, at best, the Toom-Cook 3 algorithm, whose cost grows as n<sup>1.46</sup>,
+ * and its division and square root are built on it. That makes numbers of millions of digits out of reach.
+ * <br>This class multiplies large numbers with a <a href="https://en.wikipedia.org/wiki/Sch%C3%B6nhage%E2%80%93Strassen_algorithm">number-theoretic
+ * transform</a>, whose cost grows as n.log(n): the numbers are split in 16 bits digits, and their convolution is computed
+ * modulo two primes, then rebuilt with the Chinese remainder theorem. The transforms are parallelized using the common
+ * fork-join pool. Division and square root use Newton's method, so that their cost is the one of a few multiplications.
+ * <br>Numbers below the thresholds are delegated to {@link BigInteger}, so these methods can be used whatever the size of the numbers.
+ * <br>The transforms of the largest numbers are, by far, the largest arrays of a Pi computation. If the {@value PiCalculator#OFF_HEAP_PROPERTY}
+ * system property is true when this class is loaded, they are stored in direct buffers, outside the heap. The heap then only
+ * contains the {@link BigInteger} operands and results. Please note the direct buffers are released by the garbage collector
+ * and their total size is limited by the -XX:MaxDirectMemorySize JVM option.
+ */
+final class NttArithmetic {
+    /** The number of bits of the smallest operand above which multiplications use the transform. */
+    static final int MULTIPLY_THRESHOLD = 1 << 16;
+    /** The number of bits above which divisions and square roots use Newton's method. */
+    static final int NEWTON_THRESHOLD = 1 << 17;
+    /** The number of bits under which square roots are delegated to {@link BigInteger#sqrt()}, that is slow for large numbers. */
+    private static final int SQRT_THRESHOLD = 1 << 10;
+    /** The number of extra bits of the reciprocals, that makes the quotient estimates exact or off by one. */
+    private static final int GUARD_BITS = 32;
+
+    private static final int DIGIT_BITS = 16;
+    /** The primes of the transform, their primitive roots and the inverse of the first one modulo the second one.
+     * <br>The product of the primes is greater than 2<sup>58</sup>, the highest value of a convolution of 2<sup>26</sup> 16 bits digits.
+     */
+    private static final int P1 = 15 * (1 << 27) + 1;
+    private static final int G1 = 31;
+    private static final int P2 = 7 * (1 << 26) + 1;
+    private static final int G2 = 3;
+    private static final long P1_INVERSE = pow(P1 % P2, P2 - 2L, P2);
+    /** The maximum length of a transform, the highest power of 2 that divides both P1-1 and P2-1. */
+    private static final int MAX_LENGTH = 1 << 26;
+    /** True to store the transforms outside the heap. */
+    private static final boolean OFF_HEAP = Boolean.getBoolean(PiCalculator.OFF_HEAP_PROPERTY);
+    /** The length of the arrays under which they are always allocated in the heap. */
+    private static final int OFF_HEAP_LENGTH = 1 << 16;
+    /** The length of the transforms and of the butterfly ranges under which they are not split in parallel tasks. */
+    private static final int SEQUENTIAL_LENGTH = 1 << 14;
+
+    private NttArithmetic() {
+        // Private constructor to prevent instantiation
+    }
+
+    /** Multiplies two integers.
+     * @param x an integer
+     * @param y another integer
+     * @return x*y
+     * @throws ArithmeticException if the product has more than 2<sup>30</sup> bits
+     */
+    static BigInteger multiply(BigInteger x, BigInteger y) {
+        if (Math.min(x.bitLength(), y.bitLength()) < MULTIPLY_THRESHOLD) {
+            return x.multiply(y);
+        }
+        final Digits a = new Digits(x);
+        final Digits b = x == y ? a : new Digits(y);
+        final int length = Integer.highestOneBit(a.count + b.count - 1) << 1;
+        if (length > MAX_LENGTH) {
+            throw new ArithmeticException("Numbers are too large");
+        }
+        final IntBuffer[] residues = new IntBuffer[2];
+        ForkJoinTask.invokeAll(ForkJoinTask.adapt(() -> residues[0] = new Transform(P1, G1, length).convolve(a, b)),
+                ForkJoinTask.adapt(() -> residues[1] = new Transform(P2, G2, length).convolve(a, b)));
+        return toBigInteger(residues[0], residues[1], a.count + b.count, x.signum() * y.signum());
+    }
+
+    /** Raises an integer to a power.
+     * @param base The base
+     * @param exponent The exponent, positive or 0
+     * @return base<sup>exponent</sup>
+     */
+    static BigInteger pow(BigInteger base, int exponent) {
+        BigInteger result = BigInteger.ONE;
+        for (int bit = Integer.highestOneBit(exponent); bit != 0; bit >>>= 1) {
+            result = multiply(result, result);
+            if ((exponent & bit) != 0) {
+                result = multiply(result, base);
+            }
+        }
+        return result;
+    }
+
+    /** Divides two positive integers.
+     * @param n The dividend, positive or 0
+     * @param d The divisor, strictly positive
+     * @return n/d, rounded down
+     */
+    static BigInteger divide(BigInteger n, BigInteger d) {
+        return divideAndRemainder(n, d)[0];
+    }
+
+    /** Divides two positive integers and gets the remainder.
+     * @param n The dividend, positive or 0
+     * @param d The divisor, strictly positive
+     * @return n/d, rounded down, followed by the remainder
+     */
+    static BigInteger[] divideAndRemainder(BigInteger n, BigInteger d) {
+        return new Divisor(d, n.bitLength()).divideAndRemainder(n);
+    }
+
+    /** A divisor that can divide several numbers.
+     * <br>The quotients are the products of the dividends by an approximation of the reciprocal of the divisor, corrected
+     * with the remainders. The reciprocal, that costs as much as a few multiplications, is computed once.
+     */
+    static final class Divisor {
+        private final BigInteger d;
+        private final int maxBits;
+        /** The precision of the reciprocal, or 0 if the divisions are delegated to {@link BigInteger}. */
+        private final int bits;
+        private final BigInteger reciprocal;
+
+        /** Constructor.
+         * @param d The divisor, strictly positive
+         * @param maxBits The maximum number of bits of the dividends
+         */
+        Divisor(BigInteger d, int maxBits) {
+            this.d = d;
+            this.maxBits = maxBits;
+            final int dBits = d.bitLength();
+            if (dBits < NEWTON_THRESHOLD || maxBits - dBits < NEWTON_THRESHOLD) {
+                this.bits = 0;
+                this.reciprocal = null;
+            } else {
+                // Only the first bits of the dividends and of d matter to get the quotients with GUARD_BITS extra bits
+                this.bits = maxBits - dBits + 1 + GUARD_BITS;
+                this.reciprocal = reciprocal(d.shiftRight(dBits - bits), bits);
+            }
+        }
+
+        /** Divides a number.
+         * @param n The dividend, positive or 0
+         * @return n/d, rounded down, followed by the remainder
+         * @throws IllegalArgumentException if n has more than the maximum number of bits of this divisor
+         */
+        BigInteger[] divideAndRemainder(BigInteger n) {
+            if (n.bitLength() > maxBits) {
+                throw new IllegalArgumentException("Dividend is too large");
+            }
+            if (reciprocal == null) {
+                return n.divideAndRemainder(d);
+            }
+            final int nShift = maxBits - bits;
+            BigInteger q = multiply(n.shiftRight(nShift), reciprocal).shiftRight(bits + d.bitLength() - nShift);
+            BigInteger remainder = n.subtract(multiply(q, d));
+            while (remainder.signum() < 0) {
+                q = q.subtract(BigInteger.ONE);
+                remainder = remainder.add(d);
+            }
+            while (remainder.compareTo(d) >= 0) {
+                q = q.add(BigInteger.ONE);
+                remainder = remainder.subtract(d);
+            }
+            return new BigInteger[] {q, remainder};
+        }
+    }
+
+    /** Computes an approximation of the reciprocal of an integer.
+     * <br>Each Newton iteration doubles the precision of the reciprocal of the first half of the bits of d.
+     * @param d An integer of <i>bits</i> bits
+     * @param bits The number of bits of d
+     * @return 2<sup>2*bits</sup>/d, rounded down, minus a few units
+     */
+    private static BigInteger reciprocal(BigInteger d, int bits) {
+        if (bits < NEWTON_THRESHOLD) {
+            return BigInteger.ONE.shiftLeft(2 * bits).divide(d);
+        }
+        final int half = bits / 2 + 4;
+        // 2^(2*bits)/d is close to r*2^(bits-half)
+        final BigInteger r = reciprocal(d.shiftRight(bits - half), half);
+        // The new reciprocal is r + r*(2^(2*bits) - d*r)/2^(2*bits), with r scaled by 2^(bits-half)
+        final BigInteger error = BigInteger.ONE.shiftLeft(2 * bits).subtract(multiply(d, r).shiftLeft(bits - half));
+        // The error has about 2*bits-half bits, but only its first bits change the result
+        final int shift = bits - GUARD_BITS;
+        return r.shiftLeft(bits - half).add(multiply(r, error.shiftRight(shift)).shiftRight(bits + half - shift));
+    }
+
+    /** Computes the square root of an integer.
+     * <br>The square root of the first half of the bits of n gives the first half of the bits of the root, a Newton
+     * iteration gives the others. The division of the iteration uses Newton's method only for large numbers.
+     * @param n A positive integer or 0
+     * @return the square root of n, rounded down
+     */
+    static BigInteger sqrt(BigInteger n) {
+        final int bits = n.bitLength();
+        if (bits < SQRT_THRESHOLD) {
+            return n.sqrt();
+        }
+        final int shift = bits / 4;
+        final BigInteger root = sqrt(n.shiftRight(2 * shift)).shiftLeft(shift);
+        // The iteration never returns a value below the root, and the previous root is precise enough to be a few units above it
+        BigInteger x = root.add(divide(n, root)).shiftRight(1);
+        BigInteger remainder = n.subtract(multiply(x, x));
+        while (remainder.signum() < 0) {
+            // (x-1)^2 = x^2 - 2x + 1
+            remainder = remainder.add(x.shiftLeft(1)).subtract(BigInteger.ONE);
+            x = x.subtract(BigInteger.ONE);
+        }
+        return x;
+    }
+
+    /** Allocates an array of ints, outside the heap if it is large and {@link #OFF_HEAP} is true.
+     * @param length The length of the array
+     * @return an array filled with 0
+     */
+    static IntBuffer allocate(int length) {
+        if (OFF_HEAP && length >= OFF_HEAP_LENGTH) {
+            return ByteBuffer.allocateDirect(length * Integer.BYTES).order(ByteOrder.nativeOrder()).asIntBuffer();
+        }
+        return IntBuffer.allocate(length);
+    }
+
+    /** The 16 bits digits of the absolute value of an integer. */
+    private static final class Digits {
+        /** The bytes of the integer, most significant first. */
+        private final byte[] bytes;
+        private final int count;
+
+        private Digits(BigInteger x) {
+            this.bytes = x.abs().toByteArray();
+            this.count = (x.abs().bitLength() + DIGIT_BITS - 1) / DIGIT_BITS;
+        }
+
+        /** Copies the digits, least significant first, to the start of an array. */
+        private void copyTo(IntBuffer digits) {
+            for (int i = 0; i < count; i++) {
+                final int low = bytes.length - 1 - 2 * i;
+                digits.put(i, (bytes[low] & 0xFF) | (low > 0 ? (bytes[low - 1] & 0xFF) << 8 : 0));
+            }
+        }
+    }
+
+    /** Rebuilds an integer from the residues of its convolution modulo P1 and P2. */
+    private static BigInteger toBigInteger(IntBuffer residues1, IntBuffer residues2, int digits, int signum) {
+        final byte[] bytes = new byte[2 * digits];
+        long carry = 0;
+        for (int i = 0; i < digits; i++) {
+            final long r1 = residues1.get(i);
+            // The convolution is r1 + P1*k, where k is given by its residue modulo P2
+            final long k = (residues2.get(i) - r1 % P2 + P2) % P2 * P1_INVERSE % P2;
+            final long value = r1 + P1 * k + carry;
+            final int low = bytes.length - 1 - 2 * i;
+            bytes[low] = (byte) value;
+            bytes[low - 1] = (byte) (value >>> 8);
+            carry = value >>> DIGIT_BITS;
+        }
+        return new BigInteger(signum, bytes);
+    }
+
+    private static long pow(long base, long exponent, int modulus) {
+        long result = 1;
+        for (long b = base % modulus, e = exponent; e != 0; e >>>= 1, b = b * b % modulus) {
+            if ((e & 1) != 0) {
+                result = result * b % modulus;
+            }
+        }
+        return result;
+    }
+
+    /** A transform of a given length modulo a prime.
+     * <br>The forward transform is a decimation in frequency, whose output is in bit reversed order, and the inverse one
+     * a decimation in time, whose input is in bit reversed order, so that no permutation is required to compute a convolution.
+     * <br>Products modulo p use <a href="https://en.wikipedia.org/wiki/Montgomery_modular_multiplication">Montgomery
+     * reduction</a>, that replaces the slow long division by multiplications: the roots are stored multiplied by 2<sup>32</sup>,
+     * so that the reduced product of a value by a root is the product modulo p.
+     */
+    private static final class Transform {
+        private final int p;
+        /** -1/p modulo 2<sup>32</sup>. */
+        private final int negativeInverse;
+        /** The powers of a primitive length-th root of unity, w<sup>j</sup>*2<sup>32</sup> modulo p for j &lt; length/2. */
+        private final IntBuffer roots;
+        private final int halfLength;
+
+        private Transform(int p, int generator, int length) {
+            this.p = p;
+            // Each Newton iteration doubles the number of correct bits of the inverse, p is its own inverse modulo 8
+            int inverse = p;
+            for (int i = 0; i < 4; i++) {
+                inverse *= 2 - p * inverse;
+            }
+            this.negativeInverse = -inverse;
+            this.halfLength = length / 2;
+            this.roots = allocate(halfLength);
+            final long w = pow(generator, (p - 1L) / length, p);
+            long root = (1L << 32) % p;
+            for (int j = 0; j < halfLength; j++) {
+                roots.put(j, (int) root);
+                root = root * w % p;
+            }
+        }
+
+        /** Computes x*y/2<sup>32</sup> modulo p.
+         * @param x A value lower than p
+         * @param y A value lower than p
+         * @return A value lower than p
+         */
+        private long reduce(long x, long y) {
+            final long product = x * y;
+            // product + m*p is a multiple of 2^32, lower than 2^64 (but possibly negative as a signed long)
+            final long m = ((int) product * negativeInverse) & 0xFFFFFFFFL;
+            final long result = (product + m * p) >>> 32;
+            return result >= p ? result - p : result;
+        }
+
+        /** Computes the cyclic convolution of two digit arrays.
+         * @return the convolution, with 2*halfLength values modulo p
+         */
+        private IntBuffer convolve(Digits a, Digits b) {
+            final int length = 2 * halfLength;
+            final IntBuffer fa = allocate(length);
+            a.copyTo(fa);
+            transform(fa, 0, length, 1, false);
+            final IntBuffer fb;
+            if (a == b) {
+                fb = fa;
+            } else {
+                fb = allocate(length);
+                b.copyTo(fb);
+                transform(fb, 0, length, 1, false);
+            }
+            // The products are divided by 2^32, so are the convolution values
+            for (int i = 0; i < length; i++) {
+                fa.put(i, (int) reduce(fa.get(i), fb.get(i)));
+            }
+            transform(fa, 0, length, 1, true);
+            // Multiplied by 2^64/length, then reduced, the values are divided by length and multiplied by 2^32
+            final long r = (1L << 32) % p;
+            final long scale = pow(length, p - 2L, p) * (r * r % p) % p;
+            for (int i = 0; i < length; i++) {
+                fa.put(i, (int) reduce(fa.get(i), scale));
+            }
+            return fa;
+        }
+
+        /** Transforms a range of an array.
+         * @param rootStep The step between the roots of this range length in {@link #roots}
+         */
+        private void transform(IntBuffer a, int offset, int length, int rootStep, boolean inverse) {
+            if (length < 2) {
+                return;
+            }
+            final int half = length / 2;
+            if (!inverse) {
+                butterflies(a, offset, half, rootStep, 0, half, false);
+            }
+            if (length > SEQUENTIAL_LENGTH) {
+                ForkJoinTask.invokeAll(ForkJoinTask.adapt(() -> transform(a, offset, half, 2 * rootStep, inverse)),
+                        ForkJoinTask.adapt(() -> transform(a, offset + half, half, 2 * rootStep, inverse)));
+            } else {
+                transform(a, offset, half, 2 * rootStep, inverse);
+                transform(a, offset + half, half, 2 * rootStep, inverse);
+            }
+            if (inverse) {
+                butterflies(a, offset, half, rootStep, 0, half, true);
+            }
+        }
+
+        /** Computes the butterflies [from, to) of a range of length 2*half. */
+        private void butterflies(IntBuffer a, int offset, int half, int rootStep, int from, int to, boolean inverse) {
+            if (to - from > SEQUENTIAL_LENGTH) {
+                final int middle = (from + to) >>> 1;
+                ForkJoinTask.invokeAll(ForkJoinTask.adapt(() -> butterflies(a, offset, half, rootStep, from, middle, inverse)),
+                        ForkJoinTask.adapt(() -> butterflies(a, offset, half, rootStep, middle, to, inverse)));
+                return;
+            }
+            if (inverse) {
+                for (int j = from; j < to; j++) {
+                    // w^-k = -w^(length/2-k)
+                    final int k = j * rootStep;
+                    final int i = offset + j;
+                    final long u = a.get(i);
+                    final long v = k == 0 ? a.get(i + half) : reduce(a.get(i + half), p - roots.get(halfLength - k));
+                    final long sum = u + v;
+                    a.put(i, (int) (sum >= p ? sum - p : sum));
+                    a.put(i + half, (int) (u >= v ? u - v : u - v + p));
+                }
+            } else {
+                for (int j = from; j < to; j++) {
+                    final int i = offset + j;
+                    final long u = a.get(i);
+                    final long v = a.get(i + half);
+                    final long sum = u + v;
+                    a.put(i, (int) (sum >= p ? sum - p : sum));
+                    a.put(i + half, (int) reduce(u >= v ? u - v : u - v + p, roots.get(j * rootStep)));
+                }
+            }
+        }
+    }
+}
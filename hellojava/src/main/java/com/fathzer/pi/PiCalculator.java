@@ -1,10 +1,52 @@
 package com.fathzer.pi;
 
 import java.math.BigDecimal;
+import java.math.BigInteger;
 import java.math.MathContext;
 import java.math.RoundingMode;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.atomic.AtomicReference;
 
 public abstract class PiCalculator {
+    /** The algorithms available to compute Pi. All use the
+     * <a href="https://en.wikipedia.org/wiki/Chudnovsky_algorithm">Chudnovsky</a> series and return the same digits.
+     */
+    public enum Algorithm {
+        /** The series is computed term by term with {@link BigDecimal} divisions. */
+        SERIES,
+        /** The series is computed with exact {@link BigInteger} products using
+         * <a href="https://en.wikipedia.org/wiki/Binary_splitting">binary splitting</a>, followed by a single division.
+         * <br>This is much faster for large digit counts, and large computations are parallelized using the common fork-join pool.
+         * <br>Very large numbers are multiplied with a number-theoretic transform and, above {@value #NTT_DIGITS} digits, the
+         * final division and square root use Newton's method, so that millions of digits can be computed.
+         */
+        BINARY_SPLITTING,
+        /** The series is computed term by term, like {@link #SERIES}, but on mutable fixed-point numbers.
+         * <br>The terms are updated in place, so the loop allocates nothing, and a computation only allocates a few numbers.
+         */
+        FIXED_POINT
+    }
+
+    /** The name of the system property that, set to true before the first computation, stores the largest numbers of the
+     * computations outside the heap (see {@link NttArithmetic}).
+     */
+    public static final String OFF_HEAP_PROPERTY = "com.fathzer.pi.offHeap";
+    /** The number of series terms under which binary splitting is not split into parallel tasks. */
+    private static final int MIN_PARALLEL_TERMS = 256;
+    /** The number of digits above which Pi is computed from the series with {@link NttArithmetic} instead of {@link BigDecimal}. */
+    static final int NTT_DIGITS = 100_000;
+    /** 426880<sup>2</sup>*10005, the square of the numerator of the Chudnovsky formula. */
+    private static final long NUMERATOR_SQUARE = 426880L * 426880L * 10005L;
+    /** The number of bits of a decimal digit. */
+    private static final double BITS_PER_DIGIT = Math.log(10) / Math.log(2);
+    /** C^3/24 where C=640320 is the Chudnovsky constant, split in two factors that fit in {@link FixedPoint#MAX_FACTOR}. */
+    private static final int C3_OVER_24_HIGH = 23 * 23 * 23 * 29 * 29 * 29;
+    private static final int C3_OVER_24_LOW = (1 << 15) * 9 * 125;
+    /** C^3/24 where C=640320 is the Chudnovsky constant. */
+    private static final BigInteger C3_OVER_24 = BigInteger.valueOf(640320L * 640320L * 640320L / 24);
+    /** The most precise square root of 10005 computed so far. */
+    private static final AtomicReference<ScaledSqrt> SQRT_10005 = new AtomicReference<>(new ScaledSqrt(BigInteger.valueOf(10005), 16));
+
     private PiCalculator() {
         // Private constructor to prevent instantiation
     }
@@ -14,37 +56,305 @@ public abstract class PiCalculator {
         if (digits < 1) {
             throw new IllegalArgumentException("Number of digits must be at least 1");
         }
+        final PiComputationEvent event = new PiComputationEvent();
+        event.begin();
         MathContext mc = new MathContext(digits + 10, RoundingMode.HALF_UP); // extra digits for accuracy
-        final BigDecimal c = new BigDecimal("426880").multiply(sqrt(new BigDecimal("10005"), mc));
+        final BigDecimal c = new BigDecimal("426880").multiply(sqrt10005(mc.getPrecision()));
         BigDecimal m = BigDecimal.ONE;
         BigDecimal x = BigDecimal.ONE;
         BigDecimal l = BigDecimal.valueOf(13591409);
         BigDecimal s = l;
 
         for (int k = 1; k < digits / 14 + 1; k++) {
-            m = m.multiply(BigDecimal.valueOf((6 * k - 5) * (2 * k - 1) * (6 * k - 1)))
-                 .divide(BigDecimal.valueOf(k * k * k), mc);
+            m = m.multiply(BigDecimal.valueOf((6L * k - 5) * (2L * k - 1) * (6L * k - 1)))
+                 .divide(BigDecimal.valueOf((long) k * k * k), mc);
             l = l.add(BigDecimal.valueOf(545140134));
-            x = x.multiply(BigDecimal.valueOf(-262537412640768000L), mc);
+            // m is (6k)!/((3k)!(k!)^3) divided by 24^k, so x is (-640320^3/24)^k
+            x = x.multiply(BigDecimal.valueOf(-10939058860032000L), mc);
             BigDecimal term = m.multiply(l).divide(x, mc);
             s = s.add(term);
         }
 
         BigDecimal pi = c.divide(s, mc);
+        commit(event, "series", digits, digits / 14);
         return pi.setScale(digits, RoundingMode.DOWN);
     }
 
-    // Square root using Newton-Raphson method
-    private static BigDecimal sqrt(BigDecimal A, MathContext mc) {
-        BigDecimal x0 = BigDecimal.ZERO;
-        BigDecimal x1 = BigDecimal.valueOf(Math.sqrt(A.doubleValue()));
-        while (!x0.equals(x1)) {
-            x0 = x1;
-            x1 = A.divide(x0, mc);
-            x1 = x1.add(x0);
-            x1 = x1.divide(BigDecimal.valueOf(2), mc);
+    /** Computes Pi with a given algorithm.
+     * @param digits The number of decimal digits to compute
+     * @param algorithm The algorithm to use
+     * @return Pi truncated to <i>digits</i> decimals
+     */
+    public static BigDecimal computePi(int digits, Algorithm algorithm) {
+        switch (algorithm) {
+            case SERIES:
+                return computePi(digits);
+            case FIXED_POINT:
+                return computePiWithFixedPoint(digits);
+            default:
+                return computePiWithBinarySplitting(digits);
+        }
+    }
+
+    private static BigDecimal computePiWithFixedPoint(int digits) {
+        if (digits < 1) {
+            throw new IllegalArgumentException("Number of digits must be at least 1");
+        }
+        final PiComputationEvent event = new PiComputationEvent();
+        event.begin();
+        MathContext mc = new MathContext(digits + 10, RoundingMode.HALF_UP); // extra digits for accuracy
+        // Two guard limbs absorb the truncation errors of the divisions
+        final int fractionLimbs = (int) Math.ceil(mc.getPrecision() * BITS_PER_DIGIT / 32) + 2;
+        // a is the absolute value of the k-th term without its linear factor: (6k)!/((3k)!(k!)^3) / (640320^3/24)^k
+        final FixedPoint a = new FixedPoint(2, fractionLimbs).set(1);
+        // sum is the sum of (-1)^k*a, weightedSum the sum of (-1)^k*k*a
+        final FixedPoint sum = new FixedPoint(2, fractionLimbs).set(1);
+        final FixedPoint weightedSum = new FixedPoint(2, fractionLimbs);
+        final int iterations = digits / 14;
+        for (int k = 1; k <= iterations && !a.isZero(); k++) {
+            // a(k) = a(k-1) * (6k-5)(2k-1)(6k-1) / (k^3 * 640320^3/24), divisions are interleaved with multiplications to keep the integer part small
+            multiply(a, 6L * k - 5, 2L * k - 1);
+            a.divide(C3_OVER_24_HIGH);
+            a.multiply((int) (6L * k - 1));
+            a.divide(C3_OVER_24_LOW);
+            divide(a, k);
+            final int sign = (k & 1) == 0 ? 1 : -1;
+            sum.addMultiple(a, sign);
+            weightedSum.addMultiple(a, sign * k);
+        }
+        // The sum of the series is 13591409*sum + 545140134*weightedSum
+        sum.multiply(13591409).addMultiple(weightedSum, 545140134);
+        final BigDecimal c = new BigDecimal("426880").multiply(sqrt10005(mc.getPrecision()));
+        final BigDecimal scale = new BigDecimal(BigInteger.ONE.shiftLeft(32 * fractionLimbs));
+        final BigDecimal pi = c.multiply(scale).divide(new BigDecimal(sum.toScaledBigInteger()), mc);
+        commit(event, "fixed_point", digits, iterations);
+        return pi.setScale(digits, RoundingMode.DOWN);
+    }
+
+    /** Multiplies a fixed-point number by two factors, in a single pass if their product is small enough. */
+    private static void multiply(FixedPoint x, long factor1, long factor2) {
+        final long product = factor1 * factor2;
+        if (product <= FixedPoint.MAX_FACTOR) {
+            x.multiply((int) product);
+        } else {
+            x.multiply((int) factor1);
+            x.multiply((int) factor2);
+        }
+    }
+
+    /** Divides a fixed-point number by k<sup>3</sup>, in as few passes as possible. */
+    private static void divide(FixedPoint x, int k) {
+        final long square = (long) k * k;
+        if (square * k <= FixedPoint.MAX_FACTOR) {
+            x.divide((int) (square * k));
+        } else if (square <= FixedPoint.MAX_FACTOR) {
+            x.divide((int) square);
+            x.divide(k);
+        } else {
+            x.divide(k);
+            x.divide(k);
+            x.divide(k);
         }
-        return x1;
     }
 
+    private static BigDecimal computePiWithBinarySplitting(int digits) {
+        if (digits < 1) {
+            throw new IllegalArgumentException("Number of digits must be at least 1");
+        }
+        final PiComputationEvent event = new PiComputationEvent();
+        event.begin();
+        final int terms = terms(digits);
+        final BigDecimal pi = computePi(series(0, terms), digits);
+        commit(event, "binary_splitting", digits, terms);
+        return pi;
+    }
+
+    /** Commits a Pi computation event, if it is enabled.
+     * @param event The event, started at the beginning of the computation
+     * @param algorithm The algorithm used by the computation
+     * @param digits The number of decimal digits computed
+     * @param iterations The number of terms of the series computed
+     */
+    static void commit(PiComputationEvent event, String algorithm, int digits, int iterations) {
+        if (event.shouldCommit()) {
+            event.algorithm = algorithm;
+            event.digits = digits;
+            event.iterations = iterations;
+            event.commit();
+        }
+    }
+
+    /** Gets the number of terms of the series required to compute Pi.
+     * @param digits The number of decimal digits to compute
+     * @return a number of terms
+     */
+    static int terms(int digits) {
+        // Each term of the series adds about 14.18 digits
+        return digits / 14 + 2;
+    }
+
+    /** Computes a range of terms of the series, in parallel if the range is large.
+     * @param a The first term (inclusive)
+     * @param b The last term (exclusive)
+     * @return The P, Q and T values of the range
+     */
+    static Series series(int a, int b) {
+        return b - a >= MIN_PARALLEL_TERMS ? new SeriesTask(a, b).invoke() : Series.compute(a, b);
+    }
+
+    /** Computes Pi from the values of the series.
+     * @param series The values of, at least, the {@link #terms(int)} first terms of the series
+     * @param digits The number of decimal digits to compute
+     * @return Pi truncated to <i>digits</i> decimals
+     */
+    static BigDecimal computePi(Series series, int digits) {
+        if (digits >= NTT_DIGITS) {
+            return computePiWithNtt(series, digits);
+        }
+        MathContext mc = new MathContext(digits + 10, RoundingMode.HALF_UP); // extra digits for accuracy
+        final BigDecimal numerator = new BigDecimal(series.q.multiply(BigInteger.valueOf(426880))).multiply(sqrt10005(mc.getPrecision()));
+        final BigDecimal pi = numerator.divide(new BigDecimal(series.t), mc);
+        return pi.setScale(digits, RoundingMode.DOWN);
+    }
+
+    /** Computes Pi from the values of the series with {@link NttArithmetic} integer operations.
+     * <br>Pi is 426880*sqrt(10005)*Q/T, so Pi scaled by 10<sup>n</sup> is sqrt(426880<sup>2</sup>*10005*10<sup>2n</sup>)*Q/T.
+     * @param series The values of, at least, the {@link #terms(int)} first terms of the series
+     * @param digits The number of decimal digits to compute
+     * @return Pi truncated to <i>digits</i> decimals
+     */
+    static BigDecimal computePiWithNtt(Series series, int digits) {
+        final int precision = digits + 10; // extra digits for accuracy
+        // 10^2n = 5^2n*2^2n
+        final BigInteger scale = NttArithmetic.pow(BigInteger.valueOf(5), 2 * precision).shiftLeft(2 * precision);
+        final BigInteger numerator = NttArithmetic.sqrt(scale.multiply(BigInteger.valueOf(NUMERATOR_SQUARE)));
+        final BigInteger pi = NttArithmetic.divide(NttArithmetic.multiply(numerator, series.q), series.t);
+        return new BigDecimal(pi, precision).setScale(digits, RoundingMode.DOWN);
+    }
+
+    /** The P, Q and T values of a range [a, b) of terms of the Chudnovsky series. */
+    static final class Series {
+        private final BigInteger p;
+        private final BigInteger q;
+        private final BigInteger t;
+
+        private Series(BigInteger p, BigInteger q, BigInteger t) {
+            this.p = p;
+            this.q = q;
+            this.t = t;
+        }
+
+        private static Series compute(int a, int b) {
+            if (b - a == 1) {
+                return term(a);
+            }
+            final int m = (a + b) / 2;
+            return compute(a, m).combine(compute(m, b));
+        }
+
+        private static Series term(int a) {
+            final BigInteger p;
+            final BigInteger q;
+            if (a == 0) {
+                p = BigInteger.ONE;
+                q = BigInteger.ONE;
+            } else {
+                final BigInteger k = BigInteger.valueOf(a);
+                p = BigInteger.valueOf(6L * a - 5).multiply(BigInteger.valueOf(2L * a - 1)).multiply(BigInteger.valueOf(6L * a - 1));
+                q = k.multiply(k).multiply(k).multiply(C3_OVER_24);
+            }
+            final BigInteger t = p.multiply(BigInteger.valueOf(13591409L + 545140134L * a));
+            return new Series(p, q, (a & 1) == 0 ? t : t.negate());
+        }
+
+        /** Combines this range [a, m) with the following range [m, b).
+         * @param next The range that immediately follows this one
+         * @return The values of the range [a, b)
+         */
+        Series combine(Series next) {
+            return new Series(NttArithmetic.multiply(p, next.p), NttArithmetic.multiply(q, next.q),
+                    NttArithmetic.multiply(next.q, t).add(NttArithmetic.multiply(p, next.t)));
+        }
+    }
+
+    /** A fork-join task that computes a range of the series by splitting it in two halves computed in parallel. */
+    private static class SeriesTask extends RecursiveTask<Series> {
+        private static final long serialVersionUID = 1L;
+
+        private final int a;
+        private final int b;
+
+        private SeriesTask(int a, int b) {
+            this.a = a;
+            this.b = b;
+        }
+
+        @Override
+        protected Series compute() {
+            if (b - a < MIN_PARALLEL_TERMS) {
+                return Series.compute(a, b);
+            }
+            final int m = (a + b) / 2;
+            final SeriesTask left = new SeriesTask(a, m);
+            left.fork();
+            final Series right = new SeriesTask(m, b).compute();
+            return left.join().combine(right);
+        }
+    }
+
+    /** Gets the square root of 10005.
+     * <br>The most precise value computed so far is cached, less precise requests are served by truncating it.
+     * @param digits The number of decimal digits required
+     * @return sqrt(10005) truncated to <i>digits</i> decimals
+     */
+    static BigDecimal sqrt10005(int digits) {
+        ScaledSqrt sqrt = SQRT_10005.get();
+        if (sqrt.digits < digits) {
+            // Compute more digits than required to serve calls with slightly growing precisions from the cache
+            final int target = Math.max(digits, Integer.highestOneBit(digits) * 2);
+            sqrt = SQRT_10005.accumulateAndGet(sqrt.refine(target), (current, computed) -> current.digits >= computed.digits ? current : computed);
+        }
+        return new BigDecimal(sqrt.value, sqrt.digits).setScale(digits, RoundingMode.DOWN);
+    }
+
+    /** The integer square root of a value multiplied by 10<sup>2*digits</sup>, that is its square root scaled by 10<sup>digits</sup> and truncated. */
+    private static final class ScaledSqrt {
+        private final BigInteger square;
+        private final int digits;
+        private final BigInteger value;
+
+        private ScaledSqrt(BigInteger square, int digits) {
+            this(square, digits, square.multiply(BigInteger.TEN.pow(2 * digits)).sqrt());
+        }
+
+        private ScaledSqrt(BigInteger square, int digits, BigInteger value) {
+            this.square = square;
+            this.digits = digits;
+            this.value = value;
+        }
+
+        /** Computes a more precise square root.
+         * <br>Each Newton-Raphson iteration starts from the previous integer root, so it doubles the number of correct digits.
+         * @param target The required number of digits (should be greater than this number of digits)
+         * @return A new instance
+         */
+        private ScaledSqrt refine(int target) {
+            ScaledSqrt result = this;
+            while (result.digits < target) {
+                result = result.next(Math.min(target, 2 * result.digits));
+            }
+            return result;
+        }
+
+        private ScaledSqrt next(int digits) {
+            final BigInteger n = square.multiply(BigInteger.TEN.pow(2 * digits));
+            BigInteger x = value.multiply(BigInteger.TEN.pow(digits - this.digits));
+            // An integer Newton-Raphson iteration never returns a value below the integer root
+            x = x.add(n.divide(x)).shiftRight(1);
+            while (x.multiply(x).compareTo(n) > 0) {
+                x = x.subtract(BigInteger.ONE);
+            }
+            return new ScaledSqrt(square, digits, x);
+        }
+    }
 }
@@ -0,0 +1,24 @@
+package com.fathzer.pi;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/** A Flight Recorder event that spans a computation of Pi.
+ * <br>The requests an {@link IncrementalPiCalculator} serves from a previous computation do not emit events.
+ */
+@Name("com.fathzer.pi.PiComputation")
+@Label("Pi Computation")
+@Category({"HelloJava", "Pi"})
+@Description("A computation of Pi")
+final class PiComputationEvent extends Event {
+    @Label("Algorithm")
+    String algorithm;
+    @Label("Digits")
+    int digits;
+    @Label("Iterations")
+    @Description("The number of terms of the series computed, an incremental computation only computes the terms it misses")
+    int iterations;
+}
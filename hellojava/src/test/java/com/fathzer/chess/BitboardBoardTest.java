@@ -0,0 +1,43 @@
+package com.fathzer.chess;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import static com.fathzer.chess.MoveGeneratorsTest.FENS;
+import static com.fathzer.chess.MoveGeneratorsTest.assertSameMovesAsMailbox;
+
+import org.junit.jupiter.api.Test;
+
+class BitboardBoardTest {
+    @Test
+    void testSameMovesAsMailbox() {
+        assertSameMovesAsMailbox(BitboardBoard::new);
+    }
+
+    @Test
+    void testMakeUnmake() {
+        final BitboardBoard board = new BitboardBoard("rnbqkbnr/ppp1pppp/8/3p4/4P3/8/PPPP1PPP/RNBQKBNR");
+        final String initial = board.toString();
+        assertThrows(IllegalStateException.class, board::unmakeMove);
+        assertThrows(IllegalArgumentException.class, () -> board.makeMove(new Move("e3", "e4").toInt()));
+        assertThrows(IllegalArgumentException.class, () -> board.makeMove(new Move("d1", "d2").toInt()));
+
+        board.makeMove(new Move("e4", "d5").toInt());
+        assertNull(board.getPiece("e4"));
+        assertEquals(Piece.WHITE_PAWN, board.getPiece("d5"));
+        final BitboardBoard copy = board.fork();
+        board.unmakeMove();
+        assertEquals(initial, board.toString());
+        assertEquals(Piece.WHITE_PAWN, copy.getPiece("d5"));
+    }
+
+    @Test
+    void testPerft() {
+        final Perft perft = new Perft();
+        for (String fen : FENS) {
+            final Perft.Result expected = perft.perft(new Board(fen), 3);
+            final Perft.Result result = perft.perft(new BitboardBoard(fen), 3);
+            assertEquals(expected.leafNodesCount(), result.leafNodesCount());
+            assertEquals(expected.divide(), result.divide());
+        }
+    }
+}
@@ -6,8 +6,10 @@ import static org.junit.jupiter.api.Assertions.*;
 
 import static com.fathzer.chess.MoveGeneratorsTest.*;
 
+import java.util.HashSet;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.Set;
 import java.util.function.IntConsumer;
 import java.util.stream.IntStream;
 
@@ -133,6 +135,69 @@ class BoardTest {
         );
     }
 
+    @Test
+    void testLongHistory() {
+        final String initial = "rnbqkbnr/ppp1pppp/8/3p4/4P3/8/PPPP1PPP/RNBQKBNR w KQkq d6 0 2";
+        final Board board = new Board(initial);
+        final long key = board.getHashKey();
+        board.makeMove(new Move("e4", "d5"));
+        // More moves than the preallocated history
+        for (int i = 0; i < 50; i++) {
+            board.makeMove(new Move("g8", "f6"));
+            board.makeMove(new Move("g1", "f3"));
+            board.makeMove(new Move("f6", "g8"));
+            board.makeMove(new Move("f3", "g1"));
+        }
+        final Board copy = new Board(board);
+        for (int i = 0; i < 200; i++) {
+            board.unmakeMove();
+        }
+        assertEquals("rnbqkbnr/ppp1pppp/8/3P4/8/8/PPPP1PPP/RNBQKBNR b KQkq - 0 2", board.toFen());
+        board.unmakeMove();
+        assertEquals(initial, board.toFen());
+        assertEquals(key, board.getHashKey());
+        assertThrows(IllegalStateException.class, board::unmakeMove);
+        // The copy keeps its own history
+        copy.unmakeMove();
+        assertEquals("rnbqkbnr/ppp1pppp/8/3P4/8/5N2/PPPP1PPP/RNBQKB1R w KQkq - 199 102", copy.toFen());
+    }
+
+    @Test
+    void testPieceLists() {
+        final Board board = new Board("r3k2r/p1ppqpb1/bn2pnp1/3PN3/1p2P3/2N2Q1p/PPPBBPPP/R3K2R w KQkq -", true);
+        assertPieceLists(board);
+        // Castling, captures, en passant and promotions
+        for (String uci : new String[] {"e1g1", "c7c5", "d5c6", "h3g2", "a1b1", "g2h1q", "c6d7", "e8d7"}) {
+            board.makeMove(Move.fromUCI(uci));
+            assertPieceLists(board);
+        }
+        assertEquals(14, board.getPiecesCount(true));
+        assertEquals(14, board.getPiecesCount(false));
+        for (int i = 0; i < 8; i++) {
+            board.unmakeMove();
+            assertPieceLists(board);
+        }
+        assertEquals(16, board.getPiecesCount(true));
+        assertPieceLists(board.fork());
+
+        assertThrows(IllegalArgumentException.class, () -> new Board("QQQQQQQQ/QQQQQQQQ/Q7/8/8/8/8/8"));
+    }
+
+    private static void assertPieceLists(Board board) {
+        for (boolean white : new boolean[] {true, false}) {
+            final Set<Integer> squares = new HashSet<>();
+            for (int i = 0; i < board.getPiecesCount(white); i++) {
+                squares.add(board.getPieceSquare(white, i));
+            }
+            assertEquals(board.getPiecesCount(white), squares.size());
+            for (int square = 21; square < 99; square++) {
+                final Piece piece = board.getPiece(square);
+                final boolean expected = piece != null && piece != Piece.BLOCKER && piece.isWhite() == white;
+                assertEquals(expected, squares.contains(square), "Wrong piece list at " + square);
+            }
+        }
+    }
+
     @Test
     void testGetMoves() {
         final Board board = new Board("8/8/8/8/1k6/8/pK6/Q7");
@@ -144,5 +209,105 @@ class BoardTest {
         final List<Move> blackMoves = board.getMoves(false);
         testMoves(parseMoveList("b4", "a5 b5 c5 a4 c4 a3 b3 c3"), blackMoves);
         assertEquals(8, blackMoves.size());
+
+        final MoveList moves = new MoveList();
+        board.getMoves(moves, true);
+        testMoves(whiteMoves, moves.toList());
+        board.getMoves(moves, false);
+        testMoves(blackMoves, moves.toList());
+    }
+
+    @Test
+    void testHashKey() {
+        final Board board = new Board("rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR");
+        final long initialKey = board.getHashKey();
+        assertEquals(initialKey, new BitboardBoard("rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR").getHashKey());
+
+        board.makeMove(new Move("e2", "e4"));
+        final long e4Key = board.getHashKey();
+        assertNotEquals(initialKey, e4Key);
+        board.makeMove(new Move("d7", "d5"));
+        board.makeMove(new Move("e4", "d5"));
+        assertEquals(new Board("rnbqkbnr/ppp1pppp/8/3P4/8/8/PPPP1PPP/RNBQKBNR b").getHashKey(), board.getHashKey());
+        // The side to move is part of the key
+        assertNotEquals(new Board("rnbqkbnr/ppp1pppp/8/3P4/8/8/PPPP1PPP/RNBQKBNR w").getHashKey(), board.getHashKey());
+        board.unmakeMove();
+        board.unmakeMove();
+        assertEquals(e4Key, board.getHashKey());
+        board.unmakeMove();
+        assertEquals(initialKey, board.getHashKey());
+
+        // Transposition
+        board.makeMove(new Move("g1", "f3"));
+        board.makeMove(new Move("g8", "f6"));
+        board.makeMove(new Move("b1", "c3"));
+        final Board other = new Board("rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR");
+        other.makeMove(new Move("b1", "c3"));
+        other.makeMove(new Move("g8", "f6"));
+        other.makeMove(new Move("g1", "f3"));
+        assertEquals(board.getHashKey(), other.getHashKey());
+        assertEquals(board.getHashKey(), new Board(board).getHashKey());
+    }
+
+    @Test
+    void testFen() {
+        for (ChessBoard.Type type : ChessBoard.Type.values()) {
+            for (String fen : new String[] {"rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w KQkq - 0 1", "r3k2r/p1ppqpb1/bn2pnp1/3PN3/1p2P3/2N2Q1p/PPPBBPPP/R3K2R b Kq - 12 40",
+                    "4k3/8/8/8/3Pp3/8/8/4K3 b - d3 0 1", "8/8/8/8/8/8/8/8 w - - 0 1"}) {
+                final ChessBoard board = type.create(fen);
+                assertEquals(fen, board.toFen(), type.toString());
+                final StringBuilder builder = new StringBuilder("fen: ");
+                board.appendFen(builder);
+                assertEquals("fen: " + fen, builder.toString());
+            }
+            // Missing fields have default values
+            final ChessBoard board = type.create("rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR");
+            assertEquals("rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w - - 0 1", board.toFen());
+            assertTrue(board.isWhiteToMove());
+            assertEquals(type.create("rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w").getHashKey(), board.getHashKey());
+            assertNotEquals(type.create("rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR b").getHashKey(), board.getHashKey());
+
+            // Played moves update the side to move and the counters
+            final ChessBoard played = type.create("rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w KQkq - 0 1");
+            played.makeMove(new Move("g1", "f3").toInt());
+            assertEquals("rnbqkbnr/pppppppp/8/8/8/5N2/PPPPPPPP/RNBQKB1R b KQkq - 1 1", played.toFen());
+            played.makeMove(new Move("e7", "e5").toInt());
+            assertEquals("rnbqkbnr/pppp1ppp/8/4p3/8/5N2/PPPPPPPP/RNBQKB1R w KQkq e6 0 2", played.toFen());
+            played.makeMove(new Move("f3", "e5").toInt());
+            assertEquals("rnbqkbnr/pppp1ppp/8/4N3/8/8/PPPPPPPP/RNBQKB1R b KQkq - 0 2", played.toFen());
+            assertEquals(type.create(played.toFen()).getHashKey(), played.getHashKey());
+            played.unmakeMove();
+            played.unmakeMove();
+            assertEquals("rnbqkbnr/pppppppp/8/8/8/5N2/PPPPPPPP/RNBQKB1R b KQkq - 1 1", played.toFen());
+            assertEquals(1, played.getHalfMoveClock());
+            assertEquals(1, played.getFullMoveNumber());
+            assertFalse(played.isWhiteToMove());
+            assertEquals("rnbqkbnr/pppppppp/8/8/8/5N2/PPPPPPPP/RNBQKB1R b KQkq - 1 1", played.fork().toFen());
+        }
+        for (String invalid : new String[] {"8/8/8/8/8/8/8/8 w - - -1 1", "8/8/8/8/8/8/8/8 w - - 0 0", "8/8/8/8/8/8/8/8 w - - x 1"}) {
+            assertThrows(IllegalArgumentException.class, () -> new Board(invalid), invalid);
+        }
+    }
+
+    @Test
+    void testCountMoves() {
+        for (ChessBoard.Type type : ChessBoard.Type.values()) {
+            for (String fen : new String[] {"rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w KQkq -", "r3k2r/p1ppqpb1/bn2pnp1/3PN3/1p2P3/2N2Q1p/PPPBBPPP/R3K2R w KQkq -",
+                    "8/8/8/8/1k6/8/pK6/Q7", "r3k2r/Pppp1ppp/1b3nbN/nP6/BBP1P3/q4N2/Pp1P2PP/R2Q1RK1 w kq - 0 1"}) {
+                final ChessBoard board = type.create(fen);
+                // Compare on the positions of the first two plies
+                final MoveList moves = new MoveList();
+                for (boolean white : new boolean[] {true, false}) {
+                    board.getMoves(moves, white);
+                    assertEquals(moves.size(), board.countMoves(white), type + " " + fen);
+                    for (Move move : board.getMoves(white)) {
+                        board.makeMove(move.toInt());
+                        board.getMoves(moves, !white);
+                        assertEquals(moves.size(), board.countMoves(!white), type + " " + fen + " after " + move);
+                        board.unmakeMove();
+                    }
+                }
+            }
+        }
     }
 }
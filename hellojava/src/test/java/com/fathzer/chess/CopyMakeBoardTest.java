@@ -0,0 +1,77 @@
+package com.fathzer.chess;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import static com.fathzer.chess.MoveGeneratorsTest.assertSameMovesAsMailbox;
+
+import org.junit.jupiter.api.Test;
+
+class CopyMakeBoardTest {
+    @Test
+    void testSameMovesAsMailbox() {
+        assertSameMovesAsMailbox(CopyMakeBoard::new);
+    }
+
+    @Test
+    void testSpecialMoves() {
+        // Castling, en passant and promotions are played as the mailbox board does
+        for (String fen : new String[] {"r3k2r/p1ppqpb1/bn2pnp1/3PN3/1p2P3/2N2Q1p/PPPBBPPP/R3K2R w KQkq -",
+                "r3k2r/Pppp1ppp/1b3nbN/nP6/BBP1P3/q4N2/Pp1P2PP/R2Q1RK1 w kq - 0 1"}) {
+            play(new Board(fen, true), new CopyMakeBoard(fen), 3);
+        }
+    }
+
+    private static void play(Board board, CopyMakeBoard copyMake, int depth) {
+        assertEquals(board.toFen(), copyMake.toFen());
+        assertEquals(board.getHashKey(), copyMake.getHashKey());
+        if (depth > 0) {
+            for (Move move : board.getMoves()) {
+                board.makeMove(move);
+                copyMake.makeMove(move.toInt());
+                play(board, copyMake, depth - 1);
+                board.unmakeMove();
+                copyMake.unmakeMove();
+                assertEquals(board.toFen(), copyMake.toFen());
+            }
+        }
+    }
+
+    @Test
+    void testCopy() {
+        final CopyMakeBoard board = new CopyMakeBoard("rnbqkbnr/ppp1pppp/8/3p4/4P3/8/PPPP1PPP/RNBQKBNR w KQkq d6 0 2");
+        final String initial = board.toFen();
+        assertThrows(IllegalStateException.class, board::unmakeMove);
+        assertThrows(IllegalArgumentException.class, () -> board.makeMove(new Move("e3", "e4").toInt()));
+        assertThrows(IllegalArgumentException.class, () -> board.makeMove(new Move("d1", "d2").toInt()));
+
+        board.makeMove(new Move("e4", "d5").toInt());
+        final CopyMakeBoard copy = board.fork();
+        assertEquals(board.toFen(), copy.toFen());
+        assertEquals(board.getHashKey(), copy.getHashKey());
+        // Played moves are not copied
+        assertThrows(IllegalStateException.class, copy::unmakeMove);
+        board.unmakeMove();
+        assertEquals(initial, board.toFen());
+        assertEquals(Piece.WHITE_PAWN, copy.getPiece("d5"));
+
+        // Many moves, the stack grows
+        for (int i = 0; i < 20; i++) {
+            copy.makeMove(new Move("g1", "f3").toInt());
+            copy.makeMove(new Move("g8", "f6").toInt());
+            copy.makeMove(new Move("f3", "g1").toInt());
+            copy.makeMove(new Move("f6", "g8").toInt());
+        }
+        assertEquals(80, copy.getHalfMoveClock());
+        assertEquals(42, copy.getFullMoveNumber());
+        board.copyFrom(copy);
+        assertEquals(copy.toFen(), board.toFen());
+        assertEquals(copy.getHashKey(), board.getHashKey());
+        assertThrows(IllegalStateException.class, board::unmakeMove);
+        for (int i = 0; i < 80; i++) {
+            copy.unmakeMove();
+        }
+        assertEquals("rnbqkbnr/ppp1pppp/8/3P4/8/8/PPPP1PPP/RNBQKBNR b KQkq - 0 2", copy.toFen());
+
+        assertThrows(IllegalArgumentException.class, () -> new CopyMakeBoard("8/8/8/8/8/8/8/8 w - - 0 65536"));
+    }
+}
@@ -0,0 +1,177 @@
+package com.fathzer.chess;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import com.fathzer.chess.Perft.Result;
+
+class DistributedPerftTest {
+	private static final String KIWIPETE = "r3k2r/p1ppqpb1/bn2pnp1/3PN3/1p2P3/2N2Q1p/PPPBBPPP/R3K2R w KQkq - 0 1";
+
+	private ExecutorService workers;
+	private DistributedPerft coordinator;
+
+	@BeforeEach
+	void setUp() throws IOException {
+		workers = Executors.newCachedThreadPool();
+		coordinator = new DistributedPerft(0);
+	}
+
+	@AfterEach
+	void tearDown() throws IOException {
+		coordinator.close();
+		workers.shutdownNow();
+	}
+
+	private Future<Integer> startWorker() {
+		final PerftWorker worker = new PerftWorker(ChessBoard.Type.LEGAL, new Perft());
+		return workers.submit(() -> worker.run("localhost", coordinator.getPort()));
+	}
+
+	@Test
+	void test() throws Exception {
+		final ChessBoard board = ChessBoard.Type.LEGAL.create(KIWIPETE);
+		assertThrows(IllegalArgumentException.class, () -> coordinator.setSplitDepth(0));
+		assertThrows(IllegalArgumentException.class, () -> coordinator.perft(null, 3));
+		assertThrows(IllegalArgumentException.class, () -> coordinator.perft(board, 2));
+
+		final Future<Integer> worker1 = startWorker();
+		final Future<Integer> worker2 = startWorker();
+		final Result expected = new Perft().perft(board, 4);
+		final Result result = coordinator.perft(board, 4);
+		assertEquals(4085603, result.leafNodesCount());
+		assertTrue(result.isComplete());
+		assertEquals(expected.divide(), result.divide());
+		assertEquals(expected.searchedNodesCount(), result.searchedNodesCount());
+		assertEquals(KIWIPETE, board.toFen());
+
+		coordinator.setSplitDepth(1);
+		assertEquals(97862, coordinator.perft(board, 3).leafNodesCount());
+
+		// Workers quit when the coordinator is closed
+		coordinator.close();
+		assertEquals(2039 + 48, worker1.get() + worker2.get());
+	}
+
+	@Test
+	void testDeadWorker() throws Exception {
+		assertThrows(IllegalArgumentException.class, () -> coordinator.setTimeout(0));
+		coordinator.setTimeout(500);
+		// A worker that dies while counting its first position
+		final Future<String> dead = workers.submit(() -> {
+			try (Socket socket = new Socket("localhost", coordinator.getPort())) {
+				final Writer out = new OutputStreamWriter(socket.getOutputStream(), StandardCharsets.UTF_8);
+				out.write(DistributedPerft.HELLO + "\n");
+				out.flush();
+				return new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8)).readLine();
+			}
+		});
+		// A worker that stops answering while counting its first position, without closing its connection
+		final Future<String> hung = workers.submit(() -> {
+			try (Socket socket = new Socket("localhost", coordinator.getPort())) {
+				final Writer out = new OutputStreamWriter(socket.getOutputStream(), StandardCharsets.UTF_8);
+				out.write(DistributedPerft.HELLO + "\n");
+				out.flush();
+				final BufferedReader in = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8));
+				final String request = in.readLine();
+				// The coordinator closes the connection when the timeout expires
+				return in.readLine() == null ? request : null;
+			}
+		});
+		// A worker that counts its first position for longer than the timeout, but tells it is alive
+		final Future<String> slow = workers.submit(() -> {
+			try (Socket socket = new Socket("localhost", coordinator.getPort())) {
+				final Writer out = new OutputStreamWriter(socket.getOutputStream(), StandardCharsets.UTF_8);
+				out.write(DistributedPerft.HELLO + "\n");
+				out.flush();
+				final BufferedReader in = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8));
+				final String[] request = in.readLine().split(" ", 4);
+				for (int i = 0; i < 3; i++) {
+					Thread.sleep(300);
+					out.write(DistributedPerft.BUSY + " " + request[1] + "\n");
+					out.flush();
+				}
+				final Result count = new Perft().perft(ChessBoard.Type.LEGAL.create(request[3]), Integer.parseInt(request[2]));
+				out.write(DistributedPerft.RESULT + " " + request[1] + " " + count.leafNodesCount() + " " + count.searchedNodesCount() + "\n");
+				out.flush();
+				// The result is accepted, the coordinator sends the next position
+				return in.readLine();
+			}
+		});
+		final Future<Result> result = workers.submit(() -> coordinator.perft(ChessBoard.Type.LEGAL.create(KIWIPETE), 3));
+		assertTrue(dead.get().startsWith(DistributedPerft.PERFT + " "));
+		assertTrue(hung.get().startsWith(DistributedPerft.PERFT + " "));
+		assertTrue(slow.get().startsWith(DistributedPerft.PERFT + " "));
+		startWorker();
+		assertEquals(97862, result.get().leafNodesCount());
+	}
+
+	@Test
+	void testWorkerError() throws Exception {
+		// A worker that can't count its first position
+		workers.submit(() -> {
+			try (Socket socket = new Socket("localhost", coordinator.getPort())) {
+				final Writer out = new OutputStreamWriter(socket.getOutputStream(), StandardCharsets.UTF_8);
+				out.write(DistributedPerft.HELLO + "\n");
+				out.flush();
+				final String request = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8)).readLine();
+				out.write(DistributedPerft.ERROR + " " + request.split(" ")[1] + " Unsupported position\n");
+				out.flush();
+				return request;
+			}
+		});
+		final ChessBoard board = ChessBoard.Type.LEGAL.create(KIWIPETE);
+		assertThrows(IllegalArgumentException.class, () -> coordinator.perft(board, 3));
+	}
+
+	@Test
+	void testCheckpoint(@TempDir Path dir) throws Exception {
+		final Path checkpoint = dir.resolve("perft.checkpoint");
+		final ChessBoard board = ChessBoard.Type.LEGAL.create(KIWIPETE);
+		coordinator.setCheckpoint(checkpoint);
+		final Future<Integer> worker = startWorker();
+		final Result expected = coordinator.perft(board, 3);
+		final List<String> lines = Files.readAllLines(checkpoint);
+		assertEquals(2040, lines.size());
+
+		// Simulate a run killed while writing its 1000th position
+		final List<String> interrupted = new ArrayList<>(lines.subList(0, 1000));
+		final String last = lines.get(1000);
+		interrupted.add(last.substring(0, last.length() - 5));
+		Files.write(checkpoint, interrupted);
+		final Result resumed = coordinator.perft(board, 3);
+		assertEquals(expected.leafNodesCount(), resumed.leafNodesCount());
+		assertEquals(expected.divide(), resumed.divide());
+		assertEquals(expected.searchedNodesCount(), resumed.searchedNodesCount());
+		assertEquals(lines.size(), Files.readAllLines(checkpoint).size());
+
+		// A complete checkpoint requires no worker
+		assertEquals(expected.divide(), coordinator.perft(board, 3).divide());
+		coordinator.close();
+		assertEquals(2039 + 1040, worker.get());
+
+		// Another Perft
+		assertThrows(IllegalArgumentException.class, () -> coordinator.perft(board, 4));
+		final ChessBoard other = ChessBoard.Type.LEGAL.create("4k3/8/8/8/8/8/8/4K3 w - - 0 1");
+		assertThrows(IllegalArgumentException.class, () -> coordinator.perft(other, 3));
+	}
+}
@@ -0,0 +1,122 @@
+package com.fathzer.chess;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.HashSet;
+import java.util.Set;
+
+import org.junit.jupiter.api.Test;
+
+class LegalMoveGeneratorTest {
+	/** Positions of the <a href="https://www.chessprogramming.org/Perft_Results">standard Perft suite</a>, with their expected leaf nodes counts. */
+	private static final Object[][] POSITIONS = {
+		{"rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w KQkq - 0 1", new long[] {20, 400, 8902, 197281}},
+		{"r3k2r/p1ppqpb1/bn2pnp1/3PN3/1p2P3/2N2Q1p/PPPBBPPP/R3K2R w KQkq -", new long[] {48, 2039, 97862}},
+		{"8/2p5/3p4/KP5r/1R3p1k/8/4P1P1/8 w - -", new long[] {14, 191, 2812, 43238, 674624}},
+		{"r3k2r/Pppp1ppp/1b3nbN/nP6/BBP1P3/q4N2/Pp1P2PP/R2Q1RK1 w kq - 0 1", new long[] {6, 264, 9467, 422333}},
+		{"r2q1rk1/pP1p2pp/Q4n2/bbp1p3/Np6/1B3NBn/pPPP1PPP/R3K2R b KQ - 0 1", new long[] {6, 264, 9467, 422333}},
+		{"rnbq1k1r/pp1Pbppp/2p5/8/2B5/8/PPP1NnPP/RNBQK2R w KQ - 1 8", new long[] {44, 1486, 62379}},
+	};
+
+	@Test
+	void testPerft() {
+		final Perft perft = new Perft();
+		for (Object[] position : POSITIONS) {
+			final String fen = (String) position[0];
+			final long[] expected = (long[]) position[1];
+			for (Perft.Type type : Perft.Type.values()) {
+				final ChessBoard board = ChessBoard.Type.LEGAL.create(fen);
+				final long hashKey = board.getHashKey();
+				for (int depth = 1; depth <= expected.length; depth++) {
+					assertEquals(expected[depth-1], perft.perft(board, depth, type).leafNodesCount(), fen + " at depth " + depth);
+				}
+				assertEquals(hashKey, board.getHashKey(), "Board should be restored after Perft for " + fen);
+			}
+		}
+	}
+
+	@Test
+	void testAgainstFilteredMoves() {
+		// Walk the first plies of every position and compare the generated moves with pseudo legal moves filtered by make/test/unmake
+		for (Object[] position : POSITIONS) {
+			final Board board = new Board((String) position[0], true);
+			compare(board, board.isWhiteToMove(), 3);
+		}
+	}
+
+	private static void compare(Board board, boolean white, int depth) {
+		final MoveList moves = new MoveList();
+		board.getMoves(moves, white);
+		assertEquals(filter(board, white), new HashSet<>(moves.toList()), board.toString());
+		assertEquals(moves.size(), new HashSet<>(moves.toList()).size(), "Duplicated moves");
+		if (depth > 1) {
+			for (int i = 0; i < moves.size(); i++) {
+				board.makeMove(moves.get(i));
+				compare(board, !white, depth - 1);
+				board.unmakeMove();
+			}
+		}
+	}
+
+	private static Set<Move> filter(Board board, boolean white) {
+		final MoveList pseudoLegal = new MoveList();
+		board.getPseudoLegalMoves(pseudoLegal, white);
+		final Set<Move> result = new HashSet<>();
+		for (int i = 0; i < pseudoLegal.size(); i++) {
+			board.makeMove(pseudoLegal.get(i));
+			if (!board.isCheck(white)) {
+				result.add(Move.of(pseudoLegal.get(i)));
+			}
+			board.unmakeMove();
+		}
+		return result;
+	}
+
+	@Test
+	void testSpecialMoves() {
+		// Castling
+		final Board board = new Board("r3k2r/8/8/8/8/8/8/R3K2R w KQkq -", true);
+		final long initialKey = board.getHashKey();
+		board.makeMove(Move.fromUCI("e1g1").toInt());
+		assertEquals(Piece.WHITE_KING, board.getPiece("g1"));
+		assertEquals(Piece.WHITE_ROOK, board.getPiece("f1"));
+		assertNull(board.getPiece("h1"));
+		assertEquals(Board.BLACK_KING_SIDE | Board.BLACK_QUEEN_SIDE, board.getCastlingRights());
+		assertEquals(new Board("r3k2r/8/8/8/8/8/8/R4RK1 b kq -").getHashKey(), board.getHashKey());
+		board.unmakeMove();
+		assertEquals(Piece.WHITE_ROOK, board.getPiece("h1"));
+		assertEquals(initialKey, board.getHashKey());
+
+		// En passant
+		final Board ep = new Board("4k3/8/8/8/4p3/8/3P4/4K3 w - -", true);
+		ep.makeMove(Move.fromUCI("d2d4").toInt());
+		assertEquals(Board.getSquare("d3"), ep.getEnPassant());
+		assertEquals(new Board("4k3/8/8/8/3Pp3/8/8/4K3 b - d3").getHashKey(), ep.getHashKey());
+		assertTrue(ep.getMoves(false).contains(Move.fromUCI("e4d3")));
+		ep.makeMove(Move.fromUCI("e4d3").toInt());
+		assertNull(ep.getPiece("d4"));
+		assertEquals(new Board("4k3/8/8/8/8/3p4/8/4K3 w - -").getHashKey(), ep.getHashKey());
+		ep.unmakeMove();
+		assertEquals(Piece.WHITE_PAWN, ep.getPiece("d4"));
+		assertEquals(Piece.BLACK_PAWN, ep.getPiece("e4"));
+
+		// Promotion
+		final Board promotion = new Board("4k3/1P6/8/8/8/8/8/4K3 w - -", true);
+		assertEquals(4, promotion.getMoves(true).stream().filter(m -> Move.getPromotion(m.toInt()) != 0).count());
+		final Move promote = Move.fromUCI("b7b8n");
+		assertEquals("b7b8n", promote.toString());
+		promotion.makeMove(promote);
+		assertEquals(Piece.WHITE_KNIGHT, promotion.getPiece("b8"));
+		promotion.unmakeMove();
+		assertEquals(Piece.WHITE_PAWN, promotion.getPiece("b7"));
+		assertEquals(new Board("4k3/1P6/8/8/8/8/8/4K3").getHashKey(), promotion.getHashKey());
+	}
+
+	@Test
+	void testInvalidFen() {
+		assertThrows(IllegalArgumentException.class, () -> new Board("4k3/8/8/8/8/8/8/4K3 x"));
+		assertThrows(IllegalArgumentException.class, () -> new Board("4k3/8/8/8/8/8/8/4K3 w KX"));
+		assertThrows(IllegalArgumentException.class, () -> new Board("4k3/8/8/8/8/8/8/4K3 w - e4"));
+		assertThrows(IllegalArgumentException.class, () -> new Board("4k3/8/8/8/8/8/8/4K3 w - - 0 1 extra"));
+	}
+}
@@ -0,0 +1,53 @@
+package com.fathzer.chess;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import static com.fathzer.chess.Piece.*;
+import static com.fathzer.chess.LookupMoveGenerators.get;
+import static com.fathzer.chess.MoveGeneratorsTest.assertSameMovesAsMailbox;
+import static com.fathzer.chess.MoveGeneratorsTest.testMoves;
+
+import org.junit.jupiter.api.Test;
+
+class LookupMoveGeneratorsTest {
+    @Test
+    void testPieces() {
+        testMoves("8/8/8/4K3/8/8/8/8", "e5", "d4 e4 f4 d5 f5 d6 e6 f6", get(WHITE_KING));
+        testMoves("K7/8/8/4kr2/3Ppn2/8/8/8", "e5", "d4 d5 d6 e6 f6", get(BLACK_KING));
+        testMoves("8/8/8/8/8/8/8/R7", "a1", "a2 a3 a4 a5 a6 a7 a8 b1 c1 d1 e1 f1 g1 h1", get(WHITE_ROOK));
+        testMoves("8/8/8/8/8/2P5/2R5/8", "c2", "b2 a2 d2 e2 f2 g2 h2 c1", get(WHITE_ROOK));
+        testMoves("1k6/8/8/8/3p4/P7/1B6/K7", "b2", "c3 d4 c1", get(WHITE_BISHOP));
+        testMoves("8/8/8/8/8/8/8/N7", "a1", "c2 b3", get(WHITE_KNIGHT));
+        testMoves("4k3/8/8/n1P5/3K4/1N6/3P4/8", "b3", "a1 a5 c1", get(WHITE_KNIGHT));
+        testMoves("8/8/8/8/2p5/1P6/8/8", "c4", "c3 b3", get(BLACK_PAWN));
+        testMoves("8/8/8/8/8/2P5/2P5/8", "c2", "", get(WHITE_PAWN));
+    }
+
+    @Test
+    void testSameMovesAsBasic() {
+        assertSameMovesAsMailbox(fen -> new Board(fen, Board.Generator.LOOKUP));
+    }
+
+    @Test
+    void testCodes() {
+        final Board board = new Board("r3k2r/p1ppqpb1/bn2pnp1/3PN3/1p2P3/2N2Q1p/PPPBBPPP/R3K2R w KQkq -", true);
+        assertCodes(board);
+        // Castling, en passant and promotions keep the codes in sync with the pieces
+        for (String uci : new String[] {"e1g1", "c7c5", "d5c6", "h3g2", "a1b1", "g2h1q"}) {
+            board.makeMove(Move.fromUCI(uci));
+            assertCodes(board);
+        }
+        for (int i = 0; i < 6; i++) {
+            board.unmakeMove();
+            assertCodes(board);
+        }
+        assertCodes(board.fork());
+    }
+
+    private static void assertCodes(Board board) {
+        final byte[] codes = board.getCodes();
+        for (int square = 0; square < 120; square++) {
+            assertEquals(LookupMoveGenerators.getCode(board.getPiece(square)), codes[square], "Wrong code at " + square);
+        }
+    }
+}
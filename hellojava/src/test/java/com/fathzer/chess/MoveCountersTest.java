@@ -0,0 +1,80 @@
+package com.fathzer.chess;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.junit.jupiter.api.Assumptions.assumeFalse;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+
+class MoveCountersTest {
+
+	@Test
+	void testDisabledCounters() {
+		// The counters are disabled by default, this class is run again with them enabled by the counters-test surefire execution
+		assumeFalse(MoveCounters.ENABLED);
+		MoveCounters.reset();
+		for (ChessBoard board : new ChessBoard[] {new Board("rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR"),
+				new BitboardBoard("rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR")}) {
+			assertEquals(8902, new Perft().perft(board, 3).leafNodesCount());
+		}
+		assertEquals(0, MoveCounters.getMadeMoves());
+		assertEquals(0, MoveCounters.getUnmadeMoves());
+		for (Piece piece : Piece.values()) {
+			assertEquals(0, MoveCounters.getGeneratedMoves(piece), piece.toString());
+		}
+	}
+
+	@Test
+	void testCounters() {
+		// The counters are enabled by the counters-test surefire execution
+		assumeTrue(MoveCounters.ENABLED);
+		final Perft perft = new Perft();
+		final Board board = new Board("rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR");
+		MoveCounters.reset();
+		assertEquals(8902, perft.perft(board, 3).leafNodesCount());
+		assertEquals(420, MoveCounters.getMadeMoves());
+		assertEquals(420, MoveCounters.getUnmadeMoves());
+		long generated = 0;
+		for (Piece piece : Piece.values()) {
+			generated += MoveCounters.getGeneratedMoves(piece);
+		}
+		assertEquals(20 + 400 + 8902, generated);
+		// Whatever white plays first, black has 16 pawn moves and 4 knight moves
+		assertEquals(16 * 20, MoveCounters.getGeneratedMoves(Piece.BLACK_PAWN));
+		assertEquals(4 * 20, MoveCounters.getGeneratedMoves(Piece.BLACK_KNIGHT));
+
+		MoveCounters.reset();
+		assertEquals(0, MoveCounters.getMadeMoves());
+		assertEquals(0, MoveCounters.getGeneratedMoves(Piece.WHITE_PAWN));
+	}
+
+	@Test
+	void testPerftEvents(@TempDir Path dir) throws IOException {
+		final Path file = dir.resolve("perft.jfr");
+		try (Recording recording = new Recording()) {
+			recording.enable(PerftRootMoveEvent.class);
+			recording.start();
+			new Perft().perft(new Board("rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR"), 2);
+			recording.stop();
+			recording.dump(file);
+		}
+		final List<RecordedEvent> events = RecordingFile.readAllEvents(file).stream()
+				.filter(e -> e.getEventType().getName().equals("com.fathzer.chess.PerftRootMove")).toList();
+		assertEquals(20, events.size());
+		for (RecordedEvent event : events) {
+			assertEquals(2, event.getInt("depth"));
+			assertEquals(20, event.getLong("leafNodes"));
+			assertTrue(event.getBoolean("complete"));
+		}
+		assertTrue(events.stream().anyMatch(e -> e.getString("move").equals("e2e4")));
+	}
+}
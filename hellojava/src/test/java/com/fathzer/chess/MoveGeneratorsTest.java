@@ -9,10 +9,18 @@ import static com.fathzer.chess.Piece.*;
 import static com.fathzer.chess.MoveGenerators.get;
 
 import java.util.Arrays;
-import java.util.LinkedList;
 import java.util.List;
+import java.util.function.Function;
 
 class MoveGeneratorsTest {
+    /** Positions where the moves of the boards are compared with the ones of the mailbox {@link Board}. */
+    static final List<String> FENS = List.of(
+        "rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR",
+        "rnbqkbnr/pp1ppppp/2p5/8/6P1/2P5/PP1PPP1P/RNBQKBNR",
+        "r3k2r/p1ppqpb1/bn2pnp1/3PN3/1p2P3/2N2Q1p/PPPBBPPP/R3K2R",
+        "8/2p5/3p4/KP5r/1R3p1k/8/4P1P1/8",
+        "P6k/8/8/8/8/8/8/K6p");
+
     @Test
     void testKingInCorner() {
         testMoves("8/8/8/8/8/8/8/K7", "a1", "b1 a2 b2", get(WHITE_KING));
@@ -98,11 +106,11 @@ class MoveGeneratorsTest {
         final Board board = new Board(fen);
         
         // Generate moves
-        final List<Move> moves = new LinkedList<>();
+        final MoveList moves = new MoveList();
         builder.build(moves, board, Board.getSquare(fromSquare));
         
         // Verify moves
-        testMoves(parseMoveList(fromSquare, expectedDestinations), moves);
+        testMoves(parseMoveList(fromSquare, expectedDestinations), moves.toList());
     }
 
     static void testMoves(List<Move> expectedMoves, List<Move> moves) {
@@ -123,4 +131,32 @@ class MoveGeneratorsTest {
         return Arrays.stream(moveList.split(" ")).map(toSquare -> new Move(fromSquare, toSquare)).toList();
     }
 
+    /** Checks a board generates the same moves as the mailbox {@link Board}, with its basic generator, in the {@link #FENS} positions
+     * and the positions reached from them in 2 plies, for both colors.
+     * @param factory a function that creates the tested board from a FEN string
+     */
+    static void assertSameMovesAsMailbox(Function<String, ? extends ChessBoard> factory) {
+        for (String fen : FENS) {
+            final Board board = new Board(fen);
+            final ChessBoard other = factory.apply(fen);
+            compare(board, other, 3, true);
+            compare(board, other, 3, false);
+            assertEquals(board.toString(), other.toString());
+        }
+    }
+
+    private static void compare(Board board, ChessBoard other, int depth, boolean white) {
+        final List<Move> expected = board.getMoves(white);
+        testMoves(expected, other.getMoves(white));
+        assertEquals(expected.size(), other.countMoves(white));
+        if (depth > 1) {
+            for (Move move : expected) {
+                board.makeMove(move);
+                other.makeMove(move.toInt());
+                compare(board, other, depth - 1, !white);
+                board.unmakeMove();
+                other.unmakeMove();
+            }
+        }
+    }
 }
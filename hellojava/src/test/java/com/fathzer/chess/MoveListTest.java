@@ -0,0 +1,35 @@
+package com.fathzer.chess;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+class MoveListTest {
+
+    @Test
+    void testAddAndClear() {
+        final MoveList moves = new MoveList();
+        assertEquals(0, moves.size());
+        moves.add(Board.getSquare("e2"), Board.getSquare("e4"));
+        moves.add(new Move("g1", "f3").toInt());
+        assertEquals(2, moves.size());
+        assertEquals(new Move("e2", "e4").toInt(), moves.get(0));
+        assertEquals(List.of(new Move("e2", "e4"), new Move("g1", "f3")), moves.toList());
+
+        moves.clear();
+        assertEquals(0, moves.size());
+        assertTrue(moves.toList().isEmpty());
+    }
+
+    @Test
+    void testGrowth() {
+        final MoveList moves = new MoveList();
+        for (int i = 0; i < 1000; i++) {
+            moves.add(i % 100, 99 - i % 100);
+        }
+        assertEquals(1000, moves.size());
+        assertEquals(Move.pack(50, 49), moves.get(950));
+    }
+}
@@ -31,4 +31,16 @@ class MoveTest {
         assertEquals(move1.hashCode(), move2.hashCode());
         assertNotEquals(move1, move3);
     }
+
+    @Test
+    void testPrimitiveRepresentation() {
+        final int move = Move.pack(31, 51);
+        assertEquals(31, Move.getFrom(move));
+        assertEquals(51, Move.getTo(move));
+        final Move boxed = Move.of(move);
+        assertEquals(new Move("a2", "a4"), boxed);
+        assertEquals(move, boxed.toInt());
+        assertEquals(31, boxed.from());
+        assertEquals(51, boxed.to());
+    }
 }
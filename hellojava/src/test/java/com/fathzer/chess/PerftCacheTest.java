@@ -0,0 +1,62 @@
+package com.fathzer.chess;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class PerftCacheTest {
+
+    @Test
+    void test(@TempDir Path dir) throws IOException {
+        final Path file = dir.resolve("perft.cache");
+        assertThrows(IllegalArgumentException.class, () -> new PerftCache(file, 0, "basic"));
+        assertThrows(IllegalArgumentException.class, () -> new PerftCache(file, PerftCache.MAX_SIZE_MB + 1, "basic"));
+        assertThrows(IllegalArgumentException.class, () -> new PerftCache(file, 1, "a move generator whose name is far too long for the header"));
+        try (PerftCache cache = new PerftCache(file, 1, "basic")) {
+            assertEquals(65536, cache.size());
+            assertEquals(-1, cache.get(1234L, 3));
+            cache.store(1234L, 3, 8902L);
+            assertEquals(8902L, cache.get(1234L, 3));
+            // Depth is part of the key
+            assertEquals(-1, cache.get(1234L, 4));
+            assertEquals(-1, cache.get(1235L, 3));
+            cache.store(1234L, 3, 0L);
+            assertEquals(0L, cache.get(1234L, 3));
+            cache.clear();
+            assertEquals(-1, cache.get(1234L, 3));
+
+            // Keys that differ only by their high bits are in the same bucket, the lowest count is replaced when it is full
+            for (long i = 1; i <= 4; i++) {
+                cache.store(i << 40, 3, 10 * i);
+            }
+            for (long i = 1; i <= 4; i++) {
+                assertEquals(10 * i, cache.get(i << 40, 3));
+            }
+            cache.store(5L << 40, 3, 50);
+            assertEquals(-1, cache.get(1L << 40, 3));
+            assertEquals(20, cache.get(2L << 40, 3));
+            assertEquals(50, cache.get(5L << 40, 3));
+        }
+
+        // The entries survive the cache, the size is the one of the creation
+        try (PerftCache cache = new PerftCache(file, 4, "basic")) {
+            assertEquals(65536, cache.size());
+            assertEquals(50, cache.get(5L << 40, 3));
+            // Caches that map the same file (typically in other processes) see each other's entries
+            try (PerftCache other = new PerftCache(file, 1, "basic")) {
+                other.store(4321L, 5, 4865609L);
+                assertEquals(4865609L, cache.get(4321L, 5));
+            }
+        }
+
+        assertThrows(IllegalArgumentException.class, () -> new PerftCache(file, 1, "legal"));
+        final Path invalid = dir.resolve("invalid.cache");
+        Files.writeString(invalid, "This is not a cache");
+        assertThrows(IllegalArgumentException.class, () -> new PerftCache(invalid, 1, "basic"));
+    }
+}
@@ -2,7 +2,14 @@ package com.fathzer.chess;
 
 import static org.junit.jupiter.api.Assertions.*;
 
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
 
 import com.fathzer.chess.Perft.Result;
 
@@ -13,19 +20,208 @@ class PerftTest {
 		final Board board = new Board("rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR");
 		final Perft perft = new Perft();
 		
-		assertThrows(IllegalArgumentException.class, () -> perft.perft(null, 1, false));
-		assertThrows(IllegalArgumentException.class, () -> perft.perft(board, -1, false));
-		assertThrows(IllegalArgumentException.class, () -> perft.perft(board, 0, false));
+		assertThrows(IllegalArgumentException.class, () -> perft.perft(null, 1));
+		assertThrows(IllegalArgumentException.class, () -> perft.perft(board, -1));
+		assertThrows(IllegalArgumentException.class, () -> perft.perft(board, 0));
 		
-		final Result result1 = perft.perft(board, 1, true);
+		final Result result1 = perft.perft(board, 1);
 		assertEquals(20, result1.leafNodesCount());
 		result1.divide().forEach((move, count) -> assertEquals(1, count));	
 		
-		final Result result2 = perft.perft(board, 2, true);
+		final Result result2 = perft.perft(board, 2);
 		assertEquals(400, result2.leafNodesCount());
 		
-		final Board board2 = new Board("rnbqkbnr/pp1ppppp/2p5/8/6P1/2P5/PP1PPP1P/RNBQKBNR");
-		assertEquals(21, perft.perft(board2, 1, false).leafNodesCount());
-		assertEquals(463, perft.perft(board2, 2, false).leafNodesCount());
+		final Board board2 = new Board("rnbqkbnr/pp1ppppp/2p5/8/6P1/2P5/PP1PPP1P/RNBQKBNR b");
+		assertEquals(21, perft.perft(board2, 1).leafNodesCount());
+		assertEquals(463, perft.perft(board2, 2).leafNodesCount());
+	}
+
+	@Test
+	void testCache(@TempDir Path dir) throws IOException {
+		final ChessBoard board = new Board("rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w KQkq - 0 1");
+		try (PerftCache cache = new PerftCache(dir.resolve("perft.cache"), 1, "basic")) {
+			final Perft perft = new Perft();
+			perft.setCache(cache);
+			assertSame(cache, perft.getCache());
+			final Result expected = new Perft().perft(board, 4);
+			// Only subtrees of depth 3 or more are cached
+			Result result = perft.perft(board, 4);
+			assertEquals(expected.leafNodesCount(), result.leafNodesCount());
+			assertEquals(20, result.cacheProbes());
+			assertEquals(0, result.cacheHits());
+			assertEquals(20, result.cacheMisses());
+
+			result = perft.perft(board, 4);
+			assertEquals(expected.leafNodesCount(), result.leafNodesCount());
+			assertEquals(20, result.cacheHits());
+			assertEquals(1, result.searchedNodesCount());
+			assertEquals(expected.divide(), result.divide());
+
+			// Parallel tasks use the cache too
+			final long expected5 = new Perft().perft(board, 5).leafNodesCount();
+			final Perft parallel = new Perft();
+			parallel.setParallelism(2);
+			parallel.setCache(cache);
+			assertEquals(expected5, parallel.perft(board, 5).leafNodesCount());
+			result = parallel.perft(board, 5);
+			assertEquals(expected5, result.leafNodesCount());
+			assertEquals(1.0, result.cacheHitRate());
+		}
+	}
+
+	@Test
+	void testParallel() {
+		final Perft perft = new Perft();
+		assertThrows(IllegalArgumentException.class, () -> perft.setParallelism(0));
+		final Perft parallel = new Perft();
+		parallel.setParallelism(4);
+		assertEquals(4, parallel.getParallelism());
+		
+		final Board board = new Board("rnbqkbnr/pp1ppppp/2p5/8/6P1/2P5/PP1PPP1P/RNBQKBNR b");
+		for (Perft.Type type : Perft.Type.values()) {
+			final int maxDepth = type == Perft.Type.BULK ? 4 : 5;
+			for (int depth = 1; depth <= maxDepth; depth++) {
+				final Result expected = perft.perft(board, depth, type);
+				final Result result = parallel.perft(board, depth, type);
+				assertEquals(expected.leafNodesCount(), result.leafNodesCount());
+				assertEquals(expected.searchedNodesCount(), result.searchedNodesCount());
+				assertEquals(expected.divide(), result.divide());
+			}
+		}
+	}
+
+	@Test
+	void testTranspositionTable() {
+		final Board board = new Board("rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR");
+		final Perft perft = new Perft();
+		final Perft cached = new Perft();
+		final TranspositionTable table = new TranspositionTable(1);
+		cached.setTranspositionTable(table);
+		assertSame(table, cached.getTranspositionTable());
+		for (Perft.Type type : Perft.Type.values()) {
+			// Transpositions need at least 3 plies, and nodes at depth 1 are cached only in bulk mode
+			final int depth = type == Perft.Type.BULK ? 4 : 5;
+			final Result expected = perft.perft(board, depth, type);
+			assertEquals(0, expected.transpositionTableProbes());
+			assertEquals(0.0, expected.transpositionTableHitRate());
+			for (int parallelism = 1; parallelism <= 2; parallelism++) {
+				table.clear();
+				cached.setParallelism(parallelism);
+				final Result result = cached.perft(board, depth, type);
+				assertEquals(expected.leafNodesCount(), result.leafNodesCount());
+				assertEquals(expected.divide(), result.divide());
+				assertTrue(result.transpositionTableHits() > 0);
+				assertTrue(result.searchedNodesCount() < expected.searchedNodesCount());
+				assertEquals((double)result.transpositionTableHits() / result.transpositionTableProbes(), result.transpositionTableHitRate());
+			}
+		}
+
+		// Parallel tasks that are split use the table too
+		final long expected5 = perft.perft(board, 5).leafNodesCount();
+		final Perft parallel = new Perft();
+		parallel.setTranspositionTable(new TranspositionTable(16));
+		parallel.setParallelism(2);
+		assertEquals(expected5, parallel.perft(board, 5).leafNodesCount());
+		final Result result = parallel.perft(board, 5);
+		assertEquals(expected5, result.leafNodesCount());
+		// The subtrees of the root moves are found in the table
+		assertEquals(20, result.transpositionTableProbes());
+		assertEquals(20, result.transpositionTableHits());
+		assertEquals(1, result.searchedNodesCount());
+	}
+
+	@Test
+	void testProgress() {
+		final Board board = new Board("rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR");
+		final Perft perft = new Perft();
+		assertThrows(IllegalArgumentException.class, () -> perft.setProgressInterval(-1));
+		final List<Perft.Progress> progresses = new ArrayList<>();
+		perft.setProgressListener(progresses::add);
+		perft.setProgressInterval(0);
+		for (int parallelism = 1; parallelism <= 2; parallelism++) {
+			progresses.clear();
+			perft.setParallelism(parallelism);
+			final Result result = perft.perft(board, 5);
+			assertTrue(result.isComplete());
+			assertEquals(4896998, result.leafNodesCount());
+			// Intermediate progresses, then the last one
+			assertTrue(progresses.size() > 1);
+			final Perft.Progress last = progresses.get(progresses.size() - 1);
+			assertEquals(result.searchedNodesCount(), last.searchedNodesCount());
+			assertEquals(20, last.rootMovesCount());
+			assertEquals(20, last.rootMovesDone());
+			for (int i = 1; i < progresses.size(); i++) {
+				assertTrue(progresses.get(i).searchedNodesCount() >= progresses.get(i - 1).searchedNodesCount());
+			}
+		}
+	}
+
+	@Test
+	void testCancel() {
+		final Board board = new Board("rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR");
+		final String fen = board.toFen();
+		final Perft perft = new Perft();
+		perft.setProgressInterval(0);
+		perft.setProgressListener(progress -> {
+			if (progress.rootMovesDone() >= 2) {
+				perft.cancel();
+			}
+		});
+		final Map<Move, Long> expected = new Perft().perft(board, 5).divide();
+		for (int parallelism = 1; parallelism <= 2; parallelism++) {
+			perft.setParallelism(parallelism);
+			final Result result = perft.perft(board, 5);
+			assertIncomplete(expected, result);
+			assertEquals(fen, board.toFen());
+		}
+		// Cancellation does not apply to the calls that start later
+		perft.setProgressListener(null);
+		perft.setParallelism(1);
+		perft.cancel();
+		assertTrue(perft.perft(board, 3).isComplete());
+	}
+
+	@Test
+	void testBudgets() {
+		final Board board = new Board("r3k2r/p1ppqpb1/bn2pnp1/3PN3/1p2P3/2N2Q1p/PPPBBPPP/R3K2R w KQkq - 0 1", true);
+		final String fen = board.toFen();
+		final Perft perft = new Perft();
+		assertThrows(IllegalArgumentException.class, () -> perft.setNodesBudget(-1));
+		assertThrows(IllegalArgumentException.class, () -> perft.setTimeBudget(-1));
+		final TranspositionTable table = new TranspositionTable(1);
+		perft.setTranspositionTable(table);
+		final Map<Move, Long> expected = new Perft().perft(board, 4).divide();
+		perft.setNodesBudget(10_000);
+		assertEquals(10_000, perft.getNodesBudget());
+		for (int parallelism = 1; parallelism <= 2; parallelism++) {
+			perft.setParallelism(parallelism);
+			final Result result = perft.perft(board, 4);
+			assertIncomplete(expected, result);
+			assertTrue(result.searchedNodesCount() >= 10_000);
+			assertEquals(fen, board.toFen());
+		}
+		// Unfinished subtrees are not cached
+		perft.setNodesBudget(0);
+		final Result result = perft.perft(board, 4);
+		assertTrue(result.isComplete());
+		assertEquals(4085603, result.leafNodesCount());
+
+		perft.setTimeBudget(20);
+		assertEquals(20, perft.getTimeBudget());
+		final long start = System.currentTimeMillis();
+		assertFalse(perft.perft(board, 7).isComplete());
+		assertTrue(System.currentTimeMillis() - start < 10_000);
+		assertEquals(fen, board.toFen());
+	}
+
+	private static void assertIncomplete(Map<Move, Long> expected, Result result) {
+		assertFalse(result.isComplete());
+		assertTrue(result.divide().size() < expected.size());
+		long sum = 0;
+		for (Map.Entry<Move, Long> entry : result.divide().entrySet()) {
+			assertEquals(expected.get(entry.getKey()), entry.getValue());
+			sum += entry.getValue();
+		}
+		assertEquals(sum, result.leafNodesCount());
 	}
 }
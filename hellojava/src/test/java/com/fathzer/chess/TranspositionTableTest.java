@@ -0,0 +1,32 @@
+package com.fathzer.chess;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import org.junit.jupiter.api.Test;
+
+class TranspositionTableTest {
+
+    @Test
+    void test() {
+        assertThrows(IllegalArgumentException.class, () -> new TranspositionTable(0));
+        // Larger tables would need arrays of more than 2^31-1 longs
+        assertEquals(8192, TranspositionTable.MAX_SIZE_MB);
+        assertThrows(IllegalArgumentException.class, () -> new TranspositionTable(TranspositionTable.MAX_SIZE_MB + 1));
+        assertThrows(IllegalArgumentException.class, () -> new TranspositionTable(16384));
+        final TranspositionTable table = new TranspositionTable(1);
+        assertEquals(65536, table.size());
+
+        assertEquals(-1, table.get(1234L, 3));
+        table.store(1234L, 3, 8902L);
+        assertEquals(8902L, table.get(1234L, 3));
+        // Depth is part of the key
+        assertEquals(-1, table.get(1234L, 4));
+        assertEquals(-1, table.get(1235L, 3));
+
+        table.store(1234L, 3, 0L);
+        assertEquals(0L, table.get(1234L, 3));
+
+        table.clear();
+        assertEquals(-1, table.get(1234L, 3));
+    }
+}
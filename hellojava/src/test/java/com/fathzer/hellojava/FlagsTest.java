@@ -3,6 +3,9 @@ package com.fathzer.hellojava;
 import org.junit.jupiter.api.Test;
 import static org.junit.jupiter.api.Assertions.*;
 
+import com.fathzer.chess.ChessBoard;
+import com.fathzer.pi.PiCalculator;
+
 class FlagsTest {
 
     @Test
@@ -23,6 +26,140 @@ class FlagsTest {
         assertEquals(99, loops);
     }
 
+    @Test
+    void testPiAlgorithm() {
+        assertEquals(PiCalculator.Algorithm.SERIES, Flags.parsePiAlgorithm(new String[] { }));
+        assertEquals(PiCalculator.Algorithm.BINARY_SPLITTING, Flags.parsePiAlgorithm(new String[] { "--piAlgorithm=binary_splitting" }));
+        assertEquals(PiCalculator.Algorithm.SERIES, Flags.parsePiAlgorithm(new String[] { "-pa=series" }));
+        final String[] invalid = new String[] { "-pa=unknown" };
+        assertThrows(IllegalArgumentException.class, () -> Flags.parsePiAlgorithm(invalid));
+    }
+
+    @Test
+    void testPiCache() {
+        assertFalse(Flags.parsePiCache(new String[] { }));
+        assertTrue(Flags.parsePiCache(new String[] { "--piCache=true" }));
+        assertFalse(Flags.parsePiCache(new String[] { "-pc=false" }));
+        final String[] invalid = new String[] { "-pc=yes" };
+        assertThrows(IllegalArgumentException.class, () -> Flags.parsePiCache(invalid));
+    }
+
+    @Test
+    void testPiDigits() {
+        assertEquals(0, Flags.parsePiDigits(new String[] { }));
+        assertEquals(1000000, Flags.parsePiDigits(new String[] { "--piDigits=1000000" }));
+        assertEquals(500, Flags.parsePiDigits(new String[] { "-pdi=500" }));
+    }
+
+    @Test
+    void testPiOutput() {
+        assertNull(Flags.parsePiOutput(new String[] { }));
+        assertEquals("pi.txt", Flags.parsePiOutput(new String[] { "--piOutput=pi.txt" }));
+        assertEquals("pi.txt", Flags.parsePiOutput(new String[] { "-po=pi.txt" }));
+        assertFalse(Flags.parsePiOffHeap(new String[] { }));
+        assertTrue(Flags.parsePiOffHeap(new String[] { "--piOffHeap=true" }));
+        assertFalse(Flags.parsePiOffHeap(new String[] { "-poh=false" }));
+        assertThrows(IllegalArgumentException.class, () -> Flags.parsePiOffHeap(new String[] { "-poh=maybe" }));
+    }
+
+    @Test
+    void testPiReduction() {
+        assertEquals(Main.Reduction.REDUCE, Flags.parsePiReduction(new String[] { }));
+        assertEquals(Main.Reduction.LOCK, Flags.parsePiReduction(new String[] { "--piReduction=lock" }));
+        assertEquals(Main.Reduction.REDUCE, Flags.parsePiReduction(new String[] { "-pr=reduce" }));
+        final String[] invalid = new String[] { "-pr=unknown" };
+        assertThrows(IllegalArgumentException.class, () -> Flags.parsePiReduction(invalid));
+    }
+
+    @Test
+    void testExecutor() {
+        assertEquals(TaskExecutor.Type.FORKJOIN, Flags.parseExecutor(new String[] { }).getType());
+        final TaskExecutor fixed = Flags.parseExecutor(new String[] { "--executor=fixed:4" });
+        assertEquals(TaskExecutor.Type.FIXED, fixed.getType());
+        assertEquals(4, fixed.getThreads());
+        assertEquals(TaskExecutor.Type.VIRTUAL, Flags.parseExecutor(new String[] { "-e=virtual" }).getType());
+        assertEquals(TaskExecutor.Type.STRUCTURED, Flags.parseExecutor(new String[] { "-e=structured" }).getType());
+        for (String invalid : new String[] {"-e=unknown", "-e=fixed", "-e=fixed:0", "-e=fixed:x", "-e=virtual:2"}) {
+            final String[] args = new String[] { invalid };
+            assertThrows(IllegalArgumentException.class, () -> Flags.parseExecutor(args), invalid);
+        }
+    }
+
+    @Test
+    void testPerftThreads() {
+        assertEquals(1, Flags.parsePerftThreads(new String[] { }));
+        assertEquals(8, Flags.parsePerftThreads(new String[] { "-pt=8" }));
+        assertEquals(4, Flags.parsePerftThreads(new String[] { "--perftThreads=4" }));
+    }
+
+    @Test
+    void testPerftHashSize() {
+        assertEquals(0, Flags.parsePerftHashSize(new String[] { }));
+        assertEquals(64, Flags.parsePerftHashSize(new String[] { "-ph=64" }));
+        assertEquals(16, Flags.parsePerftHashSize(new String[] { "--perftHash=16" }));
+    }
+
+    @Test
+    void testPerftCache() {
+        assertNull(Flags.parsePerftCache(new String[] { }));
+        assertEquals("perft.cache", Flags.parsePerftCache(new String[] { "--perftCache=perft.cache" }));
+        assertEquals("perft.cache", Flags.parsePerftCache(new String[] { "-pf=perft.cache" }));
+        assertEquals(64, Flags.parsePerftCacheSize(new String[] { }));
+        assertEquals(16, Flags.parsePerftCacheSize(new String[] { "--perftCacheSize=16" }));
+        assertEquals(16, Flags.parsePerftCacheSize(new String[] { "-pcs=16" }));
+    }
+
+    @Test
+    void testBoardType() {
+        assertEquals(ChessBoard.Type.MAILBOX, Flags.parseBoardType(new String[] { }));
+        assertEquals(ChessBoard.Type.BITBOARD, Flags.parseBoardType(new String[] { "--board=bitboard" }));
+        assertEquals(ChessBoard.Type.MAILBOX, Flags.parseBoardType(new String[] { "-b=MAILBOX" }));
+        assertEquals(ChessBoard.Type.LEGAL, Flags.parseBoardType(new String[] { "-b=legal" }));
+        final String[] invalid = new String[] { "-b=unknown" };
+        assertThrows(IllegalArgumentException.class, () -> Flags.parseBoardType(invalid));
+    }
+
+    @Test
+    void testSuite() {
+        assertNull(Flags.parseSuite(new String[] { }));
+        assertEquals("perft.epd", Flags.parseSuite(new String[] { "--suite=perft.epd" }));
+        assertEquals("perft.epd", Flags.parseSuite(new String[] { "-s=perft.epd" }));
+        final PerftSuite.Shard all = Flags.parseShard(new String[] { });
+        assertEquals(0, all.getIndex());
+        assertEquals(1, all.getCount());
+        final PerftSuite.Shard shard = Flags.parseShard(new String[] { "--shard=2/4" });
+        assertEquals(2, shard.getIndex());
+        assertEquals(4, shard.getCount());
+        assertEquals(1, Flags.parseShard(new String[] { "-sh=1/2" }).getIndex());
+        for (String invalid : new String[] {"-sh=2", "-sh=2/2", "-sh=-1/2", "-sh=0/0", "-sh=a/2"}) {
+            final String[] args = new String[] { invalid };
+            assertThrows(IllegalArgumentException.class, () -> Flags.parseShard(args), invalid);
+        }
+    }
+
+    @Test
+    void testDistributed() {
+        assertEquals(0, Flags.parseCoordinator(new String[] { }));
+        assertEquals(8000, Flags.parseCoordinator(new String[] { "--coordinator=8000" }));
+        assertEquals(8000, Flags.parseCoordinator(new String[] { "-co=8000" }));
+        assertNull(Flags.parseWorker(new String[] { }));
+        assertEquals("localhost:8000", Flags.parseWorker(new String[] { "--worker=localhost:8000" }));
+        assertEquals("localhost:8000", Flags.parseWorker(new String[] { "-w=localhost:8000" }));
+        assertEquals(2, Flags.parseSplitDepth(new String[] { }));
+        assertEquals(3, Flags.parseSplitDepth(new String[] { "--splitDepth=3" }));
+        assertEquals(3, Flags.parseSplitDepth(new String[] { "-sd=3" }));
+        assertNull(Flags.parseCheckpoint(new String[] { }));
+        assertEquals("perft.txt", Flags.parseCheckpoint(new String[] { "--checkpoint=perft.txt" }));
+        assertEquals("perft.txt", Flags.parseCheckpoint(new String[] { "-cp=perft.txt" }));
+    }
+
+    @Test
+    void testJfr() {
+        assertNull(Flags.parseJfr(new String[] { }));
+        assertEquals("run.jfr", Flags.parseJfr(new String[] { "--jfr=run.jfr" }));
+        assertEquals("run.jfr", Flags.parseJfr(new String[] { "-j=run.jfr" }));
+    }
+
     @Test
     void testInvalidValue() {
         // System.exit is called on invalid value, so we can't test this directly without extra setup.
@@ -0,0 +1,95 @@
+package com.fathzer.hellojava;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import com.fathzer.chess.ChessBoard;
+import com.fathzer.chess.Perft;
+import com.fathzer.chess.TranspositionTable;
+
+class PerftSuiteTest {
+    private static final List<String> SUITE = Arrays.asList(
+            "# Perft suite",
+            "rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w KQkq - ;D1 20 ;D2 400 ;D3 8902 ;D4 197281",
+            "",
+            "r3k2r/p1ppqpb1/bn2pnp1/3PN3/1p2P3/2N2Q1p/PPPBBPPP/R3K2R w KQkq - 0 1 ;D1 48 ;D2 2039",
+            "8/2p5/3p4/KP5r/1R3p1k/8/4P1P1/8 w - - ;D1 14 ;D2 191 ;D3 2812",
+            "rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w KQkq - ;D1 20 ;D2 401",
+            "rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNX w KQkq - ;D1 20",
+            "rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w KQkq - ;D4 197281",
+            "rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w KQkq - ;d1 20");
+
+    @TempDir
+    Path dir;
+
+    private PerftSuite.Summary summary;
+
+    private List<String> run(Perft perft, int threads, PerftSuite.Shard shard) throws IOException {
+        final Path file = dir.resolve("suite.epd");
+        Files.write(file, SUITE, StandardCharsets.UTF_8);
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        summary = new PerftSuite(ChessBoard.Type.LEGAL, 3, threads, perft, new PrintStream(bytes, true, StandardCharsets.UTF_8)).run(file, shard);
+        return Arrays.asList(bytes.toString(StandardCharsets.UTF_8).split("\\R"));
+    }
+
+    @Test
+    void test() throws IOException {
+        final Perft perft = new Perft();
+        perft.setTranspositionTable(new TranspositionTable(1));
+        final List<String> lines = run(perft, 2, PerftSuite.Shard.ALL);
+        assertEquals(7, summary.positions());
+        assertEquals(3, summary.failed());
+        assertEquals(1, summary.skipped());
+        // Depth 4 of the first line is ignored
+        assertEquals(20+400+8902+48+2039+14+191+2812+20+400, summary.nodes());
+
+        assertEquals(8, lines.size());
+        final String last = lines.get(7);
+        assertTrue(last.startsWith("{\"summary\":true,\"positions\":7,\"passed\":3,\"failed\":3,\"skipped\":1,"), last);
+        final String line2 = find(lines, 2);
+        assertTrue(line2.contains("\"depths\":[{\"depth\":1,\"expected\":20,\"actual\":20,\"pass\":true},"), line2);
+        assertFalse(line2.contains("\"depth\":4"), line2);
+        assertTrue(line2.contains("],\"pass\":true,\"nodes\":9322,"), line2);
+        final String line6 = find(lines, 6);
+        assertTrue(line6.contains("{\"depth\":2,\"expected\":401,\"actual\":400,\"pass\":false}],\"pass\":false"), line6);
+        final String line7 = find(lines, 7);
+        assertTrue(line7.contains("\"pass\":false,\"error\":"), line7);
+        // Only deeper counts than the maximum depth
+        final String line8 = find(lines, 8);
+        assertTrue(line8.contains("\"skipped\":true,"), line8);
+        assertFalse(line8.contains("\"pass\""), line8);
+        // No count at all, for instance a typo
+        final String line9 = find(lines, 9);
+        assertTrue(line9.contains("\"pass\":false,\"error\":\"No expected count\""), line9);
+    }
+
+    @Test
+    void testShard() throws IOException {
+        // The comment (line 1) and the empty line (line 3) belong to the shards but are not tested
+        final List<String> lines = run(new Perft(), 1, new PerftSuite.Shard(1, 3));
+        assertEquals(3, summary.positions());
+        assertEquals(0, summary.failed());
+        assertEquals(1, summary.skipped());
+        assertEquals(Arrays.asList(2L, 5L, 8L), lines.stream().filter(l -> l.startsWith("{\"line\":")).map(PerftSuiteTest::getLineNumber).sorted().collect(Collectors.toList()));
+    }
+
+    private static String find(List<String> lines, long number) {
+        return lines.stream().filter(l -> l.startsWith("{\"line\":"+number+",")).findAny().orElseThrow();
+    }
+
+    private static long getLineNumber(String json) {
+        return Long.parseLong(json.substring("{\"line\":".length(), json.indexOf(',')));
+    }
+}
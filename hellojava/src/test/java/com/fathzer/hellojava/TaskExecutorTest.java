@@ -0,0 +1,62 @@
+package com.fathzer.hellojava;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.jupiter.api.Test;
+
+class TaskExecutorTest {
+
+    @Test
+    void test() {
+        final long expected = 999L * 1000 / 2;
+        for (String definition : new String[] {"forkjoin", "fixed:3", "structured"}) {
+            final TaskExecutor executor = TaskExecutor.parse(definition);
+            assertEquals(expected, executor.reduce(1000, i -> (long) i, 0L, Long::sum), definition);
+            final AtomicLong sum = new AtomicLong();
+            executor.forEach(1000, sum::addAndGet);
+            assertEquals(expected, sum.get(), definition);
+        }
+    }
+
+    @Test
+    void testFailure() {
+        for (String definition : new String[] {"forkjoin", "fixed:3", "structured"}) {
+            final TaskExecutor executor = TaskExecutor.parse(definition);
+            assertThrows(RuntimeException.class, () -> executor.forEach(100, i -> {
+                if (i == 50) {
+                    throw new ArithmeticException();
+                }
+            }), definition);
+        }
+    }
+
+    @Test
+    void testStructuredFailureStopsForks() {
+        final TaskExecutor executor = TaskExecutor.parse("structured");
+        final int count = 10000;
+        final AtomicInteger started = new AtomicInteger();
+        assertThrows(IllegalStateException.class, () -> executor.forEach(count, i -> {
+            if (i == 0) {
+                throw new ArithmeticException();
+            }
+            started.incrementAndGet();
+        }));
+        // The tasks forked after the failure are not run
+        assertTrue(started.get() < count / 2, "Too many tasks run: " + started.get());
+    }
+
+    @Test
+    void testStructuredInterrupted() {
+        final TaskExecutor executor = TaskExecutor.parse("structured");
+        Thread.currentThread().interrupt();
+        try {
+            assertThrows(IllegalStateException.class, () -> executor.forEach(10, i -> {}));
+            assertTrue(Thread.currentThread().isInterrupted());
+        } finally {
+            Thread.interrupted();
+        }
+    }
+}
@@ -0,0 +1,50 @@
+package com.fathzer.pi;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.channels.Channels;
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+class DecimalWriterTest {
+    private static String write(BigDecimal... values) throws IOException {
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        final DecimalWriter writer = new DecimalWriter(Channels.newChannel(out));
+        for (BigDecimal value : values) {
+            writer.write(value);
+        }
+        writer.flush();
+        return out.toString(StandardCharsets.US_ASCII);
+    }
+
+    @Test
+    void test() throws IOException {
+        for (String value : new String[] {"0", "0.00", "-12", "3.14", "-0.000123", "0.5", "1E+3", "-7.5E+2", "123456789012345678901234567890.1"}) {
+            final BigDecimal decimal = new BigDecimal(value);
+            assertEquals(decimal.toPlainString(), write(decimal), "for " + value);
+        }
+        // The writer can be reused
+        assertEquals("1.5-2", write(new BigDecimal("1.5"), BigDecimal.valueOf(-2)));
+    }
+
+    @Test
+    void testLarge() throws IOException {
+        final Random random = new Random(0);
+        // Numbers that are split in several levels, with parts made of zeros and fractions of any length
+        final BigInteger large = new BigInteger(200_000, random);
+        final BigInteger zeros = BigInteger.TEN.pow(30_000).add(BigInteger.ONE);
+        for (BigInteger unscaled : new BigInteger[] {large, zeros, zeros.negate(), BigInteger.TEN.pow(5000)}) {
+            for (int scale : new int[] {0, 1, 512, 513, 30_000, 30_001, 70_000, -3}) {
+                final BigDecimal value = new BigDecimal(unscaled, scale);
+                assertEquals(value.toPlainString(), write(value), "for scale " + scale);
+            }
+        }
+        final BigDecimal pi = PiCalculator.computePi(PiCalculator.NTT_DIGITS, PiCalculator.Algorithm.BINARY_SPLITTING);
+        assertEquals(pi.toString(), write(pi));
+    }
+}
@@ -0,0 +1,55 @@
+package com.fathzer.pi;
+
+import java.math.BigInteger;
+
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+class FixedPointTest {
+    private static final BigInteger ONE = BigInteger.ONE.shiftLeft(64);
+
+    @Test
+    void test() {
+        assertThrows(IllegalArgumentException.class, () -> new FixedPoint(0, 2));
+        final FixedPoint x = new FixedPoint(1, 2);
+        assertEquals(2, x.getFractionLimbs());
+        assertTrue(x.isZero());
+        assertEquals(BigInteger.ZERO, x.toScaledBigInteger());
+
+        x.set(3);
+        assertFalse(x.isZero());
+        assertEquals(ONE.multiply(BigInteger.valueOf(3)), x.toScaledBigInteger());
+        // 3/7 is truncated to the precision of the number
+        x.divide(7);
+        assertEquals(ONE.multiply(BigInteger.valueOf(3)).divide(BigInteger.valueOf(7)), x.toScaledBigInteger());
+        x.multiply(7);
+        assertEquals(ONE.multiply(BigInteger.valueOf(3)).divide(BigInteger.valueOf(7)).multiply(BigInteger.valueOf(7)), x.toScaledBigInteger());
+
+        // Tiny numbers are divided down to 0
+        x.set(1).divide(FixedPoint.MAX_FACTOR).divide(FixedPoint.MAX_FACTOR);
+        assertFalse(x.isZero());
+        assertEquals(BigInteger.valueOf(16), x.toScaledBigInteger());
+        x.divide(17);
+        assertTrue(x.isZero());
+
+        assertThrows(IllegalArgumentException.class, () -> x.multiply(FixedPoint.MAX_FACTOR + 1));
+        assertThrows(IllegalArgumentException.class, () -> x.divide(0));
+        assertThrows(ArithmeticException.class, () -> x.set(3).multiply(FixedPoint.MAX_FACTOR));
+    }
+
+    @Test
+    void testAddMultiple() {
+        final FixedPoint x = new FixedPoint(1, 2).set(1).divide(3);
+        final BigInteger third = ONE.divide(BigInteger.valueOf(3));
+        final FixedPoint sum = new FixedPoint(1, 2);
+        sum.addMultiple(x, 5);
+        assertEquals(third.multiply(BigInteger.valueOf(5)), sum.toScaledBigInteger());
+        // Negative results are in two's complement
+        sum.addMultiple(x, -8);
+        assertEquals(third.multiply(BigInteger.valueOf(-3)), sum.toScaledBigInteger());
+        assertThrows(IllegalStateException.class, () -> sum.divide(2));
+        sum.addMultiple(x, 4);
+        assertEquals(third, sum.toScaledBigInteger());
+        assertThrows(IllegalArgumentException.class, () -> sum.addMultiple(new FixedPoint(1, 3), 1));
+    }
+}
@@ -0,0 +1,66 @@
+package com.fathzer.pi;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.List;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import org.junit.jupiter.api.Test;
+
+class IncrementalPiCalculatorTest {
+
+    @Test
+    void test() {
+        final IncrementalPiCalculator calculator = new IncrementalPiCalculator();
+        assertEquals(0, calculator.getDigits());
+        assertEquals(PiCalculator.computePi(100), calculator.computePi(100));
+        assertEquals(100, calculator.getDigits());
+        // Served by truncation
+        assertEquals(PiCalculator.computePi(50), calculator.computePi(50));
+        assertEquals(100, calculator.getDigits());
+        // Extended
+        assertEquals(PiCalculator.computePi(150), calculator.computePi(150));
+        assertEquals(200, calculator.getDigits());
+        assertEquals(PiCalculator.computePi(1000, PiCalculator.Algorithm.BINARY_SPLITTING), calculator.computePi(1000));
+        assertEquals(1000, calculator.getDigits());
+        assertThrows(IllegalArgumentException.class, () -> calculator.computePi(0));
+    }
+
+    @Test
+    void testConcurrency() {
+        final IncrementalPiCalculator calculator = new IncrementalPiCalculator();
+        final List<BigDecimal> results = IntStream.range(0, 500).parallel().map(i -> 1000 + i * 7)
+                .mapToObj(calculator::computePi).collect(Collectors.toList());
+        final BigDecimal reference = PiCalculator.computePi(1000 + 499 * 7, PiCalculator.Algorithm.BINARY_SPLITTING);
+        for (int i = 0; i < results.size(); i++) {
+            final int digits = 1000 + i * 7;
+            assertEquals(reference.setScale(digits, RoundingMode.DOWN), results.get(i), "for " + digits + " digits");
+        }
+    }
+
+    @Test
+    void testFailure() {
+        final AtomicBoolean fail = new AtomicBoolean();
+        final IncrementalPiCalculator calculator = new IncrementalPiCalculator((a, b) -> {
+            if (fail.get()) {
+                throw new ArithmeticException("Numbers are too large");
+            }
+            return PiCalculator.series(a, b);
+        });
+        assertEquals(PiCalculator.computePi(100), calculator.computePi(100));
+        fail.set(true);
+        final CompletionException e = assertThrows(CompletionException.class, () -> calculator.computePi(1000));
+        assertInstanceOf(ArithmeticException.class, e.getCause());
+        // The failed computation is forgotten
+        assertEquals(100, calculator.getDigits());
+        assertEquals(PiCalculator.computePi(50), calculator.computePi(50));
+        fail.set(false);
+        assertEquals(PiCalculator.computePi(1000, PiCalculator.Algorithm.BINARY_SPLITTING), calculator.computePi(1000));
+        assertEquals(1000, calculator.getDigits());
+    }
+}
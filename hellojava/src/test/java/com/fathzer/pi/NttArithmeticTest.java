@@ -0,0 +1,83 @@
+package com.fathzer.pi;
+
+import java.math.BigInteger;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+class NttArithmeticTest {
+    private final Random random = new Random(0);
+
+    private BigInteger random(int bits) {
+        // The highest bit is set, so that the number has exactly the required length
+        return new BigInteger(bits, random).setBit(bits - 1);
+    }
+
+    @Test
+    void testMultiply() {
+        final int threshold = NttArithmetic.MULTIPLY_THRESHOLD;
+        for (int bits : new int[] {threshold - 1, threshold, threshold + 15, 3 * threshold, 20 * threshold}) {
+            final BigInteger x = random(bits);
+            final BigInteger y = random(bits + 1000);
+            assertEquals(x.multiply(y), NttArithmetic.multiply(x, y), "for " + bits + " bits");
+            assertEquals(x.multiply(y).negate(), NttArithmetic.multiply(x.negate(), y), "for " + bits + " bits");
+            assertEquals(x.multiply(x), NttArithmetic.multiply(x, x), "for " + bits + " bits");
+        }
+        // Unbalanced products and digits of extreme values
+        final BigInteger ones = BigInteger.ONE.shiftLeft(10 * threshold).subtract(BigInteger.ONE);
+        assertEquals(ones.multiply(ones), NttArithmetic.multiply(ones, ones));
+        assertEquals(ones.multiply(BigInteger.TEN), NttArithmetic.multiply(ones, BigInteger.TEN));
+        assertEquals(BigInteger.ZERO, NttArithmetic.multiply(ones, BigInteger.ZERO));
+    }
+
+    @Test
+    void testAllocate() {
+        // This class is run with the default settings and, by the off-heap-test surefire execution, with the transforms off heap
+        final boolean offHeap = Boolean.getBoolean(PiCalculator.OFF_HEAP_PROPERTY);
+        assertFalse(NttArithmetic.allocate(1 << 10).isDirect());
+        assertEquals(offHeap, NttArithmetic.allocate(1 << 20).isDirect());
+    }
+
+    @Test
+    void testPow() {
+        assertEquals(BigInteger.ONE, NttArithmetic.pow(BigInteger.TEN, 0));
+        assertEquals(BigInteger.valueOf(7).pow(100_000), NttArithmetic.pow(BigInteger.valueOf(7), 100_000));
+    }
+
+    @Test
+    void testDivide() {
+        final int threshold = NttArithmetic.NEWTON_THRESHOLD;
+        for (int bits : new int[] {threshold / 2, threshold, 4 * threshold}) {
+            final BigInteger d = random(bits);
+            for (BigInteger n : new BigInteger[] {random(2 * bits), random(3 * bits + 5), random(2 * bits).multiply(d), d.subtract(BigInteger.ONE)}) {
+                assertEquals(n.divide(d), NttArithmetic.divide(n, d), "for " + bits + " bits");
+            }
+            // The remainder is the highest possible
+            final BigInteger q = random(bits);
+            assertEquals(q, NttArithmetic.divide(q.multiply(d).add(d).subtract(BigInteger.ONE), d));
+        }
+    }
+
+    @Test
+    void testDivisor() {
+        final BigInteger d = random(2 * NttArithmetic.NEWTON_THRESHOLD);
+        final NttArithmetic.Divisor divisor = new NttArithmetic.Divisor(d, 2 * d.bitLength());
+        for (BigInteger n : new BigInteger[] {random(2 * d.bitLength()), random(d.bitLength() + 100), d, BigInteger.ZERO}) {
+            assertArrayEquals(n.divideAndRemainder(d), divisor.divideAndRemainder(n));
+        }
+        assertThrows(IllegalArgumentException.class, () -> divisor.divideAndRemainder(random(2 * d.bitLength() + 1)));
+    }
+
+    @Test
+    void testSqrt() {
+        for (int bits : new int[] {100, 1500, NttArithmetic.NEWTON_THRESHOLD, 5 * NttArithmetic.NEWTON_THRESHOLD}) {
+            final BigInteger n = random(bits);
+            assertEquals(n.sqrt(), NttArithmetic.sqrt(n), "for " + bits + " bits");
+            // Perfect squares and the numbers just below them
+            final BigInteger root = random(bits / 2);
+            assertEquals(root, NttArithmetic.sqrt(root.multiply(root)));
+            assertEquals(root.subtract(BigInteger.ONE), NttArithmetic.sqrt(root.multiply(root).subtract(BigInteger.ONE)));
+        }
+    }
+}
@@ -1,9 +1,14 @@
 package com.fathzer.pi;
 
+import java.math.BigDecimal;
+import java.math.MathContext;
+import java.math.RoundingMode;
+
 import org.junit.jupiter.api.Test;
 import static org.junit.jupiter.api.Assertions.*;
 
 class PiCalculatorTest {
+    private static final String PI_100 = "3.1415926535897932384626433832795028841971693993751058209749445923078164062862089986280348253421170679";
 
     @Test
     void testComputePiWithValidDigits() {
@@ -25,4 +30,51 @@ class PiCalculatorTest {
         assertThrows(IllegalArgumentException.class, () -> PiCalculator.computePi(0));
         assertThrows(IllegalArgumentException.class, () -> PiCalculator.computePi(-10));
     }
+
+    @Test
+    void testComputePiDigits() {
+        for (PiCalculator.Algorithm algorithm : PiCalculator.Algorithm.values()) {
+            assertEquals(PI_100, PiCalculator.computePi(100, algorithm).toString());
+        }
+    }
+
+    @Test
+    void testBinarySplitting() {
+        for (int digits = 1; digits <= 300; digits++) {
+            assertEquals(PiCalculator.computePi(digits), PiCalculator.computePi(digits, PiCalculator.Algorithm.BINARY_SPLITTING), "for " + digits + " digits");
+        }
+        // Large enough to be parallelized
+        assertEquals(PiCalculator.computePi(4000), PiCalculator.computePi(4000, PiCalculator.Algorithm.BINARY_SPLITTING));
+        assertThrows(IllegalArgumentException.class, () -> PiCalculator.computePi(0, PiCalculator.Algorithm.BINARY_SPLITTING));
+    }
+
+    @Test
+    void testFixedPoint() {
+        for (int digits = 1; digits <= 300; digits++) {
+            assertEquals(PiCalculator.computePi(digits), PiCalculator.computePi(digits, PiCalculator.Algorithm.FIXED_POINT), "for " + digits + " digits");
+        }
+        assertEquals(PiCalculator.computePi(4000, PiCalculator.Algorithm.BINARY_SPLITTING), PiCalculator.computePi(4000, PiCalculator.Algorithm.FIXED_POINT));
+        assertThrows(IllegalArgumentException.class, () -> PiCalculator.computePi(0, PiCalculator.Algorithm.FIXED_POINT));
+    }
+
+    @Test
+    void testNtt() {
+        for (int digits : new int[] {1, 2, 50, 299, 4000, 20_000}) {
+            final PiCalculator.Series series = PiCalculator.series(0, PiCalculator.terms(digits));
+            assertEquals(PiCalculator.computePi(digits, PiCalculator.Algorithm.BINARY_SPLITTING), PiCalculator.computePiWithNtt(series, digits), "for " + digits + " digits");
+        }
+        // Above the threshold, binary splitting uses the transform
+        final BigDecimal pi = PiCalculator.computePi(PiCalculator.NTT_DIGITS + 10, PiCalculator.Algorithm.BINARY_SPLITTING);
+        assertEquals(PI_100, pi.setScale(100, RoundingMode.DOWN).toString());
+        assertEquals(PiCalculator.NTT_DIGITS + 10, pi.scale());
+    }
+
+    @Test
+    void testSqrt10005() {
+        // Growing then shrinking precisions, so that both the refinement and the truncation of the cached value are tested
+        for (int digits : new int[] {5, 40, 1000, 1001, 3000, 20, 1500}) {
+            final BigDecimal expected = new BigDecimal(10005).sqrt(new MathContext(digits + 20, RoundingMode.HALF_EVEN)).setScale(digits, RoundingMode.DOWN);
+            assertEquals(expected, PiCalculator.sqrt10005(digits), "for " + digits + " digits");
+        }
+    }
 }